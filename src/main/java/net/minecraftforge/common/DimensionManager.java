@@ -223,6 +223,7 @@ public class DimensionManager
 
     public static void initDimension(int dim)
     {
+        DimensionTickExecutor.checkThread(dim);
         WorldServer overworld = getWorld(0);
         if (overworld == null)
         {
@@ -254,6 +255,7 @@ public class DimensionManager
 
     public static WorldServer getWorld(int id)
     {
+        DimensionTickExecutor.checkThread(id);
         return worlds.get(id);
     }
 
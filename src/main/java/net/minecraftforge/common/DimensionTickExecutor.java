@@ -0,0 +1,329 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import net.minecraft.crash.CrashReport;
+import net.minecraft.network.play.server.SPacketTimeUpdate;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ReportedException;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.FMLLog;
+
+/**
+ * Ticks the dimensions listed in the {@code forge.parallelDimensions} system property at the same time, on a fork join pool.
+ *
+ * The other dimensions are ticked on the server thread once all parallel ones finished, and so is everything
+ * that was passed to {@link #runAfterTick(Runnable)} meanwhile. That is the barrier for anything reaching across
+ * dimensions: entities changing dimension already go through it, and mods should use it for anything else that
+ * touches another world or global server state. Sending packets to players is safe from any thread.
+ *
+ * {@link #checkThread(World)} reports code that touches another world while its own is ticked in parallel, from
+ * {@link DimensionManager#getWorld(int)} and the {@link ForgeChunkManager} ticket methods. It logs a warning once for
+ * each pair of dimensions, or throws when {@code forge.strictDimensionThreads} is set. While the profiler runs, which is not
+ * thread safe, every dimension is ticked on the server thread.
+ *
+ * This is experimental, and therefore not a config option: vanilla dimensions share the map storage and the
+ * scoreboard of the overworld, and neither is thread safe. Only list dimensions whose entities use neither.
+ */
+public class DimensionTickExecutor
+{
+    private static final int[] DIMENSIONS = parseDimensions(System.getProperty("forge.parallelDimensions", ""));
+    private static final int THREADS = Integer.parseInt(System.getProperty("forge.parallelDimensionThreads", "0"));
+    private static final boolean STRICT = Boolean.parseBoolean(System.getProperty("forge.strictDimensionThreads", "false"));
+    private static final Set<Long> reported = ConcurrentHashMap.newKeySet();
+    private static ForkJoinPool pool;
+
+    public static boolean isEnabled()
+    {
+        return DIMENSIONS.length > 0;
+    }
+
+    /**
+     * Ticks all given dimensions, called by {@link MinecraftServer#updateTimeLightAndEntities()} in place of its own loop when enabled.
+     */
+    public static void tick(MinecraftServer server, Integer[] ids)
+    {
+        List<DimensionTask> tasks = new ArrayList<DimensionTask>();
+        List<Integer> serial = new ArrayList<Integer>();
+        for (Integer id : ids)
+        {
+            if (!server.profiler.profilingEnabled && ArrayUtils.contains(DIMENSIONS, id))
+            {
+                tasks.add(new DimensionTask(server, id));
+            }
+            else
+            {
+                serial.add(id);
+            }
+        }
+
+        if (tasks.size() < 2)
+        {
+            for (Integer id : ids)
+            {
+                tickDimension(server, id);
+            }
+            return;
+        }
+
+        ForkJoinPool pool = getPool();
+        List<ForkJoinTask<?>> futures = new ArrayList<ForkJoinTask<?>>(tasks.size());
+        for (DimensionTask task : tasks)
+        {
+            futures.add(pool.submit(task));
+        }
+        RuntimeException failure = null;
+        for (ForkJoinTask<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                if (failure == null)
+                {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (failure != null)
+        {
+            throw failure; // Only after every dimension stopped, so none is left running while the server crashes
+        }
+
+        for (DimensionTask task : tasks)
+        {
+            for (Runnable deferred : task.deferred)
+            {
+                deferred.run();
+            }
+        }
+        for (Integer id : serial)
+        {
+            tickDimension(server, id);
+        }
+    }
+
+    /**
+     * Runs the given task on the server thread once all dimensions ticking in parallel finished,
+     * or right away when not called from a dimension that is ticking in parallel.
+     */
+    public static void runAfterTick(Runnable task)
+    {
+        DimensionTask current = getCurrentTask();
+        if (current != null)
+        {
+            current.deferred.add(task);
+        }
+        else
+        {
+            task.run();
+        }
+    }
+
+    /**
+     * Whether the calling thread is ticking a dimension in parallel to others.
+     */
+    public static boolean isDimensionThread()
+    {
+        return getCurrentTask() != null;
+    }
+
+    public static void checkThread(@Nullable World world)
+    {
+        if (world != null)
+        {
+            checkThread(world.provider.getDimension());
+        }
+    }
+
+    /**
+     * Reports access to the given dimension from another dimension that is ticking in parallel.
+     */
+    public static void checkThread(int dim)
+    {
+        DimensionTask current = getCurrentTask();
+        if (current == null || current.id == dim)
+        {
+            return;
+        }
+        if (STRICT)
+        {
+            throw new IllegalStateException(String.format("Dimension %d accessed dimension %d while ticking in parallel", current.id, dim));
+        }
+        // Checked before the stack trace is taken, as this may run for every entity of the dimension
+        if (reported.add((long)current.id << 32 | dim & 0xFFFFFFFFL))
+        {
+            FMLLog.log.warn("Dimension {} accessed dimension {} while ticking in parallel. This is not thread safe, use DimensionTickExecutor.runAfterTick or remove the dimension from forge.parallelDimensions.", current.id, dim, new Throwable());
+        }
+    }
+
+    @Nullable
+    private static DimensionTask getCurrentTask()
+    {
+        Thread thread = Thread.currentThread();
+        return thread instanceof DimensionThread ? ((DimensionThread)thread).task : null;
+    }
+
+    private static synchronized ForkJoinPool getPool()
+    {
+        if (pool == null)
+        {
+            FMLLog.log.warn("Ticking dimensions {} in parallel. This is experimental, the map storage and scoreboard they share are not thread safe.", Arrays.toString(DIMENSIONS));
+            int threads = THREADS > 0 ? THREADS : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            AtomicInteger count = new AtomicInteger(1);
+            pool = new ForkJoinPool(threads, p ->
+            {
+                DimensionThread thread = new DimensionThread(p);
+                thread.setName("Server Dimension Thread-" + count.getAndIncrement());
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    private static int[] parseDimensions(String value)
+    {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (String id : value.split(","))
+        {
+            if (!id.trim().isEmpty())
+            {
+                ids.add(Integer.parseInt(id.trim()));
+            }
+        }
+        return ArrayUtils.toPrimitive(ids.toArray(new Integer[0]));
+    }
+
+    /**
+     * Mirrors the body of the dimension loop in {@link MinecraftServer#updateTimeLightAndEntities()}.
+     */
+    private static void tickDimension(MinecraftServer server, int id)
+    {
+        long start = System.nanoTime();
+        if (id == 0 || server.getAllowNether())
+        {
+            WorldServer world = DimensionManager.getWorld(id);
+            server.profiler.func_194340_a(() -> world.getWorldInfo().getWorldName());
+
+            if (server.getTickCounter() % 20 == 0)
+            {
+                server.profiler.startSection("timeSync");
+                server.getPlayerList().sendPacketToAllPlayersInDimension(new SPacketTimeUpdate(world.getTotalWorldTime(), world.getWorldTime(), world.getGameRules().getBoolean("doDaylightCycle")), world.provider.getDimension());
+                server.profiler.endSection();
+            }
+
+            server.profiler.startSection("tick");
+            FMLCommonHandler.instance().onPreWorldTick(world);
+
+            try
+            {
+                world.tick();
+            }
+            catch (Throwable throwable)
+            {
+                CrashReport crashreport = CrashReport.makeCrashReport(throwable, "Exception ticking world");
+                world.addWorldInfoToCrashReport(crashreport);
+                throw new ReportedException(crashreport);
+            }
+
+            try
+            {
+                world.updateEntities();
+            }
+            catch (Throwable throwable)
+            {
+                CrashReport crashreport = CrashReport.makeCrashReport(throwable, "Exception ticking world entities");
+                world.addWorldInfoToCrashReport(crashreport);
+                throw new ReportedException(crashreport);
+            }
+
+            FMLCommonHandler.instance().onPostWorldTick(world);
+            server.profiler.endSection();
+            server.profiler.startSection("tracker");
+            world.getEntityTracker().tick();
+            server.profiler.endSection();
+            server.profiler.endSection();
+        }
+
+        server.worldTickTimes.get(id)[server.getTickCounter() % 100] = System.nanoTime() - start;
+    }
+
+    private static class DimensionTask implements Runnable
+    {
+        private final MinecraftServer server;
+        private final int id;
+        private final List<Runnable> deferred = new ArrayList<Runnable>();
+
+        private DimensionTask(MinecraftServer server, int id)
+        {
+            this.server = server;
+            this.id = id;
+        }
+
+        @Override
+        public void run()
+        {
+            DimensionThread thread = (DimensionThread)Thread.currentThread();
+            thread.task = this;
+            try
+            {
+                tickDimension(server, id);
+            }
+            finally
+            {
+                thread.task = null;
+            }
+        }
+    }
+
+    private static class DimensionThread extends ForkJoinWorkerThread
+    {
+        @Nullable
+        private DimensionTask task;
+
+        private DimensionThread(ForkJoinPool pool)
+        {
+            super(pool);
+        }
+    }
+}
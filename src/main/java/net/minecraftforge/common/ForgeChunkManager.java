@@ -26,7 +26,6 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
@@ -36,27 +35,36 @@ import net.minecraft.entity.Entity;
 import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
-import net.minecraft.tileentity.TileEntity;
-import net.minecraft.util.ClassInheritanceMultiMap;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.AnvilChunkLoader;
+import net.minecraft.world.gen.ChunkProviderServer;
 import net.minecraft.world.storage.ThreadedFileIOBase;
+import net.minecraftforge.common.chunkio.ChunkSaveExecutor;
+import net.minecraftforge.common.chunkio.DormantChunkStore;
 import net.minecraftforge.common.config.ConfigCategory;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
 import net.minecraftforge.common.util.Constants;
+import net.minecraftforge.event.world.ChunkDataEvent;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.FMLLog;
 import net.minecraftforge.fml.common.Loader;
 import net.minecraftforge.fml.common.ModContainer;
 import net.minecraftforge.fml.common.eventhandler.Event;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
@@ -65,11 +73,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
-import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 
@@ -100,19 +108,20 @@ public class ForgeChunkManager
     private static Map<String, Integer> ticketConstraints = Maps.newHashMap();
     private static Map<String, Integer> chunkConstraints = Maps.newHashMap();
 
-    private static SetMultimap<String, Ticket> playerTickets = HashMultimap.create();
+    private static SetMultimap<String, Ticket> playerTickets = Multimaps.synchronizedSetMultimap(HashMultimap.<String, Ticket>create()); // Shared by dimensions ticking in parallel
 
     private static Map<String, LoadingCallback> callbacks = Maps.newHashMap();
 
-    private static Map<World, ImmutableSetMultimap<ChunkPos,Ticket>> forcedChunks = new MapMaker().weakKeys().makeMap();
+    private static Map<World, ForcedChunkIndex<Ticket>> forcedChunks = new MapMaker().weakKeys().makeMap();
     private static BiMap<UUID,Ticket> pendingEntities = HashBiMap.create();
 
-    private static Map<World,Cache<Long, ChunkEntry>> dormantChunkCache = new MapMaker().weakKeys().makeMap();
+    private static Map<World, LongSet> dormantPending = new MapMaker().weakKeys().makeMap(); // Chunks being unloaded into the dormant cache
 
     private static File cfgFile;
     private static Configuration config;
     private static int playerTicketLength;
     private static int dormantChunkCacheSize;
+    private static int dormantChunkCacheMemory;
 
     public static boolean asyncChunkLoading;
 
@@ -126,28 +135,171 @@ public class ForgeChunkManager
         MOD_PROP_ORDER.add("maximumChunksPerTicket");
     }
 
-    private static class ChunkEntry
+    /**
+     * The tickets forcing each chunk of a world, keyed by {@link ChunkPos#asLong(int, int)}.
+     * Changes and single chunk checks are O(1) on the live map. The immutable views handed out for iteration
+     * are only rebuilt when requested after a change.
+     */
+    static class ForcedChunkIndex<T>
     {
-        public final Chunk chunk;
-        public final NBTTagCompound nbt;
+        private final Long2ObjectLinkedOpenHashMap<List<T>> chunks = new Long2ObjectLinkedOpenHashMap<List<T>>();
+        @Nullable
+        private volatile LongSet keys = LongSets.EMPTY_SET;
+        @Nullable
+        private volatile ImmutableSetMultimap<ChunkPos, T> multimap = ImmutableSetMultimap.of();
 
-        public ChunkEntry(Chunk chunk)
+        synchronized void add(ChunkPos pos, T ticket)
         {
-            this.chunk = chunk;
-            this.nbt = new NBTTagCompound();
+            long key = ChunkPos.asLong(pos.x, pos.z);
+            List<T> list = chunks.get(key);
+            if (list == null)
+            {
+                list = new ArrayList<T>(1);
+                chunks.put(key, list);
+                keys = null;
+            }
+            else if (list.contains(ticket))
+            {
+                return;
+            }
+            list.add(ticket);
+            multimap = null;
+        }
+
+        synchronized void remove(ChunkPos pos, T ticket)
+        {
+            long key = ChunkPos.asLong(pos.x, pos.z);
+            List<T> list = chunks.get(key);
+            if (list != null && list.remove(ticket))
+            {
+                if (list.isEmpty())
+                {
+                    chunks.remove(key);
+                    keys = null;
+                }
+                multimap = null;
+            }
+        }
+
+        synchronized boolean isEmpty()
+        {
+            return chunks.isEmpty();
+        }
+
+        synchronized boolean contains(long key)
+        {
+            return chunks.containsKey(key);
+        }
+
+        /**
+         * Removes the forced chunks from the given chunk keys, going through whichever of both is smaller.
+         */
+        synchronized void removeFrom(Set<Long> keys)
+        {
+            if (keys.size() < chunks.size())
+            {
+                keys.removeIf(key -> chunks.containsKey(key.longValue()));
+            }
+            else
+            {
+                for (LongIterator itr = chunks.keySet().iterator(); itr.hasNext();)
+                {
+                    keys.remove(itr.nextLong());
+                }
+            }
+        }
+
+        /**
+         * A snapshot of the forced chunks, for iterating them while they change.
+         */
+        LongSet getKeys()
+        {
+            LongSet ret = keys;
+            if (ret == null)
+            {
+                synchronized (this)
+                {
+                    ret = keys = LongSets.unmodifiable(new LongLinkedOpenHashSet(chunks.keySet()));
+                }
+            }
+            return ret;
+        }
+
+        ImmutableSetMultimap<ChunkPos, T> getMultimap()
+        {
+            ImmutableSetMultimap<ChunkPos, T> ret = multimap;
+            if (ret == null)
+            {
+                synchronized (this)
+                {
+                    ImmutableSetMultimap.Builder<ChunkPos, T> builder = ImmutableSetMultimap.builder();
+                    for (Long2ObjectMap.Entry<List<T>> entry : chunks.long2ObjectEntrySet())
+                    {
+                        long key = entry.getLongKey();
+                        builder.putAll(new ChunkPos((int)key, (int)(key >> 32)), entry.getValue());
+                    }
+                    ret = multimap = builder.build();
+                }
+            }
+            return ret;
         }
     }
 
+    /**
+     * Iterates the forced chunks of the world, loading them if needed, followed by the chunks of the given iterator
+     * that are not forced.
+     */
     public static Iterator<Chunk> getPersistentChunksIterableFor(final World world, Iterator<Chunk> chunkIterator)
     {
-        final ImmutableSetMultimap<ChunkPos, Ticket> persistentChunksFor = getPersistentChunksFor(world);
-        final ImmutableSet.Builder<Chunk> builder = ImmutableSet.builder();
-        world.profiler.startSection("forcedChunkLoading");
-        builder.addAll(persistentChunksFor.keys().stream().filter(Objects::nonNull).map(input -> world.getChunkFromChunkCoords(input.x, input.z)).iterator());
-        world.profiler.endStartSection("regularChunkLoading");
-        builder.addAll(chunkIterator);
-        world.profiler.endSection();
-        return builder.build().iterator();
+        ForcedChunkIndex<Ticket> index = forcedChunks.get(world);
+        if (index == null || index.isEmpty())
+        {
+            return chunkIterator;
+        }
+        final LongSet forced = index.getKeys();
+        final LongIterator forcedItr = forced.iterator();
+        return new AbstractIterator<Chunk>()
+        {
+            @Override
+            protected Chunk computeNext()
+            {
+                if (forcedItr.hasNext())
+                {
+                    long key = forcedItr.nextLong();
+                    return world.getChunkFromChunkCoords((int)key, (int)(key >> 32));
+                }
+                while (chunkIterator.hasNext())
+                {
+                    Chunk chunk = chunkIterator.next();
+                    if (!forced.contains(ChunkPos.asLong(chunk.x, chunk.z)))
+                    {
+                        return chunk;
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * Removes the chunks forced in the world from the given chunk keys, called before a chunk provider unloads chunks.
+     */
+    public static void removeForcedChunks(World world, Set<Long> chunks)
+    {
+        ForcedChunkIndex<Ticket> index = forcedChunks.get(world);
+        if (index != null)
+        {
+            index.removeFrom(chunks);
+        }
+    }
+
+    /**
+     * Whether a ticket forces the given chunk, without building the map returned by {@link #getPersistentChunksFor(World)}.
+     */
+    public static boolean isChunkForced(World world, int chunkX, int chunkZ)
+    {
+        ForcedChunkIndex<Ticket> index = forcedChunks.get(world);
+        return index != null && index.contains(ChunkPos.asLong(chunkX, chunkZ));
     }
 
     /**
@@ -465,7 +617,7 @@ public class ForgeChunkManager
         ArrayListMultimap<String, Ticket> newTickets = ArrayListMultimap.create();
         tickets.put(world, newTickets);
 
-        forcedChunks.put(world, ImmutableSetMultimap.of());
+        forcedChunks.put(world, new ForcedChunkIndex<Ticket>());
 
         if (!(world instanceof WorldServer))
         {
@@ -474,7 +626,7 @@ public class ForgeChunkManager
 
         if (dormantChunkCacheSize != 0)
         { // only put into cache if we're using dormant chunk caching
-            dormantChunkCache.put(world, CacheBuilder.newBuilder().maximumSize(dormantChunkCacheSize).build());
+            dormantPending.put(world, new LongOpenHashSet());
         }
         WorldServer worldServer = (WorldServer) world;
         File chunkDir = worldServer.getChunkSaveLocation();
@@ -622,7 +774,8 @@ public class ForgeChunkManager
         forcedChunks.remove(world);
         if (dormantChunkCacheSize != 0) // only if in use
         {
-            dormantChunkCache.remove(world);
+            dormantPending.remove(world);
+            DormantChunkStore.removeWorld(world);
         }
         // integrated server is shutting down
         if (!FMLCommonHandler.instance().getMinecraftServerInstance().isServerRunning())
@@ -698,6 +851,7 @@ public class ForgeChunkManager
     @Nullable
     public static Ticket requestPlayerTicket(Object mod, String player, World world, Type type)
     {
+        DimensionTickExecutor.checkThread(world);
         ModContainer mc = getContainer(mod);
         if (mc == null)
         {
@@ -725,6 +879,7 @@ public class ForgeChunkManager
     @Nullable
     public static Ticket requestTicket(Object mod, World world, Type type)
     {
+        DimensionTickExecutor.checkThread(world);
         ModContainer container = getContainer(mod);
         if (container == null)
         {
@@ -766,6 +921,7 @@ public class ForgeChunkManager
         {
             return;
         }
+        DimensionTickExecutor.checkThread(ticket.world);
         if (ticket.isPlayerTicket() ? !playerTickets.containsValue(ticket) : !tickets.get(ticket.world).containsEntry(ticket.modId, ticket))
         {
             return;
@@ -802,6 +958,7 @@ public class ForgeChunkManager
         {
             return;
         }
+        DimensionTickExecutor.checkThread(ticket.world);
         if (ticket.ticketType == Type.ENTITY && ticket.entity == null)
         {
             throw new RuntimeException("Attempted to use an entity ticket to force a chunk, without an entity");
@@ -814,8 +971,7 @@ public class ForgeChunkManager
         ticket.requestedChunks.add(chunk);
         MinecraftForge.EVENT_BUS.post(new ForceChunkEvent(ticket, chunk));
 
-        ImmutableSetMultimap<ChunkPos, Ticket> newMap = ImmutableSetMultimap.<ChunkPos,Ticket>builder().putAll(forcedChunks.get(ticket.world)).put(chunk, ticket).build();
-        forcedChunks.put(ticket.world, newMap);
+        forcedChunks.get(ticket.world).add(chunk, ticket);
         if (ticket.maxDepth > 0 && ticket.requestedChunks.size() > ticket.maxDepth)
         {
             ChunkPos removed = ticket.requestedChunks.iterator().next();
@@ -852,12 +1008,10 @@ public class ForgeChunkManager
         {
             return;
         }
+        DimensionTickExecutor.checkThread(ticket.world);
         ticket.requestedChunks.remove(chunk);
         MinecraftForge.EVENT_BUS.post(new UnforceChunkEvent(ticket, chunk));
-        LinkedHashMultimap<ChunkPos, Ticket> copy = LinkedHashMultimap.create(forcedChunks.get(ticket.world));
-        copy.remove(chunk, ticket);
-        ImmutableSetMultimap<ChunkPos, Ticket> newMap = ImmutableSetMultimap.copyOf(copy);
-        forcedChunks.put(ticket.world,newMap);
+        forcedChunks.get(ticket.world).remove(chunk, ticket);
     }
 
     static void loadConfiguration()
@@ -883,12 +1037,14 @@ public class ForgeChunkManager
 
     /**
      * The list of persistent chunks in the world. This set is immutable.
+     * It is only rebuilt after chunks were forced or unforced, use {@link #isChunkForced(World, int, int)} to check single chunks.
      * @param world
      * @return the list of persistent chunks in the world
      */
     public static ImmutableSetMultimap<ChunkPos, Ticket> getPersistentChunksFor(World world)
     {
-        return forcedChunks.containsKey(world) ? forcedChunks.get(world) : ImmutableSetMultimap.of();
+        ForcedChunkIndex<Ticket> index = forcedChunks.get(world);
+        return index != null ? index.getMultimap() : ImmutableSetMultimap.of();
     }
 
     static void saveWorld(World world)
@@ -971,70 +1127,83 @@ public class ForgeChunkManager
         }
     }
 
+    /**
+     * Called before a chunk is saved and unloaded, so the saved NBT is kept in the dormant cache.
+     */
     public static void putDormantChunk(long coords, Chunk chunk)
     {
         if (dormantChunkCacheSize == 0) return; // Skip if we're not dormant caching chunks
-        Cache<Long, ChunkEntry> cache = dormantChunkCache.get(chunk.getWorld());
-        if (cache != null)
+        LongSet pending = dormantPending.get(chunk.getWorld());
+        if (pending != null)
         {
-            cache.put(coords, new ChunkEntry(chunk));
+            pending.add(coords);
         }
     }
 
+    /**
+     * Called with the root NBT of every chunk that is saved, after {@link ChunkDataEvent.Save} was posted with it,
+     * and stores it if the chunk is being unloaded. It is compressed on the IO thread, which writes the same tag to the region file.
+     */
     public static void storeChunkNBT(Chunk chunk, NBTTagCompound nbt)
     {
-        if (dormantChunkCacheSize == 0) return;
-
-        Cache<Long, ChunkEntry> cache = dormantChunkCache.get(chunk.getWorld());
-        if (cache == null) return;
-
-        ChunkEntry entry = cache.getIfPresent(ChunkPos.asLong(chunk.x, chunk.z));
-        if (entry != null)
+        if (claimDormantChunk(chunk))
         {
-            entry.nbt.setTag("Entities", nbt.getTagList("Entities", Constants.NBT.TAG_COMPOUND));
-            entry.nbt.setTag("TileEntities", nbt.getTagList("TileEntities", Constants.NBT.TAG_COMPOUND));
-
-            ClassInheritanceMultiMap<Entity>[] entityLists = chunk.getEntityLists();
-            for (int i = 0; i < entityLists.length; ++i)
-            {
-                entityLists[i] = new ClassInheritanceMultiMap<>(Entity.class);
-            }
-            chunk.getTileEntityMap().clear();
+            DormantChunkStore.putLater(chunk.getWorld(), ChunkPos.asLong(chunk.x, chunk.z), nbt);
         }
     }
 
+    /**
+     * Whether the chunk being saved is also being unloaded, and its NBT should be stored in the {@link DormantChunkStore}.
+     * For saves that finish the NBT on another thread, in place of {@link #storeChunkNBT(Chunk, NBTTagCompound)}.
+     */
+    public static boolean claimDormantChunk(Chunk chunk)
+    {
+        if (dormantChunkCacheSize == 0) return false;
+        LongSet pending = dormantPending.get(chunk.getWorld());
+        return pending != null && pending.remove(ChunkPos.asLong(chunk.x, chunk.z));
+    }
+
+    /**
+     * Loads a chunk from the dormant cache, the same way as the chunk IO threads load it from the region file.
+     */
     @Nullable
     public static Chunk fetchDormantChunk(long coords, World world)
     {
         if (dormantChunkCacheSize == 0) return null; // Don't bother with maps at all if its never gonna get a response
-
-        Cache<Long, ChunkEntry> cache = dormantChunkCache.get(world);
-        if (cache == null) return null;
-
-        ChunkEntry entry = cache.getIfPresent(coords);
-        if (entry == null) return null;
-
-        loadChunkEntities(entry.chunk, entry.nbt, world);
-
-        cache.invalidate(coords);
-        return entry.chunk;
+        if (!(world instanceof WorldServer)) return null;
+
+        ChunkProviderServer provider = ((WorldServer)world).getChunkProvider();
+        if (!(provider.chunkLoader instanceof AnvilChunkLoader)) return null;
+        AnvilChunkLoader loader = (AnvilChunkLoader)provider.chunkLoader;
+        int x = (int)coords;
+        int z = (int)(coords >> 32);
+
+        Object[] data = loadDormantChunk__Async(world, loader, x, z);
+        if (data == null) return null;
+        Chunk chunk = (Chunk)data[0];
+        NBTTagCompound root = (NBTTagCompound)data[1];
+
+        loader.loadEntities(world, root.getCompoundTag("Level"), chunk);
+        MinecraftForge.EVENT_BUS.post(new ChunkDataEvent.Load(chunk, root));
+        chunk.setLastSaveTime(world.getTotalWorldTime());
+        provider.chunkGenerator.recreateStructures(chunk, x, z);
+        return chunk;
     }
 
-    private static void loadChunkEntities(Chunk chunk, NBTTagCompound nbt, World world)
+    /**
+     * Reads a chunk from the dormant cache, like {@link AnvilChunkLoader#loadChunk__Async} reads it from the region file.
+     * Used by the chunk IO threads, which finish loading it on the server thread.
+     */
+    @Nullable
+    public static Object[] loadDormantChunk__Async(World world, AnvilChunkLoader loader, int x, int z)
     {
-        NBTTagList entities = nbt.getTagList("Entities", Constants.NBT.TAG_COMPOUND);
-        for (int i = 0; i < entities.tagCount(); ++i)
-        {
-            AnvilChunkLoader.readChunkEntity(entities.getCompoundTagAt(i), world, chunk);
-            chunk.setHasEntities(true);
-        }
+        if (dormantChunkCacheSize == 0) return null;
 
-        NBTTagList tileEntities = nbt.getTagList("TileEntities", Constants.NBT.TAG_COMPOUND);
-        for (int i = 0; i < tileEntities.tagCount(); ++i)
-        {
-            TileEntity tileEntity = TileEntity.create(world, tileEntities.getCompoundTagAt(i));
-            if (tileEntity != null) chunk.addTileEntity(tileEntity);
-        }
+        ChunkSaveExecutor.awaitSave(loader, new ChunkPos(x, z)); // A save still in flight stores the newest copy
+        NBTTagCompound root = DormantChunkStore.get(world, ChunkPos.asLong(x, z));
+        if (root == null) return null;
+
+        return loader.checkedReadChunkFromNBT__Async(world, x, z, root);
     }
 
     static void captureConfig(File configDir)
@@ -1106,7 +1275,16 @@ public class ForgeChunkManager
         temp.setMinValue(0);
         dormantChunkCacheSize = temp.getInt(0);
         propOrder.add("dormantChunkCacheSize");
-        FMLLog.log.info("Configured a dormant chunk cache size of {}", temp.getInt(0));
+
+        temp = config.get("defaults", "dormantChunkCacheMemory", 512);
+        temp.setComment("The most memory (in MiB) the dormant chunk cache may use. The chunks are kept compressed\n" +
+                    "in a memory mapped file, outside of the Java heap.");
+        temp.setLanguageKey("forge.configgui.dormantChunkCacheMemory");
+        temp.setMinValue(1);
+        dormantChunkCacheMemory = temp.getInt(512);
+        propOrder.add("dormantChunkCacheMemory");
+        DormantChunkStore.configure(dormantChunkCacheSize, (long)dormantChunkCacheMemory << 20);
+        FMLLog.log.info("Configured a dormant chunk cache size of {} chunks, up to {} MiB", dormantChunkCacheSize, dormantChunkCacheMemory);
 
         temp = config.get("defaults", "asyncChunkLoading", true);
         temp.setComment("Load chunks asynchronously for players, reducing load on the server thread.\n" +
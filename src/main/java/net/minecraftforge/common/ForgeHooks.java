@@ -1042,9 +1042,25 @@ public class ForgeHooks
 
     public static boolean onTravelToDimension(Entity entity, int dimension)
     {
-        EntityTravelToDimensionEvent event = new EntityTravelToDimensionEvent(entity, dimension);
-        MinecraftForge.EVENT_BUS.post(event);
-        if (event.isCanceled())
+        boolean cancel;
+        if (DimensionTickExecutor.isDimensionThread())
+        {
+            // Both worlds are touched, so try again once no other dimension is ticking. changeDimension always uses
+            // the default teleporter of the target world, so the retry ends up in the same place.
+            DimensionTickExecutor.runAfterTick(() ->
+            {
+                if (!entity.isDead && entity.dimension != dimension)
+                {
+                    entity.changeDimension(dimension);
+                }
+            });
+            cancel = true;
+        }
+        else
+        {
+            cancel = MinecraftForge.EVENT_BUS.post(new EntityTravelToDimensionEvent(entity, dimension));
+        }
+        if (cancel)
         {
             // Revert variable back to true as it would have been set to false
             if (entity instanceof EntityMinecartContainer)
@@ -1052,7 +1068,7 @@ public class ForgeHooks
                ((EntityMinecartContainer) entity).dropContentsWhenDead = true;
             }
         }
-        return !event.isCanceled();
+        return !cancel;
     }
 
     @Nullable
@@ -53,6 +53,7 @@ import net.minecraftforge.common.config.ConfigCategory;
 import net.minecraftforge.common.config.ConfigManager;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
+import net.minecraftforge.common.crafting.RecipeIndex;
 import net.minecraftforge.common.model.animation.CapabilityAnimation;
 import net.minecraftforge.common.network.ForgeNetworkHandler;
 import net.minecraftforge.energy.CapabilityEnergy;
@@ -66,6 +67,7 @@ import net.minecraftforge.items.CapabilityItemHandler;
 import net.minecraftforge.fluids.UniversalBucket;
 import net.minecraftforge.oredict.OreDictionary;
 import net.minecraftforge.oredict.RecipeSorter;
+import net.minecraftforge.server.command.ChunkGenData;
 import net.minecraftforge.server.command.ForgeCommand;
 
 import com.google.common.collect.ImmutableList;
@@ -121,6 +123,10 @@ public class ForgeModContainer extends DummyModContainer implements WorldAccessC
     public static boolean disableStairSlabCulling = false; // Also known as the "DontCullStairsBecauseIUseACrappyTexturePackThatBreaksBasicBlockShapesSoICantTrustBasicBlockCulling" flag
     public static boolean alwaysSetupTerrainOffThread = false; // In RenderGlobal.setupTerrain, always force the chunk render updates to be queued to the thread
     public static int dimensionUnloadQueueDelay = 0;
+    public static boolean asyncChunkSaving = false;
+    public static int asyncChunkSaveLimit = 256;
+    public static boolean mappedRegionFiles = false;
+    public static boolean cacheCapabilityLookups = true;
     public static boolean logCascadingWorldGeneration = true; // see Chunk#logCascadingWorldGeneration()
     public static boolean fixVanillaCascading = false; // There are various places in vanilla that cause cascading worldgen. Enabling this WILL change where blocks are placed to prevent this.
                                                        // DO NOT contact Forge about worldgen not 'matching' vanilla if this flag is set.
@@ -309,6 +315,34 @@ public class ForgeModContainer extends DummyModContainer implements WorldAccessC
         prop.setLanguageKey("forge.configgui.dimensionUnloadQueueDelay");
         propOrder.add(prop.getName());
 
+        prop = config.get(Configuration.CATEGORY_GENERAL, "asyncChunkSaving", false,
+                "Encode the blocks of saved chunks on background threads, instead of the server thread. " +
+                        "ChunkDataEvent.Save listeners then see the chunk data without its block sections.");
+        asyncChunkSaving = prop.getBoolean(false);
+        prop.setLanguageKey("forge.configgui.asyncChunkSaving");
+        propOrder.add(prop.getName());
+
+        prop = config.get(Configuration.CATEGORY_GENERAL, "asyncChunkSaveLimit", 256,
+                "The maximum number of chunk saves waiting for a background thread. " +
+                        "Further saves are finished on the server thread until the background threads catch up.", 1, 65536);
+        asyncChunkSaveLimit = prop.getInt(256);
+        prop.setLanguageKey("forge.configgui.asyncChunkSaveLimit");
+        propOrder.add(prop.getName());
+
+        prop = config.get(Configuration.CATEGORY_GENERAL, "mappedRegionFiles", false,
+                "Read and write region files through memory mapped headers, so chunks of the same region can be loaded and saved in parallel. " +
+                        "The files keep the vanilla format.");
+        mappedRegionFiles = prop.getBoolean(false);
+        prop.setLanguageKey("forge.configgui.mappedRegionFiles").setRequiresWorldRestart(true);
+        propOrder.add(prop.getName());
+
+        prop = config.get(Configuration.CATEGORY_GENERAL, "cacheCapabilityLookups", true,
+                "Remember which of the capability providers attached to an object support a capability, instead of asking all of them every time. " +
+                "Disable if a mod attaches providers that gain capabilities over time, without implementing IDynamicCapabilityProvider.");
+        cacheCapabilityLookups = prop.getBoolean(true);
+        prop.setLanguageKey("forge.configgui.cacheCapabilityLookups");
+        propOrder.add(prop.getName());
+
         config.setCategoryPropertyOrder(CATEGORY_GENERAL, propOrder);
 
         propOrder = new ArrayList<String>();
@@ -527,6 +561,7 @@ public class ForgeModContainer extends DummyModContainer implements WorldAccessC
     public void serverStarting(FMLServerStartingEvent evt)
     {
         evt.registerServerCommand(new ForgeCommand());
+        ChunkGenData.resume(evt.getServer());
     }
 
     @Subscribe
@@ -558,6 +593,7 @@ public class ForgeModContainer extends DummyModContainer implements WorldAccessC
         OreDictionary.rebakeMap();
         StatList.reinit();
         Ingredient.invalidateAll();
+        RecipeIndex.invalidate();
         FMLCommonHandler.instance().reloadSearchTrees();
     }
 
@@ -20,6 +20,7 @@
 package net.minecraftforge.common.capabilities;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.base.Throwables;
 
@@ -147,14 +148,25 @@ public class Capability<T>
     }
 
     // INTERNAL
+    private static final AtomicInteger nextId = new AtomicInteger();
     private final String name;
     private final IStorage<T> storage;
     private final Callable<? extends T> factory;
+    private final int id;
 
     Capability(String name, IStorage<T> storage, Callable<? extends T> factory)
     {
         this.name = name;
         this.storage = storage;
         this.factory = factory;
+        this.id = nextId.getAndIncrement();
+    }
+
+    /**
+     * A small number unique to this capability, counting up from zero in the order they were registered.
+     */
+    int getId()
+    {
+        return id;
     }
 }
@@ -30,6 +30,7 @@ import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.common.ForgeModContainer;
 import net.minecraftforge.common.util.INBTSerializable;
 
 /**
@@ -41,12 +42,22 @@ import net.minecraftforge.common.util.INBTSerializable;
  *
  * Internally the handlers are baked into arrays for fast iteration.
  * The ResourceLocations will be used for the NBT Key when serializing.
+ *
+ * The first time a capability is requested for a side, the providers that support it are remembered,
+ * and later requests only go to those. Providers whose support changes must implement {@link IDynamicCapabilityProvider}.
+ * The parent provider, like the one from {@link net.minecraft.item.Item#initCapabilities}, is always asked,
+ * as it may answer by the state of the object it belongs to, such as the metadata or NBT of a stack.
  */
 public final class CapabilityDispatcher implements INBTSerializable<NBTTagCompound>, ICapabilityProvider
 {
+    private static final int SIDES = EnumFacing.values().length + 1; // Null is the last side
+
     private ICapabilityProvider[] caps;
+    private boolean hasParent;
     private INBTSerializable<NBTBase>[] writers;
     private String[] names;
+    private Lookup[] lookups = new Lookup[0]; // Open addressed by capability and side, at most half full
+    private int lookupCount;
 
     public CapabilityDispatcher(Map<ResourceLocation, ICapabilityProvider> list)
     {
@@ -62,6 +73,7 @@ public final class CapabilityDispatcher implements INBTSerializable<NBTTagCompou
 
         if (parent != null) // Parents go first!
         {
+            hasParent = true;
             lstCaps.add(parent);
             if (parent instanceof INBTSerializable)
             {
@@ -89,7 +101,12 @@ public final class CapabilityDispatcher implements INBTSerializable<NBTTagCompou
     @Override
     public boolean hasCapability(@Nonnull Capability<?> capability, @Nullable EnumFacing facing)
     {
-        for (ICapabilityProvider cap : caps)
+        Lookup lookup = getLookup(capability, facing);
+        if (lookup != null && lookup.supported)
+        {
+            return true;
+        }
+        for (ICapabilityProvider cap : lookup == null ? caps : lookup.providers)
         {
             if (cap.hasCapability(capability, facing))
             {
@@ -103,7 +120,8 @@ public final class CapabilityDispatcher implements INBTSerializable<NBTTagCompou
     @Nullable
     public <T> T getCapability(@Nonnull Capability<T> capability, @Nullable EnumFacing facing)
     {
-        for (ICapabilityProvider cap : caps)
+        Lookup lookup = getLookup(capability, facing);
+        for (ICapabilityProvider cap : lookup == null ? caps : lookup.providers)
         {
             T ret = cap.getCapability(capability, facing);
             if (ret != null)
@@ -114,6 +132,81 @@ public final class CapabilityDispatcher implements INBTSerializable<NBTTagCompou
         return null;
     }
 
+    @Nullable
+    private Lookup getLookup(Capability<?> capability, @Nullable EnumFacing facing)
+    {
+        if (!ForgeModContainer.cacheCapabilityLookups)
+        {
+            return null;
+        }
+        int key = capability.getId() * SIDES + (facing == null ? SIDES - 1 : facing.ordinal());
+        Lookup lookup = find(this.lookups, key);
+        return lookup != null ? lookup : addLookup(key, capability, facing);
+    }
+
+    @Nullable
+    private static Lookup find(Lookup[] lookups, int key)
+    {
+        int mask = lookups.length - 1;
+        for (int i = hash(key) & mask; mask >= 0; i = (i + 1) & mask)
+        {
+            Lookup lookup = lookups[i];
+            if (lookup == null || lookup.key == key)
+            {
+                return lookup;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Only called the first time a capability and side are requested, so locking is cheap.
+     * Lookups are immutable and the table always has empty slots, so {@link #find} is safe without the lock.
+     */
+    private synchronized Lookup addLookup(int key, Capability<?> capability, @Nullable EnumFacing facing)
+    {
+        Lookup[] lookups = this.lookups;
+        Lookup lookup = find(lookups, key);
+        if (lookup != null)
+        {
+            return lookup;
+        }
+        if ((lookupCount + 1) * 2 > lookups.length)
+        {
+            Lookup[] grown = new Lookup[Math.max(8, lookups.length * 2)];
+            for (Lookup old : lookups)
+            {
+                if (old != null)
+                {
+                    insert(grown, old);
+                }
+            }
+            lookups = grown;
+        }
+        lookup = new Lookup(key, caps, hasParent, capability, facing);
+        insert(lookups, lookup);
+        lookupCount++;
+        this.lookups = lookups;
+        return lookup;
+    }
+
+    private static void insert(Lookup[] lookups, Lookup lookup)
+    {
+        int mask = lookups.length - 1;
+        int i = hash(lookup.key) & mask;
+        while (lookups[i] != null)
+        {
+            i = (i + 1) & mask;
+        }
+        lookups[i] = lookup;
+    }
+
+    private static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
     @Override
     public NBTTagCompound serializeNBT()
     {
@@ -143,4 +236,36 @@ public final class CapabilityDispatcher implements INBTSerializable<NBTTagCompou
         if (this.writers.length == 0) return other.writers.length == 0;
         return this.serializeNBT().equals(other.serializeNBT());
     }
+
+    /**
+     * The providers of one capability and side that have to be asked. Immutable, so it can be shared without synchronization.
+     */
+    private static class Lookup
+    {
+        private final int key;
+        private final ICapabilityProvider[] providers;
+        private final boolean supported; // One of the providers that are not asked every time has it, so it is always there
+
+        private Lookup(int key, ICapabilityProvider[] caps, boolean hasParent, Capability<?> capability, @Nullable EnumFacing facing)
+        {
+            this.key = key;
+            List<ICapabilityProvider> lst = Lists.newArrayList();
+            boolean supported = false;
+            for (int x = 0; x < caps.length; x++)
+            {
+                ICapabilityProvider cap = caps[x];
+                if (cap instanceof IDynamicCapabilityProvider || (x == 0 && hasParent))
+                {
+                    lst.add(cap);
+                }
+                else if (cap.hasCapability(capability, facing))
+                {
+                    lst.add(cap);
+                    supported = true;
+                }
+            }
+            this.providers = lst.toArray(new ICapabilityProvider[lst.size()]);
+            this.supported = supported;
+        }
+    }
 }
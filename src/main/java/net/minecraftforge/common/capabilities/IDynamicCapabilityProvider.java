@@ -0,0 +1,30 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.capabilities;
+
+/**
+ * Marks a capability provider whose {@link #hasCapability} answers change during its lifetime.
+ *
+ * The {@link CapabilityDispatcher} remembers which of its providers support a capability on a side the first time it is
+ * asked, and only asks those afterwards. Providers implementing this interface are asked every time instead.
+ */
+public interface IDynamicCapabilityProvider extends ICapabilityProvider
+{
+}
@@ -19,42 +19,52 @@
 
 package net.minecraftforge.common.chunkio;
 
-import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.AnvilChunkLoader;
 import net.minecraft.world.gen.ChunkProviderServer;
 import net.minecraftforge.fml.common.FMLLog;
 
+/**
+ * Loads chunks on background threads.
+ *
+ * Pending loads are ordered by their distance to the closest player of their world, which is refreshed
+ * every {@link #REPRIORITIZE_INTERVAL} ticks as players move, and dimensions take turns (see {@link ChunkIOQueue}).
+ * Loads that lost all their callbacks are cancelled before they touch the disk, and finished loads are handed
+ * back to {@link #tick()} through a queue instead of polling every pending task.
+ */
 public class ChunkIOExecutor
 {
     private static final int BASE_THREADS = 1;
     private static final int PLAYERS_PER_THREAD = 50;
+    private static final int REPRIORITIZE_INTERVAL = 10;
 
     private static final Map<QueuedChunk, ChunkIOProvider> tasks = Maps.newConcurrentMap();
-    private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(BASE_THREADS, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
-        new LinkedBlockingQueue<Runnable>(),
-        new ThreadFactory()
-        {
-            private AtomicInteger count = new AtomicInteger(1);
-            @Override
-            public Thread newThread(Runnable r)
-            {
-                Thread thread = new Thread(r, "Chunk I/O Executor Thread-" + count.getAndIncrement());
-                thread.setDaemon(true);
-                return thread;
-            }
-        }
-    );
+    private static final ChunkIOQueue queue = new ChunkIOQueue();
+    private static final Queue<ChunkIOProvider> finished = new ConcurrentLinkedQueue<ChunkIOProvider>();
+    private static final List<Thread> workers = Lists.newArrayList();
+    private static final AtomicInteger threadCount = new AtomicInteger(1);
+    private static int targetThreads = 0;
+    private static final AtomicLong sequence = new AtomicLong(); // Dimensions ticking in parallel queue loads at the same time
+    private static int ticks = 0;
+
+    static
+    {
+        adjustPoolSize(0);
+    }
 
     //Load the chunk completely in this thread. Dequeue as needed...
     public static Chunk syncChunkLoad(World world, AnvilChunkLoader loader, ChunkProviderServer provider, int x, int z)
@@ -63,7 +73,7 @@ public class ChunkIOExecutor
         ChunkIOProvider task = tasks.remove(key); // Remove task because we will call the sync callbacks directly
         if (task != null)
         {
-            if (!pool.remove(task)) // If it wasn't in the pool, and run hasn't finished, then wait for the async thread.
+            if (!task.claim()) // If a worker already claimed it, and run hasn't finished, then wait for the async thread.
             {
                 synchronized(task)
                 {
@@ -102,10 +112,10 @@ public class ChunkIOExecutor
         ChunkIOProvider task = tasks.get(key);
         if (task == null)
         {
-            task = new ChunkIOProvider(key, loader, provider);
-            task.addCallback(runnable); // Add before calling execute for thread safety
+            task = new ChunkIOProvider(key, loader, provider, getPriority(key, getPlayerChunks(world)), sequence.getAndIncrement());
+            task.addCallback(runnable); // Add before queueing for thread safety
             tasks.put(key, task);
-            pool.execute(task);
+            queue.add(task);
         }
         else
         {
@@ -129,28 +139,107 @@ public class ChunkIOExecutor
         if (!task.hasCallback())
         {
             tasks.remove(key);
-            pool.remove(task);
+            task.cancel(); // Stays in the queue until a worker or the next reprioritization skips it
         }
     }
 
     public static void adjustPoolSize(int players)
     {
-        pool.setCorePoolSize(Math.max(BASE_THREADS, players / PLAYERS_PER_THREAD));
+        synchronized (workers)
+        {
+            targetThreads = Math.max(BASE_THREADS, players / PLAYERS_PER_THREAD);
+            while (workers.size() < targetThreads)
+            {
+                Thread thread = new Thread(ChunkIOExecutor::work, "Chunk I/O Executor Thread-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                workers.add(thread);
+                thread.start();
+            }
+        }
     }
 
     public static void tick()
     {
-        Iterator<ChunkIOProvider> itr = tasks.values().iterator();
-        while (itr.hasNext())
+        ChunkIOProvider task;
+        while ((task = finished.poll()) != null)
+        {
+            // Tasks that were dropped, or finished by syncChunkLoad, are no longer in the map
+            if (tasks.remove(task.getKey(), task) && task.hasCallback())
+            {
+                task.syncCallback();
+            }
+        }
+
+        if (++ticks % REPRIORITIZE_INTERVAL == 0 && !queue.isEmpty())
+        {
+            Map<World, int[]> players = new IdentityHashMap<World, int[]>();
+            queue.reprioritize(t -> getPriority(t.getKey(), players.computeIfAbsent(t.getKey().world, ChunkIOExecutor::getPlayerChunks)));
+        }
+    }
+
+    private static void work()
+    {
+        while (true)
         {
-            ChunkIOProvider task = itr.next();
-            if (task.runFinished())
+            synchronized (workers)
+            {
+                if (workers.size() > targetThreads)
+                {
+                    workers.remove(Thread.currentThread());
+                    return;
+                }
+            }
+
+            ChunkIOProvider task;
+            try
+            {
+                task = queue.take();
+            }
+            catch (InterruptedException e)
             {
-                if (task.hasCallback())
-                    task.syncCallback();
+                continue;
+            }
 
-                itr.remove();
+            try
+            {
+                task.run();
             }
+            catch (RuntimeException e)
+            {
+                FMLLog.log.error("Failed to load chunk async.", e);
+            }
+            finished.add(task);
+        }
+    }
+
+    /**
+     * Returns the chunk coordinates of every player in the world, as x, z pairs.
+     */
+    private static int[] getPlayerChunks(World world)
+    {
+        List<EntityPlayer> players = world.playerEntities;
+        int[] ret = new int[players.size() * 2];
+        for (int i = 0; i < players.size(); i++)
+        {
+            EntityPlayer player = players.get(i);
+            ret[i * 2] = MathHelper.floor(player.posX) >> 4;
+            ret[i * 2 + 1] = MathHelper.floor(player.posZ) >> 4;
+        }
+        return ret;
+    }
+
+    /**
+     * The squared chunk distance to the closest player, so chunks next to players load first.
+     */
+    private static int getPriority(QueuedChunk chunk, int[] players)
+    {
+        long ret = Integer.MAX_VALUE;
+        for (int i = 0; i < players.length; i += 2)
+        {
+            long dx = players[i] - chunk.x;
+            long dz = players[i + 1] - chunk.z;
+            ret = Math.min(ret, dx * dx + dz * dz);
         }
+        return (int)ret;
     }
 }
@@ -24,15 +24,21 @@ import net.minecraft.world.chunk.storage.AnvilChunkLoader;
 import net.minecraft.world.gen.ChunkProviderServer;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraftforge.common.ForgeChunkManager;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.ChunkDataEvent;
 import net.minecraftforge.fml.common.FMLLog;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ChunkIOProvider implements Runnable
 {
+    private static final int QUEUED = 0;
+    private static final int CLAIMED = 1;
+    private static final int CANCELLED = 2;
+
     private final QueuedChunk chunkInfo;
     private final AnvilChunkLoader loader;
     private final ChunkProviderServer provider;
@@ -40,13 +46,69 @@ class ChunkIOProvider implements Runnable
     private Chunk chunk;
     private NBTTagCompound nbt;
     private final ConcurrentLinkedQueue<Runnable> callbacks = new ConcurrentLinkedQueue<Runnable>();
-    private boolean ran = false;
+    private volatile boolean ran = false;
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+    private final long sequence;
+    private int priority;
 
     ChunkIOProvider(QueuedChunk chunk, AnvilChunkLoader loader, ChunkProviderServer provider)
+    {
+        this(chunk, loader, provider, 0, 0);
+    }
+
+    ChunkIOProvider(QueuedChunk chunk, AnvilChunkLoader loader, ChunkProviderServer provider, int priority, long sequence)
     {
         this.chunkInfo = chunk;
         this.loader = loader;
         this.provider = provider;
+        this.priority = priority;
+        this.sequence = sequence;
+    }
+
+    QueuedChunk getKey()
+    {
+        return this.chunkInfo;
+    }
+
+    /**
+     * Lower values are loaded first. Only changed by {@link ChunkIOQueue} while it holds its lock.
+     */
+    int getPriority()
+    {
+        return this.priority;
+    }
+
+    void setPriority(int priority)
+    {
+        this.priority = priority;
+    }
+
+    long getSequence()
+    {
+        return this.sequence;
+    }
+
+    /**
+     * Takes the task out of the queue for the calling thread, which then has to {@link #run()} it.
+     *
+     * @return false if another thread already claimed it, or it was cancelled
+     */
+    boolean claim()
+    {
+        return this.state.compareAndSet(QUEUED, CLAIMED);
+    }
+
+    /**
+     * Makes sure the task is never loaded, unless it was already claimed.
+     */
+    boolean cancel()
+    {
+        return this.state.compareAndSet(QUEUED, CANCELLED);
+    }
+
+    boolean isQueued()
+    {
+        return this.state.get() == QUEUED;
     }
 
     public void addCallback(Runnable callback)
@@ -63,24 +125,29 @@ class ChunkIOProvider implements Runnable
     {
         synchronized(this)
         {
-            Object[] data = null;
             try
             {
-                data = this.loader.loadChunk__Async(chunkInfo.world, chunkInfo.x, chunkInfo.z);
+                Object[] data = ForgeChunkManager.loadDormantChunk__Async(chunkInfo.world, this.loader, chunkInfo.x, chunkInfo.z);
+                if (data == null)
+                {
+                    data = this.loader.loadChunk__Async(chunkInfo.world, chunkInfo.x, chunkInfo.z);
+                }
+                if (data != null)
+                {
+                    this.nbt   = (NBTTagCompound)data[1];
+                    this.chunk = (Chunk)data[0];
+                }
             }
             catch (IOException e)
             {
                 FMLLog.log.error("Failed to load chunk async.", e);
             }
-
-            if (data != null)
+            finally
             {
-                this.nbt   = (NBTTagCompound)data[1];
-                this.chunk = (Chunk)data[0];
+                // Always wake up syncChunkLoad, even if the loader blew up
+                this.ran = true;
+                this.notifyAll();
             }
-
-            this.ran = true;
-            this.notifyAll();
         }
     }
 
@@ -0,0 +1,150 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Pending chunk loads, with one priority queue per dimension.
+ *
+ * Within a dimension the chunk closest to a player is loaded first. Dimensions take turns,
+ * so a dimension with a huge backlog can not starve loads in another one.
+ * Tasks that were claimed or cancelled elsewhere are dropped when they reach the head of their queue.
+ */
+class ChunkIOQueue
+{
+    private static final Comparator<ChunkIOProvider> ORDER = Comparator.comparingInt(ChunkIOProvider::getPriority).thenComparingLong(ChunkIOProvider::getSequence);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<Integer, PriorityQueue<ChunkIOProvider>> queues = new HashMap<Integer, PriorityQueue<ChunkIOProvider>>();
+    /** Dimensions with pending tasks, in the order they get their next turn. */
+    private final ArrayDeque<Integer> turns = new ArrayDeque<Integer>();
+
+    void add(ChunkIOProvider task)
+    {
+        Integer dim = task.getKey().world.provider.getDimension();
+        lock.lock();
+        try
+        {
+            PriorityQueue<ChunkIOProvider> queue = queues.computeIfAbsent(dim, k -> new PriorityQueue<ChunkIOProvider>(ORDER));
+            if (queue.isEmpty())
+            {
+                turns.add(dim);
+                notEmpty.signal();
+            }
+            queue.add(task);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the next task that is still queued, and claims it for the calling thread.
+     */
+    ChunkIOProvider take() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+        try
+        {
+            while (true)
+            {
+                while (turns.isEmpty())
+                {
+                    notEmpty.await();
+                }
+                Integer dim = turns.poll();
+                PriorityQueue<ChunkIOProvider> queue = queues.get(dim);
+                ChunkIOProvider task = queue.poll();
+                if (!queue.isEmpty())
+                {
+                    turns.add(dim);
+                }
+                if (task.claim())
+                {
+                    return task;
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty()
+    {
+        lock.lock();
+        try
+        {
+            return turns.isEmpty();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recomputes the priority of every queued task, dropping the ones that no longer need to run.
+     */
+    void reprioritize(ToIntFunction<ChunkIOProvider> priority)
+    {
+        lock.lock();
+        try
+        {
+            turns.clear();
+            for (Map.Entry<Integer, PriorityQueue<ChunkIOProvider>> entry : queues.entrySet())
+            {
+                PriorityQueue<ChunkIOProvider> queue = entry.getValue();
+                List<ChunkIOProvider> pending = new ArrayList<ChunkIOProvider>(queue.size());
+                for (ChunkIOProvider task : queue)
+                {
+                    if (task.isQueued())
+                    {
+                        task.setPriority(priority.applyAsInt(task));
+                        pending.add(task);
+                    }
+                }
+                queue.clear();
+                queue.addAll(pending);
+                if (!queue.isEmpty())
+                {
+                    turns.add(entry.getKey());
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
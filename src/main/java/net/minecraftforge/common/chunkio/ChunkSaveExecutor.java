@@ -0,0 +1,450 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.block.Block;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.BitArray;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.AnvilChunkLoader;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraft.world.storage.ThreadedFileIOBase;
+import net.minecraftforge.common.ForgeChunkManager;
+import net.minecraftforge.common.ForgeModContainer;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.fml.common.FMLLog;
+
+/**
+ * Saves chunks without encoding their block sections on the server thread.
+ *
+ * Enabled by the {@code asyncChunkSaving} config option. The server thread still writes entities, tile entities,
+ * scheduled ticks and capabilities, through the same {@link AnvilChunkLoader#writeChunkToNBT} as the vanilla path.
+ * Block sections are only snapshotted there, in their compact network format, and turned into NBT on a worker.
+ * {@link ChunkDataEvent.Save} is still posted on the server thread, before the save is handed off, with the tag
+ * that is missing only the "Sections" list. Changes listeners make to it are saved along with the sections.
+ * The finished tag is then handed to the regular {@link ThreadedFileIOBase} queue for compression and writing.
+ *
+ * At most {@code asyncChunkSaveLimit} saves are in flight. Past that, saves are finished on the server thread,
+ * exactly like the vanilla path, so memory use stays bounded while autosaves fall behind.
+ * Loading a chunk that is still being saved waits for its save, so it never reads stale data from disk.
+ * When a chunk is saved again before an older save finished, only the newest one is written and stored
+ * in the {@link DormantChunkStore}.
+ */
+public class ChunkSaveExecutor
+{
+    private static final AtomicInteger threadCount = new AtomicInteger(1);
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        r -> {
+            Thread thread = new Thread(r, "Chunk Save Thread-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    );
+
+    private static final Map<Key, SaveTask> saving = new ConcurrentHashMap<Key, SaveTask>();
+    private static final AtomicInteger queued = new AtomicInteger();
+    private static final AtomicInteger peakQueued = new AtomicInteger();
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final AtomicLong saturated = new AtomicLong();
+    private static final AtomicLong serverThreadNanos = new AtomicLong();
+    private static final AtomicLong workerNanos = new AtomicLong();
+    private static final AtomicBoolean warned = new AtomicBoolean();
+
+    /**
+     * Called from {@link AnvilChunkLoader#saveChunk(World, Chunk)} before the chunk NBT is written.
+     * Returns false if the chunk has to be saved the vanilla way.
+     */
+    public static boolean saveChunk(AnvilChunkLoader loader, World world, Chunk chunk, NBTTagCompound root)
+    {
+        if (!ForgeModContainer.asyncChunkSaving)
+        {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        loader.writeChunkToNBT(chunk, world, root.getCompoundTag("Level"), false);
+        Section[] sections = snapshotSections(chunk, world.provider.hasSkyLight());
+        MinecraftForge.EVENT_BUS.post(new ChunkDataEvent.Save(chunk, root));
+        World dormant = ForgeChunkManager.claimDormantChunk(chunk) ? world : null; // Stored once the sections are written
+
+        Key key = new Key(loader, chunk.getPos());
+        SaveTask task = new SaveTask(key, root, sections, dormant);
+        saving.put(key, task); // Replaces an older save of the same chunk, which will then not be written
+
+        int inFlight = queued.incrementAndGet();
+        if (inFlight > ForgeModContainer.asyncChunkSaveLimit)
+        {
+            queued.decrementAndGet();
+            saturated.incrementAndGet();
+            if (warned.compareAndSet(false, true))
+            {
+                FMLLog.log.warn("More than {} chunk saves are in flight, finishing the rest on the server thread. Consider raising asyncChunkSaveLimit.", ForgeModContainer.asyncChunkSaveLimit);
+            }
+            task.run();
+        }
+        else
+        {
+            peakQueued.accumulateAndGet(inFlight, Math::max);
+            submitted.incrementAndGet();
+            // Keeps ThreadedFileIOBase.waitForFinish from returning before this save was written
+            ThreadedFileIOBase.getThreadedIOInstance().queueIO(() ->
+            {
+                task.await();
+                return false;
+            });
+            pool.execute(() ->
+            {
+                try
+                {
+                    task.run(); // Does nothing if a load already wrote it
+                }
+                finally
+                {
+                    queued.decrementAndGet();
+                }
+            });
+        }
+        serverThreadNanos.addAndGet(System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Called before a chunk is read, finishes a save of that chunk that is still in flight.
+     */
+    public static void awaitSave(AnvilChunkLoader loader, ChunkPos pos)
+    {
+        if (saving.isEmpty())
+        {
+            return;
+        }
+        SaveTask task = saving.get(new Key(loader, pos));
+        if (task == null)
+        {
+            return;
+        }
+        task.await();
+    }
+
+    public static boolean isSaving(AnvilChunkLoader loader, int x, int z)
+    {
+        return !saving.isEmpty() && saving.containsKey(new Key(loader, new ChunkPos(x, z)));
+    }
+
+    /**
+     * The number of saves that are waiting for a worker, or being encoded by one.
+     */
+    public static int getQueued()
+    {
+        return queued.get();
+    }
+
+    public static int getPeakQueued()
+    {
+        return peakQueued.get();
+    }
+
+    /**
+     * The number of saves handed to the workers so far.
+     */
+    public static long getSubmitted()
+    {
+        return submitted.get();
+    }
+
+    /**
+     * The number of saves finished on the server thread because too many were already in flight.
+     */
+    public static long getSaturated()
+    {
+        return saturated.get();
+    }
+
+    public static long getServerThreadNanos()
+    {
+        return serverThreadNanos.get();
+    }
+
+    public static long getWorkerNanos()
+    {
+        return workerNanos.get();
+    }
+
+    private static Section[] snapshotSections(Chunk chunk, boolean hasSkyLight)
+    {
+        ExtendedBlockStorage[] storages = chunk.getBlockStorageArray();
+        int count = 0;
+        for (ExtendedBlockStorage storage : storages)
+        {
+            if (storage != Chunk.NULL_BLOCK_STORAGE)
+            {
+                count++;
+            }
+        }
+
+        Section[] sections = new Section[count];
+        PacketBuffer buf = new PacketBuffer(Unpooled.buffer());
+        int i = 0;
+        for (ExtendedBlockStorage storage : storages)
+        {
+            if (storage != Chunk.NULL_BLOCK_STORAGE)
+            {
+                buf.clear();
+                storage.getData().write(buf); // The palette and packed states, copied in bulk
+                byte[] states = new byte[buf.readableBytes()];
+                buf.readBytes(states);
+                byte[] blockLight = storage.getBlockLight().getData().clone();
+                byte[] skyLight = hasSkyLight ? storage.getSkyLight().getData().clone() : new byte[blockLight.length];
+                sections[i++] = new Section(storage.getYLocation(), states, blockLight, skyLight);
+            }
+        }
+        return sections;
+    }
+
+    private static class Section
+    {
+        private final int yLocation;
+        private final byte[] states;
+        private final byte[] blockLight;
+        private final byte[] skyLight;
+
+        private Section(int yLocation, byte[] states, byte[] blockLight, byte[] skyLight)
+        {
+            this.yLocation = yLocation;
+            this.states = states;
+            this.blockLight = blockLight;
+            this.skyLight = skyLight;
+        }
+
+        /**
+         * Decodes the snapshot, and writes it like {@link net.minecraft.world.chunk.BlockStateContainer#getDataForNBT}.
+         */
+        private NBTTagCompound write()
+        {
+            PacketBuffer buf = new PacketBuffer(Unpooled.wrappedBuffer(states));
+            int bits = buf.readUnsignedByte();
+            int[] palette = null;
+            if (bits <= 8)
+            {
+                palette = new int[buf.readVarInt()];
+                for (int i = 0; i < palette.length; i++)
+                {
+                    palette[i] = buf.readVarInt();
+                }
+            }
+            else
+            {
+                buf.readVarInt(); // The registry palette has no entries
+            }
+            BitArray storage = new BitArray(bits, 4096);
+            long[] longs = storage.getBackingLongArray();
+            int length = buf.readVarInt();
+            if (length != longs.length)
+            {
+                throw new IllegalStateException("Invalid block state snapshot, expected " + longs.length + " longs, got " + length);
+            }
+            for (int i = 0; i < length; i++)
+            {
+                longs[i] = buf.readLong();
+            }
+
+            byte[] blocks = new byte[4096];
+            NibbleArray data = new NibbleArray();
+            NibbleArray add = null;
+            for (int i = 0; i < 4096; i++)
+            {
+                int id = getStateId(storage.getAt(i), palette);
+                int x = i & 15;
+                int y = i >> 8 & 15;
+                int z = i >> 4 & 15;
+                if ((id >> 12 & 15) != 0)
+                {
+                    if (add == null)
+                    {
+                        add = new NibbleArray();
+                    }
+                    add.set(x, y, z, id >> 12 & 15);
+                }
+                blocks[i] = (byte)(id >> 4 & 255);
+                data.set(x, y, z, id & 15);
+            }
+
+            NBTTagCompound tag = new NBTTagCompound();
+            tag.setByte("Y", (byte)(yLocation >> 4 & 255));
+            tag.setByteArray("Blocks", blocks);
+            tag.setByteArray("Data", data.getData());
+            if (add != null)
+            {
+                tag.setByteArray("Add", add.getData());
+            }
+            tag.setByteArray("BlockLight", blockLight);
+            tag.setByteArray("SkyLight", skyLight);
+            return tag;
+        }
+
+        /**
+         * Unknown states are written as air, like {@code BlockStateContainer.get} does.
+         */
+        private static int getStateId(int value, int[] palette)
+        {
+            if (palette != null)
+            {
+                return value < palette.length ? palette[value] : 0;
+            }
+            return Block.BLOCK_STATE_IDS.getByValue(value) == null ? 0 : value;
+        }
+    }
+
+    private static class SaveTask implements Runnable
+    {
+        private final Key key;
+        private final NBTTagCompound root;
+        private final Section[] sections;
+        @Nullable
+        private final World dormant;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private SaveTask(Key key, NBTTagCompound root, Section[] sections, @Nullable World dormant)
+        {
+            this.key = key;
+            this.root = root;
+            this.sections = sections;
+            this.dormant = dormant;
+        }
+
+        @Override
+        public void run()
+        {
+            if (claimed.compareAndSet(false, true))
+            {
+                write();
+            }
+        }
+
+        /**
+         * Writes the chunk on the calling thread, or waits for the thread that already started to.
+         */
+        private void await()
+        {
+            if (claimed.compareAndSet(false, true))
+            {
+                write();
+                return;
+            }
+            try
+            {
+                finished.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write()
+        {
+            long start = System.nanoTime();
+            try
+            {
+                NBTTagList list = new NBTTagList();
+                for (Section section : sections)
+                {
+                    list.appendTag(section.write());
+                }
+                root.getCompoundTag("Level").setTag("Sections", list);
+                // Only the newest save of a chunk is written and stored, and it stays visible to loads until the loader has it.
+                // Both happen while the save of the chunk is locked, so an older save finishing later can not overwrite them.
+                saving.computeIfPresent(key, (k, task) ->
+                {
+                    if (task != this)
+                    {
+                        return task;
+                    }
+                    if (dormant != null)
+                    {
+                        DormantChunkStore.putLater(dormant, ChunkPos.asLong(key.pos.x, key.pos.z), root);
+                    }
+                    key.loader.addChunkToPending(key.pos, root);
+                    return null;
+                });
+            }
+            catch (RuntimeException e)
+            {
+                saving.remove(key, this);
+                FMLLog.log.error("Failed to save chunk", e);
+            }
+            finally
+            {
+                workerNanos.addAndGet(System.nanoTime() - start);
+                finished.countDown();
+            }
+        }
+    }
+
+    private static class Key
+    {
+        private final AnvilChunkLoader loader;
+        private final ChunkPos pos;
+
+        private Key(AnvilChunkLoader loader, ChunkPos pos)
+        {
+            this.loader = loader;
+            this.pos = pos;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return pos.hashCode() * 31 + System.identityHashCode(loader);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key)obj;
+            return loader == other.loader && pos.equals(other.pos);
+        }
+    }
+}
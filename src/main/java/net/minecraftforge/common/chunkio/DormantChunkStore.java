@@ -0,0 +1,386 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.ThreadedFileIOBase;
+import net.minecraftforge.common.ForgeChunkManager;
+import net.minecraftforge.fml.common.FMLLog;
+
+/**
+ * The dormant chunk cache of {@link ForgeChunkManager}. Holds the compressed NBT of recently unloaded chunks outside of the heap,
+ * so loading them again skips the region file.
+ *
+ * The data lives in 4 KiB blocks of a memory mapped temporary file, which grows in 64 MiB segments up to the configured size.
+ * An entry may use any free blocks, so the arena never fragments. When it is full, or holds the configured number of chunks,
+ * the least recently stored or loaded chunks are dropped. They are still saved to the region file, so dropping one only costs a disk read.
+ *
+ * Chunks are compressed on the thread that stores them, so the server thread hands them over with {@link #putLater}.
+ */
+public class DormantChunkStore
+{
+    private static final int BLOCK_SHIFT = 12;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int SEGMENT_SHIFT = 14; // Blocks per segment
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private static final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(256, 0.75f, true); // Least recently used first
+    private static final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    private static final IntArrayList freeBlocks = new IntArrayList();
+    private static final Map<Key, NBTTagCompound> pending = new ConcurrentHashMap<Key, NBTTagCompound>(); // Not compressed yet
+    private static RandomAccessFile file;
+    private static int maxEntries;
+    private static int maxBlocks;
+    private static int usedBlocks;
+    private static long usedBytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    /**
+     * Called when the chunk loading config is read. Takes effect for chunks stored afterwards.
+     */
+    public static synchronized void configure(int maxEntries, long maxBytes)
+    {
+        DormantChunkStore.maxEntries = maxEntries;
+        DormantChunkStore.maxBlocks = (int)Math.min(Integer.MAX_VALUE, maxBytes >> BLOCK_SHIFT);
+    }
+
+    /**
+     * Stores the root NBT of a chunk that is being unloaded, replacing an older copy. Safe to call from any thread.
+     */
+    public static void put(World world, long pos, NBTTagCompound root)
+    {
+        store(new Key(world, pos), root, null);
+    }
+
+    /**
+     * Stores the root NBT of a chunk that is being unloaded from the {@link ThreadedFileIOBase} thread, which also writes it
+     * to the region file. The tag must not be changed afterwards. Until it is compressed, {@link #get} returns a copy of it.
+     */
+    public static void putLater(World world, long pos, NBTTagCompound root)
+    {
+        Key key = new Key(world, pos);
+        pending.put(key, root);
+        ThreadedFileIOBase.getThreadedIOInstance().queueIO(() ->
+        {
+            store(key, root, root);
+            return false;
+        });
+    }
+
+    /**
+     * @param expected if not null, the tag is only stored while it is still the pending one for the key
+     */
+    private static void store(Key key, NBTTagCompound root, @Nullable NBTTagCompound expected)
+    {
+        if (expected == null)
+        {
+            pending.remove(key); // Superseded by this newer copy
+        }
+        else if (pending.get(key) != expected)
+        {
+            return; // Replaced by a newer copy
+        }
+        byte[] data;
+        try
+        {
+            data = compress(root);
+        }
+        catch (IOException e)
+        {
+            FMLLog.log.error("Failed to store dormant chunk {}, {}", (int)key.pos, (int)(key.pos >> 32), e);
+            pending.remove(key, root);
+            remove(key);
+            return;
+        }
+        synchronized (DormantChunkStore.class)
+        {
+            if (expected != null && !pending.remove(key, expected))
+            {
+                return;
+            }
+            Entry old = entries.remove(key);
+            if (old != null)
+            {
+                free(old);
+            }
+            int blocks = (data.length + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+            if (blocks > maxBlocks || maxEntries <= 0)
+            {
+                return;
+            }
+            while (!entries.isEmpty() && (entries.size() >= maxEntries || !reserve(blocks)))
+            {
+                Iterator<Entry> itr = entries.values().iterator();
+                free(itr.next());
+                itr.remove();
+                evictions++;
+            }
+            if (!reserve(blocks))
+            {
+                return;
+            }
+            Entry entry = new Entry(data.length, new int[blocks]);
+            for (int i = 0; i < blocks; i++)
+            {
+                int block = freeBlocks.popInt();
+                entry.blocks[i] = block;
+                MappedByteBuffer segment = segments.get(block >> SEGMENT_SHIFT);
+                segment.position((block & SEGMENT_MASK) << BLOCK_SHIFT);
+                segment.put(data, i << BLOCK_SHIFT, Math.min(BLOCK_SIZE, data.length - (i << BLOCK_SHIFT)));
+            }
+            entries.put(key, entry);
+            usedBlocks += blocks;
+            usedBytes += data.length;
+        }
+    }
+
+    /**
+     * Returns a new copy of the root NBT of the chunk, or null if it is not stored. The chunk stays in the store as the most
+     * recently used one, since the copy is only replaced once it is unloaded and saved again.
+     */
+    @Nullable
+    public static NBTTagCompound get(World world, long pos)
+    {
+        Key key = new Key(world, pos);
+        byte[] data;
+        synchronized (DormantChunkStore.class)
+        {
+            NBTTagCompound root = pending.get(key);
+            if (root != null)
+            {
+                hits++;
+                return root.copy(); // Still being written to the region file
+            }
+            Entry entry = entries.get(key);
+            if (entry == null)
+            {
+                misses++;
+                return null;
+            }
+            hits++;
+            data = new byte[entry.length];
+            for (int i = 0; i < entry.blocks.length; i++)
+            {
+                int block = entry.blocks[i];
+                MappedByteBuffer segment = segments.get(block >> SEGMENT_SHIFT);
+                segment.position((block & SEGMENT_MASK) << BLOCK_SHIFT);
+                segment.get(data, i << BLOCK_SHIFT, Math.min(BLOCK_SIZE, data.length - (i << BLOCK_SHIFT)));
+            }
+        }
+        try
+        {
+            return CompressedStreamTools.read(new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data))));
+        }
+        catch (IOException e)
+        {
+            FMLLog.log.error("Failed to read dormant chunk {}, {}, loading it from the region file", (int)pos, (int)(pos >> 32), e);
+            return null;
+        }
+    }
+
+    public static synchronized void removeWorld(World world)
+    {
+        pending.keySet().removeIf(key -> key.world == world);
+        for (Iterator<Map.Entry<Key, Entry>> itr = entries.entrySet().iterator(); itr.hasNext();)
+        {
+            Map.Entry<Key, Entry> entry = itr.next();
+            if (entry.getKey().world == world)
+            {
+                free(entry.getValue());
+                itr.remove();
+            }
+        }
+    }
+
+    public static synchronized int getEntries()
+    {
+        return entries.size();
+    }
+
+    /**
+     * The compressed size of all stored chunks.
+     */
+    public static synchronized long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    /**
+     * The size of the memory mapped arena, which is never shrunk.
+     */
+    public static synchronized long getMappedBytes()
+    {
+        return (long)segments.size() << (SEGMENT_SHIFT + BLOCK_SHIFT);
+    }
+
+    public static synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public static synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    public static synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    private static synchronized void remove(Key key)
+    {
+        Entry entry = entries.remove(key);
+        if (entry != null)
+        {
+            free(entry);
+        }
+    }
+
+    private static void free(Entry entry)
+    {
+        freeBlocks.addElements(freeBlocks.size(), entry.blocks);
+        usedBlocks -= entry.blocks.length;
+        usedBytes -= entry.length;
+    }
+
+    /**
+     * Maps new segments until the given number of blocks is free, as far as the configured size allows.
+     */
+    private static boolean reserve(int blocks)
+    {
+        if (usedBlocks + blocks > maxBlocks)
+        {
+            return false; // The size may have been lowered since the arena was mapped
+        }
+        while (freeBlocks.size() < blocks)
+        {
+            int first = segments.size() << SEGMENT_SHIFT;
+            if (first >= maxBlocks)
+            {
+                return false;
+            }
+            try
+            {
+                if (file == null)
+                {
+                    File tmp = File.createTempFile("forge-dormant-chunks", ".bin");
+                    tmp.deleteOnExit();
+                    file = new RandomAccessFile(tmp, "rw");
+                }
+                segments.add(file.getChannel().map(FileChannel.MapMode.READ_WRITE, (long)first << BLOCK_SHIFT, (long)BLOCK_SIZE << SEGMENT_SHIFT));
+            }
+            catch (IOException e)
+            {
+                FMLLog.log.error("Failed to grow the dormant chunk cache, it stays at {} MiB", getMappedBytes() >> 20, e);
+                maxBlocks = first;
+                return false;
+            }
+            int last = Math.min(first + (1 << SEGMENT_SHIFT), maxBlocks);
+            for (int block = last - 1; block >= first; block--)
+            {
+                freeBlocks.add(block);
+            }
+        }
+        return true;
+    }
+
+    private static byte[] compress(NBTTagCompound root) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BLOCK_SIZE * 4);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater)))
+        {
+            CompressedStreamTools.write(root, out);
+        }
+        finally
+        {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class Key
+    {
+        private final World world;
+        private final long pos;
+
+        private Key(World world, long pos)
+        {
+            this.world = world;
+            this.pos = pos;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key)obj;
+            return world == other.world && pos == other.pos;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(world) * 31 + (int)(pos ^ pos >>> 32);
+        }
+    }
+
+    private static class Entry
+    {
+        private final int length;
+        private final int[] blocks;
+
+        private Entry(int length, int[] blocks)
+        {
+            this.length = length;
+            this.blocks = blocks;
+        }
+    }
+}
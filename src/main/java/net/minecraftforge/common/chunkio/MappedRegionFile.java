@@ -0,0 +1,344 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+
+/**
+ * A region file that several threads can read and write at once.
+ *
+ * Uses the same format as {@link net.minecraft.world.chunk.storage.RegionFile}: an 8 KiB header holding the location
+ * and timestamp of every chunk, followed by 4 KiB sectors holding the compressed chunks. The header is memory mapped,
+ * and sectors are accessed with positional channel I/O, so no thread has to move a shared file pointer.
+ *
+ * Chunks are guarded by striped read/write locks, so any number of reads and writes to different stripes run in parallel.
+ * Only sector allocation locks the whole file. The file grows by {@link #GROWTH_SECTORS} sectors at a time,
+ * instead of once per write, and is trimmed back to its used sectors when closed.
+ */
+class MappedRegionFile
+{
+    private static final int SECTOR_BYTES = 4096;
+    private static final int HEADER_BYTES = SECTOR_BYTES * 2;
+    private static final int GROWTH_SECTORS = 64;
+    private static final int STRIPES = 32;
+    private static final byte VERSION_GZIP = 1;
+    private static final byte VERSION_DEFLATE = 2;
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int[] offsets = new int[1024];
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[STRIPES];
+    private final BitSet usedSectors = new BitSet();
+    private final int initialSectors;
+    private int fileSectors;
+    private volatile boolean closed = false;
+
+    MappedRegionFile(File file) throws IOException
+    {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_BYTES)
+        {
+            writeFully(ByteBuffer.allocate((int)(HEADER_BYTES - size)), size);
+            size = HEADER_BYTES;
+        }
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        this.fileSectors = (int)((size + SECTOR_BYTES - 1) / SECTOR_BYTES);
+        this.initialSectors = fileSectors;
+
+        usedSectors.set(0, 2);
+        for (int i = 0; i < offsets.length; i++)
+        {
+            int offset = header.getInt(i * 4);
+            offsets[i] = offset;
+            // Like vanilla, sectors of chunks that point past the end of the file are not reserved
+            if (offset != 0 && (offset >> 8) + (offset & 255) <= fileSectors)
+            {
+                usedSectors.set(offset >> 8, (offset >> 8) + (offset & 255));
+            }
+        }
+        for (int i = 0; i < STRIPES; i++)
+        {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Returns a stream over the decompressed chunk, or null if the chunk was never saved or is corrupt.
+     *
+     * @throws ClosedChannelException if this file was closed, the caller should reopen it
+     */
+    @Nullable
+    DataInputStream read(int x, int z) throws IOException
+    {
+        int index = x + z * 32;
+        byte version;
+        byte[] data;
+        Lock lock = locks[index % STRIPES].readLock();
+        lock.lock();
+        try
+        {
+            checkOpen();
+            int offset = offsets[index];
+            if (offset == 0)
+            {
+                return null;
+            }
+            long position = (long)(offset >> 8) * SECTOR_BYTES;
+            ByteBuffer prefix = ByteBuffer.allocate(5);
+            readFully(prefix, position);
+            int length = prefix.getInt(0);
+            if (length <= 0 || length > (offset & 255) * SECTOR_BYTES)
+            {
+                return null;
+            }
+            version = prefix.get(4);
+            data = new byte[length - 1];
+            readFully(ByteBuffer.wrap(data), position + 5);
+        }
+        catch (EOFException e)
+        {
+            return null; // Points past the end of the file
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        // Decompressed by the caller, outside of the lock
+        if (version == VERSION_GZIP)
+        {
+            return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(data))));
+        }
+        if (version == VERSION_DEFLATE)
+        {
+            return new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(data))));
+        }
+        return null;
+    }
+
+    /**
+     * Writes an already deflated chunk.
+     *
+     * @throws ClosedChannelException if this file was closed, the caller should reopen it
+     */
+    void write(int x, int z, byte[] data, int length) throws IOException
+    {
+        int sectors = (length + 5 + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        if (sectors >= 256)
+        {
+            throw new IOException("Chunk " + x + ", " + z + " in " + file + " is too large to save (" + length + " bytes)");
+        }
+        ByteBuffer buf = ByteBuffer.allocate(length + 5);
+        buf.putInt(length + 1).put(VERSION_DEFLATE).put(data, 0, length).flip();
+
+        int index = x + z * 32;
+        Lock lock = locks[index % STRIPES].writeLock();
+        lock.lock();
+        try
+        {
+            checkOpen();
+            int old = offsets[index];
+            int oldSector = old >> 8;
+            int oldCount = old & 255;
+            boolean reserved = old != 0 && oldSector >= 2 && oldSector + oldCount <= fileSectors;
+            int sector = reserved && oldCount == sectors ? oldSector : allocate(sectors);
+            writeFully(buf, (long)sector * SECTOR_BYTES);
+            offsets[index] = sector << 8 | sectors;
+            header.putInt(index * 4, offsets[index]);
+            header.putInt(SECTOR_BYTES + index * 4, (int)(System.currentTimeMillis() / 1000L));
+            if (reserved && sector != oldSector)
+            {
+                free(oldSector, oldCount);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    boolean chunkExists(int x, int z) throws IOException
+    {
+        int index = x + z * 32;
+        Lock lock = locks[index % STRIPES].readLock();
+        lock.lock();
+        try
+        {
+            checkOpen();
+            return offsets[index] != 0;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for all running reads and writes, then trims the sectors this file grew by but never used.
+     */
+    void close() throws IOException
+    {
+        for (ReentrantReadWriteLock lock : locks)
+        {
+            lock.writeLock().lock();
+        }
+        try
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            try
+            {
+                synchronized (this)
+                {
+                    int used = Math.max(initialSectors, usedSectors.length());
+                    if (used < fileSectors)
+                    {
+                        channel.truncate((long)used * SECTOR_BYTES);
+                    }
+                }
+            }
+            finally
+            {
+                // The channel may already be closed by an interrupt, the mapping is released anyway
+                unmap(header);
+                channel.close();
+            }
+        }
+        finally
+        {
+            for (ReentrantReadWriteLock lock : locks)
+            {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Whether {@link #close()} was called. The channel can also be closed by interrupting a thread that uses it,
+     * which leaves this file unusable without being marked as closed.
+     */
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    private void checkOpen() throws ClosedChannelException
+    {
+        if (closed)
+        {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Finds the first run of free sectors that is long enough, growing the file if there is none.
+     */
+    private synchronized int allocate(int count) throws IOException
+    {
+        int start = usedSectors.nextClearBit(2);
+        while (true)
+        {
+            int end = usedSectors.nextSetBit(start);
+            if (end == -1 || end - start >= count)
+            {
+                break;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+        if (start + count > fileSectors)
+        {
+            int sectors = Math.max(start + count, fileSectors + GROWTH_SECTORS);
+            writeFully(ByteBuffer.allocate(1), (long)sectors * SECTOR_BYTES - 1);
+            fileSectors = sectors;
+        }
+        usedSectors.set(start, start + count);
+        return start;
+    }
+
+    private synchronized void free(int sector, int count)
+    {
+        usedSectors.clear(sector, sector + count);
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException
+    {
+        while (buf.hasRemaining())
+        {
+            int read = channel.read(buf, position + buf.position());
+            if (read < 0)
+            {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException
+    {
+        while (buf.hasRemaining())
+        {
+            channel.write(buf, position + buf.position());
+        }
+    }
+
+    /**
+     * Releases the mapping right away instead of when it is garbage collected, so the file can be deleted on Windows.
+     */
+    private static void unmap(MappedByteBuffer buffer)
+    {
+        try
+        {
+            Method cleaner = buffer.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            Object clean = cleaner.invoke(buffer);
+            if (clean != null)
+            {
+                clean.getClass().getMethod("clean").invoke(clean);
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            // Not available on this JVM, the garbage collector will release it
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.common.ForgeModContainer;
+import net.minecraftforge.fml.common.FMLLog;
+
+/**
+ * The open {@link MappedRegionFile}s, used in place of {@link net.minecraft.world.chunk.storage.RegionFileCache}
+ * when the {@code mappedRegionFiles} config option is enabled.
+ *
+ * Unlike the vanilla cache, looking up an open region does not lock the whole cache, and neither does reading or
+ * writing a chunk. Threads still using a region after it was closed by {@link #clear()} transparently reopen it.
+ * A region whose channel was closed by interrupting a thread that used it is dropped from the cache, and that
+ * operation fails.
+ */
+public class MappedRegionFileCache
+{
+    private static final int MAX_OPEN = 256;
+    private static final Map<File, MappedRegionFile> regions = new ConcurrentHashMap<File, MappedRegionFile>();
+
+    public static boolean isEnabled()
+    {
+        return ForgeModContainer.mappedRegionFiles;
+    }
+
+    @Nullable
+    public static DataInputStream getChunkInputStream(File worldDir, int x, int z)
+    {
+        while (true)
+        {
+            MappedRegionFile region = null;
+            try
+            {
+                region = getRegion(worldDir, x, z, false);
+                return region == null ? null : region.read(x & 31, z & 31);
+            }
+            catch (ClosedChannelException e)
+            {
+                if (!shouldRetry(region, e))
+                {
+                    FMLLog.log.error("Failed to read chunk {}, {} from {}", x, z, worldDir, e);
+                    return null;
+                }
+            }
+            catch (IOException e)
+            {
+                FMLLog.log.error("Failed to read chunk {}, {} from {}", x, z, worldDir, e);
+                return null;
+            }
+        }
+    }
+
+    public static DataOutputStream getChunkOutputStream(File worldDir, int x, int z)
+    {
+        return new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new ChunkBuffer(worldDir, x, z))));
+    }
+
+    public static boolean chunkExists(File worldDir, int x, int z)
+    {
+        while (true)
+        {
+            MappedRegionFile region = null;
+            try
+            {
+                region = getRegion(worldDir, x, z, false);
+                return region != null && region.chunkExists(x & 31, z & 31);
+            }
+            catch (ClosedChannelException e)
+            {
+                if (!shouldRetry(region, e))
+                {
+                    FMLLog.log.error("Failed to open region for chunk {}, {} in {}", x, z, worldDir, e);
+                    return false;
+                }
+            }
+            catch (IOException e)
+            {
+                FMLLog.log.error("Failed to open region for chunk {}, {} in {}", x, z, worldDir, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Closes all open regions. Called with {@link net.minecraft.world.chunk.storage.RegionFileCache#clearRegionFileReferences()}.
+     */
+    public static synchronized void clear()
+    {
+        List<MappedRegionFile> open = new ArrayList<MappedRegionFile>(regions.values());
+        regions.clear();
+        for (MappedRegionFile region : open)
+        {
+            try
+            {
+                region.close();
+            }
+            catch (IOException e)
+            {
+                FMLLog.log.error("Failed to close region file", e);
+            }
+        }
+    }
+
+    private static void write(File worldDir, int x, int z, byte[] data, int length) throws IOException
+    {
+        while (true)
+        {
+            MappedRegionFile region = null;
+            try
+            {
+                region = getRegion(worldDir, x, z, true);
+                region.write(x & 31, z & 31, data, length);
+                return;
+            }
+            catch (ClosedChannelException e)
+            {
+                if (!shouldRetry(region, e))
+                {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether to try again with a fresh region after the channel of this one was found closed. That is only the case
+     * if {@link #clear()} closed it while we were using it. Otherwise an interrupt closed the channel, so the region
+     * is dropped, and trying again would only run into the same interrupt.
+     */
+    private static boolean shouldRetry(@Nullable MappedRegionFile region, ClosedChannelException e)
+    {
+        if (region == null)
+        {
+            return false; // Interrupted while opening it
+        }
+        if (region.isClosed() && !(e instanceof ClosedByInterruptException))
+        {
+            return true;
+        }
+        regions.values().remove(region);
+        try
+        {
+            region.close();
+        }
+        catch (IOException suppressed)
+        {
+            e.addSuppressed(suppressed);
+        }
+        return false;
+    }
+
+    @Nullable
+    private static MappedRegionFile getRegion(File worldDir, int x, int z, boolean create) throws IOException
+    {
+        File dir = new File(worldDir, "region");
+        File file = new File(dir, "r." + (x >> 5) + "." + (z >> 5) + ".mca");
+        MappedRegionFile region = regions.get(file);
+        if (region != null)
+        {
+            return region;
+        }
+        synchronized (MappedRegionFileCache.class)
+        {
+            region = regions.get(file);
+            if (region == null)
+            {
+                if (!create && !file.exists())
+                {
+                    return null;
+                }
+                if (!dir.exists())
+                {
+                    dir.mkdirs();
+                }
+                if (regions.size() >= MAX_OPEN)
+                {
+                    clear();
+                }
+                region = new MappedRegionFile(file);
+                regions.put(file, region);
+            }
+            return region;
+        }
+    }
+
+    /**
+     * Collects the deflated chunk, and writes it to its region when closed.
+     */
+    private static class ChunkBuffer extends ByteArrayOutputStream
+    {
+        private final File worldDir;
+        private final int x;
+        private final int z;
+
+        private ChunkBuffer(File worldDir, int x, int z)
+        {
+            super(8096);
+            this.worldDir = worldDir;
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            MappedRegionFileCache.write(worldDir, x, z, buf, count);
+        }
+    }
+}
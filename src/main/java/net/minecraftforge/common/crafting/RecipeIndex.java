@@ -0,0 +1,252 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.crafting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.inventory.InventoryCrafting;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.CraftingManager;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.ShapedRecipes;
+import net.minecraft.item.crafting.ShapelessRecipes;
+import net.minecraftforge.fml.common.FMLLog;
+import net.minecraftforge.fml.common.registry.ForgeRegistries;
+import net.minecraftforge.oredict.OreIngredient;
+import net.minecraftforge.oredict.ShapedOreRecipe;
+import net.minecraftforge.oredict.ShapelessOreRecipe;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Narrows the recipes {@link CraftingManager} tests against a crafting grid down to those that could match it.
+ *
+ * A recipe of one of the standard types, whose ingredients all only check the item and metadata ({@link Ingredient#isSimple()}),
+ * can only match a grid if it accepts every item in the grid. Those recipes are indexed by the items their ingredients accept,
+ * read from the stacks the ingredients were created with rather than {@link Ingredient#getMatchingStacks()}, which leaves out
+ * wildcard items that are in no creative tab. Only vanilla, ore and compound ingredients are indexed, since they are known to
+ * match nothing else, and a lookup only tests the recipes listed for the rarest item in the grid. All other recipes are tested
+ * on every lookup.
+ * Candidates are returned in registry order, so the first match is the same one a scan of the whole registry finds.
+ *
+ * The index of the recipe registry is rebuilt on the first lookup after recipes or ore dictionary entries were added or removed.
+ */
+public class RecipeIndex
+{
+    private static final int[] EMPTY = new int[0];
+    private static final Set<Class<?>> INDEXED_TYPES = ImmutableSet.<Class<?>>of(ShapedRecipes.class, ShapelessRecipes.class, ShapedOreRecipe.class, ShapelessOreRecipe.class);
+    private static volatile RecipeIndex crafting;
+
+    private final IRecipe[] recipes;
+    private final Map<Item, int[]> byItem = new IdentityHashMap<Item, int[]>();
+    private final int[] unindexed;
+    private final int size;
+
+    public RecipeIndex(Iterable<IRecipe> recipes)
+    {
+        this(recipes, -1);
+    }
+
+    private RecipeIndex(Iterable<IRecipe> recipes, int size)
+    {
+        List<IRecipe> all = new ArrayList<IRecipe>();
+        Map<Item, IntArrayList> items = new IdentityHashMap<Item, IntArrayList>();
+        IntArrayList unindexed = new IntArrayList();
+        Set<Item> accepted = Collections.newSetFromMap(new IdentityHashMap<Item, Boolean>());
+        for (IRecipe recipe : recipes)
+        {
+            int index = all.size();
+            all.add(recipe);
+            accepted.clear();
+            if (!getAcceptedItems(recipe, accepted))
+            {
+                unindexed.add(index);
+                continue;
+            }
+            for (Item item : accepted)
+            {
+                items.computeIfAbsent(item, k -> new IntArrayList()).add(index);
+            }
+        }
+        for (Map.Entry<Item, IntArrayList> entry : items.entrySet())
+        {
+            byItem.put(entry.getKey(), entry.getValue().toIntArray());
+        }
+        this.recipes = all.toArray(new IRecipe[all.size()]);
+        this.unindexed = unindexed.toIntArray();
+        this.size = size;
+    }
+
+    /**
+     * Called when recipes or ore dictionary entries change.
+     */
+    public static void invalidate()
+    {
+        crafting = null;
+    }
+
+    /**
+     * The recipes of {@link CraftingManager#REGISTRY} that could match the grid, called in place of iterating the registry.
+     */
+    public static Iterable<IRecipe> getCraftingCandidates(InventoryCrafting inv)
+    {
+        RecipeIndex index = crafting;
+        int size = ForgeRegistries.RECIPES.getKeys().size(); // Catches removals, which have no registry callback
+        if (index == null || index.size != size)
+        {
+            long start = System.nanoTime();
+            index = new RecipeIndex(CraftingManager.REGISTRY, size);
+            crafting = index;
+            FMLLog.log.debug("Indexed {} recipes in {} ms, {} are tested on every lookup", index.recipes.length, (System.nanoTime() - start) / 1000000, index.unindexed.length);
+        }
+        return index.getCandidates(inv);
+    }
+
+    /**
+     * The recipes that could match the grid, in the order they were indexed.
+     */
+    public Iterable<IRecipe> getCandidates(InventoryCrafting inv)
+    {
+        int[] candidates = null;
+        for (int slot = 0; slot < inv.getSizeInventory(); slot++)
+        {
+            ItemStack stack = inv.getStackInSlot(slot);
+            if (stack.isEmpty())
+            {
+                continue;
+            }
+            int[] list = byItem.get(stack.getItem());
+            if (list == null)
+            {
+                candidates = EMPTY;
+                break;
+            }
+            if (candidates == null || list.length < candidates.length)
+            {
+                candidates = list;
+            }
+        }
+        final int[] indexed = candidates == null ? EMPTY : candidates; // No indexed recipe matches an empty grid
+        return () -> new MergeIterator(indexed);
+    }
+
+    /**
+     * Adds the items the recipe accepts to the set, and returns whether the recipe may be indexed by them.
+     */
+    private static boolean getAcceptedItems(IRecipe recipe, Set<Item> accepted)
+    {
+        if (!INDEXED_TYPES.contains(recipe.getClass()))
+        {
+            return false;
+        }
+        for (Ingredient ingredient : recipe.getIngredients())
+        {
+            if (ingredient != Ingredient.EMPTY && !getAcceptedItems(ingredient, accepted))
+            {
+                return false;
+            }
+        }
+        return !accepted.isEmpty();
+    }
+
+    private static boolean getAcceptedItems(Ingredient ingredient, Set<Item> accepted)
+    {
+        if (!ingredient.isSimple())
+        {
+            return false;
+        }
+        if (ingredient.getClass() == OreIngredient.class)
+        {
+            for (ItemStack stack : ((OreIngredient)ingredient).getOres())
+            {
+                accepted.add(stack.getItem());
+            }
+            return true;
+        }
+        if (ingredient instanceof CompoundIngredient)
+        {
+            for (Ingredient child : ((CompoundIngredient)ingredient).getChildren())
+            {
+                if (!getAcceptedItems(child, accepted))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (ingredient.getClass() != Ingredient.class)
+        {
+            return false; // May accept items that it does not list
+        }
+        for (ItemStack stack : ingredient.matchingStacks)
+        {
+            if (!stack.isEmpty())
+            {
+                accepted.add(stack.getItem());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walks the candidates and the unindexed recipes in the order they were indexed.
+     */
+    private class MergeIterator implements Iterator<IRecipe>
+    {
+        private final int[] indexed;
+        private int i;
+        private int u;
+
+        private MergeIterator(int[] indexed)
+        {
+            this.indexed = indexed;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return i < indexed.length || u < unindexed.length;
+        }
+
+        @Override
+        public IRecipe next()
+        {
+            if (i < indexed.length && (u >= unindexed.length || indexed[i] < unindexed[u]))
+            {
+                return recipes[indexed[i++]];
+            }
+            if (u < unindexed.length)
+            {
+                return recipes[unindexed[u++]];
+            }
+            throw new NoSuchElementException();
+        }
+    }
+}
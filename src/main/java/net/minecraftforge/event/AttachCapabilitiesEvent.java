@@ -59,6 +59,7 @@ public class AttachCapabilitiesEvent<T> extends GenericEvent<T>
      * Adds a capability to be attached to this object.
      * Keys MUST be unique, it is suggested that you set the domain to your mod ID.
      * If the capability is an instance of INBTSerializable, this key will be used when serializing this capability.
+     * If the capabilities it supports change over time, it must implement {@link net.minecraftforge.common.capabilities.IDynamicCapabilityProvider}.
      *
      * @param key The name of owner of this capability provider.
      * @param cap The capability provider
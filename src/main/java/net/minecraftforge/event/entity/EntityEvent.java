@@ -24,6 +24,7 @@ import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.eventhandler.Cancelable;
 import net.minecraftforge.fml.common.eventhandler.Event;
+import net.minecraftforge.fml.common.eventhandler.IOrderedEvent;
 import net.minecraft.entity.Entity;
 
 /**
@@ -35,7 +36,7 @@ import net.minecraft.entity.Entity;
  * <br>
  * All children of this event are fired on the {@link MinecraftForge#EVENT_BUS}.<br>
  **/
-public class EntityEvent extends Event
+public class EntityEvent extends Event implements IOrderedEvent
 {
     private final Entity entity;
 
@@ -49,6 +50,12 @@ public class EntityEvent extends Event
         return entity;
     }
 
+    @Override
+    public Object getOrderKey()
+    {
+        return entity;
+    }
+
     /**
      * EntityConstructing is fired when an Entity is being created. <br>
      * This event is fired within the constructor of the Entity.<br>
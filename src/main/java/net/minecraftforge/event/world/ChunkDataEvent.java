@@ -74,6 +74,8 @@ public class ChunkDataEvent extends ChunkEvent
      * ChunkDataEvent.Save is fired when vanilla Minecraft attempts to save Chunk data.<br>
      * This event is fired during chunk saving in 
      * {@link AnvilChunkLoader#saveChunk(World, Chunk)}. <br>
+     * With the asyncChunkSaving config option, {@link #getData()} does not contain the "Sections" list yet, <br>
+     * it is added on a background thread after this event.<br>
      * <br>
      * This event is not {@link Cancelable}.<br>
      * <br>
@@ -24,6 +24,7 @@ import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.eventhandler.Cancelable;
 import net.minecraftforge.fml.common.eventhandler.Event;
+import net.minecraftforge.fml.common.eventhandler.IOrderedEvent;
 
 /**
  * ChunkEvent is fired when an event involving a chunk occurs.<br>
@@ -34,7 +35,7 @@ import net.minecraftforge.fml.common.eventhandler.Event;
  * <br>
  * All children of this event are fired on the {@link MinecraftForge#EVENT_BUS}.<br>
  **/
-public class ChunkEvent extends WorldEvent
+public class ChunkEvent extends WorldEvent implements IOrderedEvent
 {
     private final Chunk chunk;
 
@@ -49,6 +50,12 @@ public class ChunkEvent extends WorldEvent
         return chunk;
     }
 
+    @Override
+    public Object getOrderKey()
+    {
+        return chunk;
+    }
+
     /**
      * ChunkEvent.Load is fired when vanilla Minecraft attempts to load a Chunk into the world.<br>
      * This event is fired during chunk loading in <br>
@@ -68,6 +68,9 @@ import net.minecraftforge.fml.common.gameevent.PlayerEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.network.PlayerDispatcherIndex;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageBatcher;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageHandlerQueue;
 import net.minecraftforge.fml.common.thread.SidedThreadGroup;
 import net.minecraftforge.fml.relauncher.CoreModManager;
 import net.minecraftforge.fml.relauncher.Side;
@@ -263,6 +266,8 @@ public class FMLCommonHandler
     public void onPostServerTick()
     {
         bus().post(new TickEvent.ServerTickEvent(Phase.END));
+        PlayerDispatcherIndex.update();
+        MessageBatcher.flushAll();
     }
 
     /**
@@ -275,6 +280,7 @@ public class FMLCommonHandler
 
     public void onPreServerTick()
     {
+        MessageHandlerQueue.drain(Side.SERVER);
         bus().post(new TickEvent.ServerTickEvent(Phase.START));
     }
 
@@ -340,6 +346,7 @@ public class FMLCommonHandler
 
     public void onPreClientTick()
     {
+        MessageHandlerQueue.drain(Side.CLIENT);
         bus().post(new TickEvent.ClientTickEvent(Phase.START));
     }
 
@@ -502,6 +509,7 @@ public class FMLCommonHandler
 
     public void handleServerStopped()
     {
+        PlayerDispatcherIndex.clear();
         sidedDelegate.serverStopped();
         MinecraftServer server = getMinecraftServerInstance();
         Loader.instance().serverStopped();
@@ -566,21 +574,25 @@ public class FMLCommonHandler
 
     public void firePlayerChangedDimensionEvent(EntityPlayer player, int fromDim, int toDim)
     {
+        PlayerDispatcherIndex.update();
         bus().post(new PlayerEvent.PlayerChangedDimensionEvent(player, fromDim, toDim));
     }
 
     public void firePlayerLoggedIn(EntityPlayer player)
     {
+        PlayerDispatcherIndex.update();
         bus().post(new PlayerEvent.PlayerLoggedInEvent(player));
     }
 
     public void firePlayerLoggedOut(EntityPlayer player)
     {
+        PlayerDispatcherIndex.remove(player);
         bus().post(new PlayerEvent.PlayerLoggedOutEvent(player));
     }
 
     public void firePlayerRespawnEvent(EntityPlayer player, boolean endConquered)
     {
+        PlayerDispatcherIndex.update();
         bus().post(new PlayerEvent.PlayerRespawnEvent(player, endConquered));
     }
 
@@ -41,11 +41,14 @@ import net.minecraftforge.common.crafting.CraftingHelper;
 import net.minecraftforge.fml.common.LoaderState.ModState;
 import net.minecraftforge.fml.common.ModContainer.Disableable;
 import net.minecraftforge.fml.common.ProgressManager.ProgressBar;
+import net.minecraftforge.fml.common.asm.transformers.CachingTransformer;
+import net.minecraftforge.fml.common.discovery.ASMDataCache;
 import net.minecraftforge.fml.common.discovery.ASMDataTable;
 import net.minecraftforge.fml.common.discovery.ModDiscoverer;
 import net.minecraftforge.fml.common.event.FMLInterModComms;
 import net.minecraftforge.fml.common.event.FMLLoadEvent;
 import net.minecraftforge.fml.common.event.FMLModIdMappingEvent;
+import net.minecraftforge.fml.common.eventhandler.EventBus;
 import net.minecraftforge.fml.common.registry.*;
 import net.minecraftforge.fml.common.toposort.ModSorter;
 import net.minecraftforge.fml.common.toposort.ModSortingException;
@@ -383,6 +386,7 @@ public class Loader
             }
             mods.add(new InjectedModContainer(mc,mc.getSource()));
         }
+        ASMDataCache.setDirectory(new File(minecraftDir, "fmlcache/asmdata"));
         ModDiscoverer discoverer = new ModDiscoverer();
         FMLLog.log.debug("Attempting to load mods contained in the minecraft jar file and associated classes");
         discoverer.findClasspathMods(modClassLoader);
@@ -729,6 +733,8 @@ public class Loader
         modController.checkErrors();
         GameData.freezeData();
         FMLLog.log.info("Forge Mod Loader has successfully loaded {} mod{}", mods.size(), mods.size() == 1 ? "" : "s");
+        EventBus.logRegistrationStats();
+        CachingTransformer.logStats();
         progressBar.step("Completing Minecraft initialization");
     }
 
@@ -269,6 +269,14 @@ public class ASMTransformerWrapper
             return "TransformerWrapper(" + getParentClass() + ", " + getCoreMod() + ")";
         }
 
+        /**
+         * The wrapped transformer.
+         */
+        public IClassTransformer getParent()
+        {
+            return parent;
+        }
+
         protected abstract String getParentClass();
 
         protected abstract String getCoreMod();
@@ -0,0 +1,184 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.asm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.fml.common.FMLLog;
+
+/**
+ * An append only file of class bytes by key, shared by the caches of transformed and patched classes.
+ *
+ * Each record holds the length of the key, the key, the length of the bytes, their Adler-32 checksum and the bytes.
+ * A record that was cut short by a crash is dropped when the file is opened, and one that fails its checksum when it is read.
+ * A file written by another version of this format is started over.
+ */
+public class ClassCacheFile
+{
+    private static final int MAGIC = 0x464D4C43; // FMLC
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+
+    private final String description;
+    private final FileChannel channel;
+    private final Map<String, long[]> index = new ConcurrentHashMap<String, long[]>(); // Offset, length and checksum of the bytes
+    private long end;
+
+    /**
+     * @param description what the file caches, for log messages
+     */
+    public ClassCacheFile(File file, String description) throws IOException
+    {
+        this.description = description;
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        if (!read(header, 0) || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+        {
+            channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+        }
+        end = HEADER;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        ByteBuffer data = ByteBuffer.allocate(8);
+        while (read(length, end))
+        {
+            int keyLength = length.getInt(0);
+            if (keyLength < 0 || end + 12 + keyLength > channel.size())
+            {
+                break;
+            }
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            if (!read(key, end + 4) || !read(data, end + 4 + keyLength))
+            {
+                break;
+            }
+            int dataLength = data.getInt(0);
+            long offset = end + 12 + keyLength;
+            if (dataLength < 0 || offset + dataLength > channel.size())
+            {
+                break;
+            }
+            index.put(new String(key.array(), StandardCharsets.UTF_8), new long[] { offset, dataLength, data.getInt(4) & 0xFFFFFFFFL });
+            end = offset + dataLength;
+        }
+        channel.truncate(end);
+    }
+
+    public int size()
+    {
+        return index.size();
+    }
+
+    public boolean contains(String key)
+    {
+        return index.containsKey(key);
+    }
+
+    @Nullable
+    public byte[] get(String key)
+    {
+        long[] location = index.get(key);
+        if (location == null)
+        {
+            return null;
+        }
+        try
+        {
+            ByteBuffer data = ByteBuffer.allocate((int)location[1]);
+            if (!read(data, location[0]))
+            {
+                return null;
+            }
+            if (checksum(data.array()) != location[2])
+            {
+                FMLLog.log.warn("{} in the {} is corrupt, it will be written again", key, description);
+                index.remove(key, location);
+                return null;
+            }
+            return data.array();
+        }
+        catch (IOException e)
+        {
+            FMLLog.log.debug("Unable to read {} from the {}", key, description, e);
+            return null;
+        }
+    }
+
+    /**
+     * Appends the bytes, replacing any earlier ones of the key.
+     */
+    public synchronized void put(String key, byte[] data)
+    {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long checksum = checksum(data);
+        ByteBuffer record = ByteBuffer.allocate(12 + keyBytes.length + data.length);
+        record.putInt(keyBytes.length).put(keyBytes).putInt(data.length).putInt((int)checksum).put(data).flip();
+        try
+        {
+            long position = end;
+            while (record.hasRemaining())
+            {
+                position += channel.write(record, position);
+            }
+            index.put(key, new long[] { end + 12 + keyBytes.length, data.length, checksum });
+            end = position;
+        }
+        catch (IOException e)
+        {
+            FMLLog.log.debug("Unable to write {} to the {}", key, description, e);
+        }
+    }
+
+    private static long checksum(byte[] data)
+    {
+        Adler32 adler = new Adler32();
+        adler.update(data, 0, data.length);
+        return adler.getValue();
+    }
+
+    /**
+     * Fills the buffer from the position. False if the file ends first.
+     */
+    private boolean read(ByteBuffer buffer, long position) throws IOException
+    {
+        buffer.clear();
+        while (buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
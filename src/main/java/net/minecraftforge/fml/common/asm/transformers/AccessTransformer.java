@@ -44,11 +44,8 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
-import net.minecraft.launchwrapper.IClassTransformer;
-
 import org.apache.commons.io.IOUtils;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
@@ -64,7 +61,7 @@ import com.google.common.io.CharSource;
 import com.google.common.io.LineProcessor;
 import com.google.common.io.Resources;
 
-public class AccessTransformer implements IClassTransformer
+public class AccessTransformer extends TreeTransformer
 {
     private static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("fml.debugAccessTransformer", "false"));
     class Modifier
@@ -180,20 +177,19 @@ public class AccessTransformer implements IClassTransformer
     }
 
     @Override
-    public byte[] transform(String name, String transformedName, byte[] bytes)
+    public boolean accepts(String name, String transformedName, byte[] bytes)
     {
-        if (bytes == null) { return null; }
-        if (!modifiers.containsKey(transformedName)) { return bytes; }
+        return modifiers.containsKey(transformedName);
+    }
 
+    @Override
+    public boolean transformClass(String name, String transformedName, ClassNode classNode)
+    {
         if (DEBUG)
         {
             FMLLog.log.debug("Considering all methods and fields on {} ({})", transformedName, name);
         }
 
-        ClassNode classNode = new ClassNode();
-        ClassReader classReader = new ClassReader(bytes);
-        classReader.accept(classNode, 0);
-
         Collection<Modifier> mods = modifiers.get(transformedName);
         for (Modifier m : mods)
         {
@@ -265,9 +261,7 @@ public class AccessTransformer implements IClassTransformer
             }
         }
 
-        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        classNode.accept(writer);
-        return writer.toByteArray();
+        return true;
     }
 
     private void replaceInvokeSpecial(ClassNode clazz, List<MethodNode> toReplace)
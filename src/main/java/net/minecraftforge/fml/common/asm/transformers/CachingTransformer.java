@@ -0,0 +1,287 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.asm.transformers;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.Launch;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+import net.minecraftforge.fml.common.FMLLog;
+import net.minecraftforge.fml.common.asm.ASMTransformerWrapper.TransformerWrapper;
+import net.minecraftforge.fml.common.asm.ClassCacheFile;
+import net.minecraftforge.fml.relauncher.FMLLaunchHandler;
+import net.minecraftforge.fml.relauncher.ModListHelper;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Runs the transformer chain of the {@link LaunchClassLoader} in place of the transformers themselves, and keeps the
+ * transformed classes on disk, so later launches skip the whole chain for classes that did not change.
+ *
+ * Installed after the last tweaker registered its transformers, if they all belong to Forge, looking through the
+ * {@link TransformerWrapper}s coremod transformers are registered as. Other transformers may depend on state the cache cannot see,
+ * and some mods look for transformers by class name in {@link LaunchClassLoader#getTransformers()}, where the cached chain only
+ * shows up as this class. Classes are stored in a pack file named after a fingerprint of everything the chain depends on:
+ * the transformers in order, the side, the Java version, and the size and modification time of every file on the class path
+ * and in the mods folders, which covers the access transformer configs and patches they contain. When other transformers
+ * are cached, the contents of the config folder are part of it as well. Any change starts a new pack and deletes the old one. Within a pack, classes are found by the SHA-1
+ * of their names and untransformed bytes. Transformers registered later, like the {@link ModAPITransformer}, run after the cached chain.
+ *
+ * -Dfml.classCache=false disables the cache, -Dfml.classCache=all also caches the transformers of coremods and tweakers,
+ * and -Dfml.classCache=verify transforms every cached class again and reports the ones whose cached bytes differ,
+ * which means a transformer depends on something the fingerprint does not cover.
+ */
+public class CachingTransformer implements IClassTransformer
+{
+    private static final String MODE = System.getProperty("fml.classCache", "true");
+    private static final int VERSION = 3;
+
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+    private static final AtomicInteger mismatches = new AtomicInteger();
+
+    private final List<IClassTransformer> chain;
+    private final ClassCacheFile pack;
+    private final boolean verify;
+
+    private CachingTransformer(List<IClassTransformer> chain, ClassCacheFile pack, boolean verify)
+    {
+        this.chain = chain;
+        this.pack = pack;
+        this.verify = verify;
+    }
+
+    /**
+     * Replaces the transformers registered so far with a caching transformer that runs them.
+     */
+    @SuppressWarnings("unchecked")
+    public static void install(LaunchClassLoader classLoader)
+    {
+        if ("false".equals(MODE))
+        {
+            FMLLog.log.debug("The transformed class cache is disabled");
+            return;
+        }
+        try
+        {
+            Field field = LaunchClassLoader.class.getDeclaredField("transformers");
+            field.setAccessible(true);
+            List<IClassTransformer> transformers = (List<IClassTransformer>)field.get(classLoader);
+            List<IClassTransformer> chain = ImmutableList.copyOf(transformers);
+            if (!"all".equals(MODE))
+            {
+                for (IClassTransformer transformer : chain)
+                {
+                    if (transformer instanceof TransformerWrapper)
+                    {
+                        transformer = ((TransformerWrapper)transformer).getParent();
+                    }
+                    if (!transformer.getClass().getName().startsWith("net.minecraftforge."))
+                    {
+                        FMLLog.log.info("The transformed class cache is disabled, as {} is not a Forge transformer. Use -Dfml.classCache=all to cache it anyway", transformer.getClass().getName());
+                        return;
+                    }
+                }
+            }
+            HashCode fingerprint = getFingerprint(classLoader, chain);
+            File dir = new File(Launch.minecraftHome, "fmlcache/classes");
+            String name = fingerprint + ".pack";
+            dir.mkdirs();
+            File[] stale = dir.listFiles((d, n) -> n.endsWith(".pack") && !n.equals(name));
+            if (stale != null)
+            {
+                for (File file : stale)
+                {
+                    file.delete();
+                }
+            }
+            ClassCacheFile pack = new ClassCacheFile(new File(dir, name), "transformed class cache");
+            FMLLog.log.debug("Using the transformed class cache {} with {} classes for {} transformers", name, pack.size(), chain.size());
+            transformers.clear();
+            transformers.add(new CachingTransformer(chain, pack, "verify".equals(MODE)));
+        }
+        catch (ReflectiveOperationException | IOException | RuntimeException e)
+        {
+            FMLLog.log.warn("Unable to set up the transformed class cache, classes will be transformed on every launch", e);
+        }
+    }
+
+    public static void logStats()
+    {
+        if (hits.get() + misses.get() > 0)
+        {
+            FMLLog.log.info("Loaded {} classes from the transformed class cache, transformed {}{}", hits.get(), misses.get(),
+                    mismatches.get() > 0 ? ", " + mismatches.get() + " cached classes did not match" : "");
+        }
+    }
+
+    /**
+     * The transformers this runs, in order.
+     */
+    public List<IClassTransformer> getChain()
+    {
+        return chain;
+    }
+
+    @Override
+    @Nullable
+    public byte[] transform(String name, String transformedName, @Nullable byte[] basicClass)
+    {
+        if (basicClass == null)
+        {
+            return runChain(name, transformedName, null); // Generated classes have nothing to key them by
+        }
+        String key = Hashing.sha1().newHasher()
+                .putString(name, StandardCharsets.UTF_8).putByte((byte)0)
+                .putString(transformedName, StandardCharsets.UTF_8).putByte((byte)0)
+                .putBytes(basicClass)
+                .hash().toString();
+        byte[] cached = pack.get(key);
+        if (cached != null && !verify)
+        {
+            hits.incrementAndGet();
+            return cached;
+        }
+        byte[] transformed = runChain(name, transformedName, basicClass);
+        if (cached != null)
+        {
+            hits.incrementAndGet();
+            if (Arrays.equals(cached, transformed))
+            {
+                return transformed;
+            }
+            mismatches.incrementAndGet();
+            FMLLog.log.warn("The cached transformation of {} differs from a fresh one, replacing it", transformedName);
+        }
+        else
+        {
+            misses.incrementAndGet();
+        }
+        if (transformed != null)
+        {
+            pack.put(key, transformed);
+        }
+        return transformed;
+    }
+
+    @Nullable
+    private byte[] runChain(String name, String transformedName, @Nullable byte[] basicClass)
+    {
+        for (IClassTransformer transformer : chain)
+        {
+            basicClass = transformer.transform(name, transformedName, basicClass);
+        }
+        return basicClass;
+    }
+
+    private static HashCode getFingerprint(LaunchClassLoader classLoader, List<IClassTransformer> chain) throws URISyntaxException, IOException
+    {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putInt(VERSION);
+        hasher.putString(FMLLaunchHandler.side().name(), StandardCharsets.UTF_8);
+        hasher.putString(System.getProperty("java.version"), StandardCharsets.UTF_8);
+        for (IClassTransformer transformer : chain)
+        {
+            hasher.putString(transformer.getClass().getName(), StandardCharsets.UTF_8).putByte((byte)0);
+        }
+        for (URL url : classLoader.getURLs())
+        {
+            if ("file".equals(url.getProtocol()))
+            {
+                putFile(hasher, new File(url.toURI()));
+            }
+            else
+            {
+                hasher.putString(url.toString(), StandardCharsets.UTF_8).putByte((byte)0);
+            }
+        }
+        putFile(hasher, new File(Launch.minecraftHome, "mods"));
+        for (File file : ModListHelper.additionalMods.values())
+        {
+            putFile(hasher, file);
+        }
+        if ("all".equals(MODE))
+        {
+            putContents(hasher, new File(Launch.minecraftHome, "config")); // Coremods may read their configs, Forge's transformers do not
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Hashes the files themselves rather than their modification times, as many configs are saved on every launch.
+     */
+    private static void putContents(Hasher hasher, File file) throws IOException
+    {
+        hasher.putString(file.getAbsolutePath(), StandardCharsets.UTF_8).putByte((byte)0);
+        if (file.isDirectory())
+        {
+            File[] children = file.listFiles();
+            if (children != null)
+            {
+                Arrays.sort(children);
+                for (File child : children)
+                {
+                    putContents(hasher, child);
+                }
+            }
+        }
+        else if (file.isFile())
+        {
+            byte[] data = Files.readAllBytes(file.toPath());
+            hasher.putInt(data.length).putBytes(data);
+        }
+    }
+
+    private static void putFile(Hasher hasher, File file)
+    {
+        hasher.putString(file.getAbsolutePath(), StandardCharsets.UTF_8).putByte((byte)0);
+        if (file.isDirectory())
+        {
+            File[] children = file.listFiles();
+            if (children != null)
+            {
+                Arrays.sort(children);
+                for (File child : children)
+                {
+                    putFile(hasher, child);
+                }
+            }
+        }
+        else
+        {
+            hasher.putLong(file.length()).putLong(file.lastModified());
+        }
+    }
+}
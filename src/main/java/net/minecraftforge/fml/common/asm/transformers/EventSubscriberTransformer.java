@@ -20,12 +20,9 @@
 package net.minecraftforge.fml.common.asm.transformers;
 
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
-import net.minecraft.launchwrapper.IClassTransformer;
-
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AnnotationNode;
 import org.objectweb.asm.tree.ClassNode;
@@ -34,16 +31,20 @@ import org.objectweb.asm.tree.MethodNode;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 
-public class EventSubscriberTransformer implements IClassTransformer
+public class EventSubscriberTransformer extends TreeTransformer
 {
+    private static final String SUBSCRIBE_EVENT = "Lnet/minecraftforge/fml/common/eventhandler/SubscribeEvent;";
+    private static final byte[] SUBSCRIBE_EVENT_CONSTANT = SUBSCRIBE_EVENT.getBytes(StandardCharsets.UTF_8);
+
     @Override
-    public byte[] transform(String name, String transformedName, byte[] basicClass)
+    public boolean accepts(String name, String transformedName, byte[] bytes)
     {
-        if (basicClass == null) return null;
-
-        ClassNode classNode = new ClassNode();
-        new ClassReader(basicClass).accept(classNode, 0);
+        return hasConstant(bytes, SUBSCRIBE_EVENT_CONSTANT);
+    }
 
+    @Override
+    public boolean transformClass(String name, String transformedName, ClassNode classNode)
+    {
         boolean isSubscriber = false;
 
         for (MethodNode methodNode : classNode.methods)
@@ -66,13 +67,9 @@ public class EventSubscriberTransformer implements IClassTransformer
         if (isSubscriber)
         {
             classNode.access = toPublic(classNode.access);
-
-            ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-            classNode.accept(writer);
-            return writer.toByteArray();
         }
 
-        return basicClass;
+        return isSubscriber;
     }
 
     private static int toPublic(int access)
@@ -87,7 +84,7 @@ public class EventSubscriberTransformer implements IClassTransformer
         @Override
         public boolean apply(AnnotationNode input)
         {
-            return input.desc.equals("Lnet/minecraftforge/fml/common/eventhandler/SubscribeEvent;");
+            return input.desc.equals(SUBSCRIBE_EVENT);
         }
     }
 }
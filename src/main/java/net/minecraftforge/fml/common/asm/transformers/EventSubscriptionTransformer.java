@@ -40,12 +40,9 @@ import static org.objectweb.asm.Type.VOID_TYPE;
 import static org.objectweb.asm.Type.BOOLEAN_TYPE;
 import static org.objectweb.asm.Type.getMethodDescriptor;
 
-import net.minecraft.launchwrapper.IClassTransformer;
 import net.minecraftforge.fml.common.FMLLog;
 import net.minecraftforge.fml.common.eventhandler.Event;
 
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AnnotationNode;
 import org.objectweb.asm.tree.ClassNode;
@@ -60,32 +57,24 @@ import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 import org.objectweb.asm.tree.VarInsnNode;
 
-public class EventSubscriptionTransformer implements IClassTransformer
+public class EventSubscriptionTransformer extends TreeTransformer
 {
     public EventSubscriptionTransformer()
     {
     }
 
     @Override
-    public byte[] transform(String name, String transformedName, byte[] bytes)
+    public boolean accepts(String name, String transformedName, byte[] bytes)
     {
-        if (bytes == null || name.equals("net.minecraftforge.fml.common.eventhandler.Event") || name.startsWith("net.minecraft.") || name.indexOf('.') == -1)
-        {
-            return bytes;
-        }
-        ClassReader cr = new ClassReader(bytes);
-        ClassNode classNode = new ClassNode();
-        cr.accept(classNode, 0);
+        return !name.equals("net.minecraftforge.fml.common.eventhandler.Event") && !name.startsWith("net.minecraft.") && name.indexOf('.') != -1;
+    }
 
+    @Override
+    public boolean transformClass(String name, String transformedName, ClassNode classNode)
+    {
         try
         {
-            if (buildEvents(classNode))
-            {
-                ClassWriter cw = new ClassWriter(COMPUTE_FRAMES);
-                classNode.accept(cw);
-                return cw.toByteArray();
-            }
-            return bytes;
+            return buildEvents(classNode);
         }
         catch (ClassNotFoundException ex)
         {
@@ -96,7 +85,13 @@ public class EventSubscriptionTransformer implements IClassTransformer
             FMLLog.log.error("Error building events.", e);
         }
 
-        return bytes;
+        return false;
+    }
+
+    @Override
+    public int getWriterFlags()
+    {
+        return COMPUTE_FRAMES;
     }
 
     private boolean buildEvents(ClassNode classNode) throws Exception
@@ -135,6 +130,12 @@ public class EventSubscriptionTransformer implements IClassTransformer
             if (method.name.equals("<init>") && method.desc.equals(voidDesc)) hasDefaultCtr = true;
         }
 
+        if (hasSetup && !hasGetListenerList)
+        {
+            // Checked before anything is added, so the class is left as it was
+            throw new RuntimeException("Event class defines setup() but does not define getListenerList! " + classNode.name);
+        }
+
         if (classNode.visibleAnnotations != null)
         {
             for (AnnotationNode node : classNode.visibleAnnotations)
@@ -172,10 +173,7 @@ public class EventSubscriptionTransformer implements IClassTransformer
 
         if (hasSetup)
         {
-            if (!hasGetListenerList)
-                throw new RuntimeException("Event class defines setup() but does not define getListenerList! " + classNode.name);
-            else
-                return edited;
+            return edited;
         }
 
         Type tSuper = Type.getType(classNode.superName);
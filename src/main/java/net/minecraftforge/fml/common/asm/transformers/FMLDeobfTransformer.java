@@ -0,0 +1,31 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.asm.transformers;
+
+/**
+ * The tree based transformers that run after deobfuscation and the access transformers of coremods.
+ */
+public class FMLDeobfTransformer extends TreeTransformerChain
+{
+    public FMLDeobfTransformer() throws Exception
+    {
+        super(new ModAccessTransformer(), new ItemStackTransformer(), new ItemBlockTransformer(), new ItemBlockSpecialTransformer());
+    }
+}
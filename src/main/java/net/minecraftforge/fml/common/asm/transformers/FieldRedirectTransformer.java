@@ -21,10 +21,6 @@ package net.minecraftforge.fml.common.asm.transformers;
 
 import java.util.ListIterator;
 
-import net.minecraft.launchwrapper.IClassTransformer;
-
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
@@ -33,7 +29,7 @@ import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 
-public class FieldRedirectTransformer implements IClassTransformer
+public class FieldRedirectTransformer extends TreeTransformer
 {
     private final String clsName;
     private final String TYPE;
@@ -49,15 +45,14 @@ public class FieldRedirectTransformer implements IClassTransformer
     }
 
     @Override
-    public byte[] transform(String name, String transformedName, byte[] basicClass)
+    public boolean accepts(String name, String transformedName, byte[] bytes)
     {
-        if (!this.clsName.equals(transformedName))
-            return basicClass;
-
-        ClassNode classNode = new ClassNode();
-        ClassReader classReader = new ClassReader(basicClass);
-        classReader.accept(classNode, 0);
+        return this.clsName.equals(transformedName);
+    }
 
+    @Override
+    public boolean transformClass(String name, String transformedName, ClassNode classNode)
+    {
         FieldNode fieldRef = null;
         for (FieldNode f : classNode.fields)
         {
@@ -111,9 +106,7 @@ public class FieldRedirectTransformer implements IClassTransformer
                 }
             }
         }
-        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        classNode.accept(writer);
-        return writer.toByteArray();
+        return true;
     }
 
 }
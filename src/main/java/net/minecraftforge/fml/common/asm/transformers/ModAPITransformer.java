@@ -25,15 +25,12 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
-import net.minecraft.launchwrapper.IClassTransformer;
 import net.minecraftforge.fml.common.FMLLog;
 import net.minecraftforge.fml.common.Loader;
 import net.minecraftforge.fml.common.ModAPIManager;
 import net.minecraftforge.fml.common.discovery.ASMDataTable;
 import net.minecraftforge.fml.common.discovery.ASMDataTable.ASMData;
 
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.signature.SignatureReader;
 import org.objectweb.asm.signature.SignatureWriter;
 import org.objectweb.asm.tree.ClassNode;
@@ -43,27 +40,21 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Sets;
 
-public class ModAPITransformer implements IClassTransformer {
+public class ModAPITransformer extends TreeTransformer {
 
     private static final boolean logDebugInfo = Boolean.valueOf(System.getProperty("fml.debugAPITransformer", "false"));
     private ListMultimap<String, ASMData> optionals;
 
     @Override
-    public byte[] transform(String name, String transformedName, byte[] basicClass)
+    public boolean accepts(String name, String transformedName, byte[] bytes)
     {
-        String lookupName = name;
-        if(name.endsWith("$class"))
-        {
-            lookupName = name.substring(0, name.length() - 6);
-        }
-        if (optionals == null || !optionals.containsKey(lookupName))
-        {
-            return basicClass;
-        }
-        ClassNode classNode = new ClassNode();
-        ClassReader classReader = new ClassReader(basicClass);
-        classReader.accept(classNode, 0);
+        return optionals != null && optionals.containsKey(getLookupName(name));
+    }
 
+    @Override
+    public boolean transformClass(String name, String transformedName, ClassNode classNode)
+    {
+        String lookupName = getLookupName(name);
         if (logDebugInfo) FMLLog.log.trace("Optional removal - found optionals for class {} - processing", name);
         for (ASMData optional : optionals.get(lookupName))
         {
@@ -90,9 +81,12 @@ public class ModAPITransformer implements IClassTransformer {
         }
         if (logDebugInfo) FMLLog.log.trace("Optional removal - class {} processed", name);
 
-        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        classNode.accept(writer);
-        return writer.toByteArray();
+        return true;
+    }
+
+    private static String getLookupName(String name)
+    {
+        return name.endsWith("$class") ? name.substring(0, name.length() - 6) : name;
     }
 
     private void stripMethod(ClassNode classNode, String methodDescriptor)
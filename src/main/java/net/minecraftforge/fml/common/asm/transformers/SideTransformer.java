@@ -19,17 +19,15 @@
 
 package net.minecraftforge.fml.common.asm.transformers;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 
-import net.minecraft.launchwrapper.IClassTransformer;
 import net.minecraftforge.fml.relauncher.FMLLaunchHandler;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -40,19 +38,22 @@ import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
-public class SideTransformer implements IClassTransformer
+public class SideTransformer extends TreeTransformer
 {
     private static String SIDE = FMLLaunchHandler.side().name();
     private static final boolean DEBUG = false;
+    private static final byte[] SIDE_ONLY = Type.getDescriptor(SideOnly.class).getBytes(StandardCharsets.UTF_8);
+
     @Override
-    public byte[] transform(String name, String transformedName, byte[] bytes)
+    public boolean accepts(String name, String transformedName, byte[] bytes)
     {
-        if (bytes == null) { return null; }
-
-        ClassNode classNode = new ClassNode();
-        ClassReader classReader = new ClassReader(bytes);
-        classReader.accept(classNode, 0);
+        return hasConstant(bytes, SIDE_ONLY);
+    }
 
+    @Override
+    public boolean transformClass(String name, String transformedName, ClassNode classNode)
+    {
+        boolean changed = false;
         if (remove(classNode.visibleAnnotations, SIDE))
         {
             if (DEBUG)
@@ -73,6 +74,7 @@ public class SideTransformer implements IClassTransformer
                     System.out.println(String.format("Removing Field: %s.%s", classNode.name, field.name));
                 }
                 fields.remove();
+                changed = true;
             }
         }
 
@@ -89,6 +91,7 @@ public class SideTransformer implements IClassTransformer
                 }
                 methods.remove();
                 lambdaGatherer.accept(method);
+                changed = true;
             }
         }
 
@@ -114,9 +117,7 @@ public class SideTransformer implements IClassTransformer
             }
         }
 
-        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        classNode.accept(writer);
-        return writer.toByteArray();
+        return changed;
     }
 
     private boolean remove(List<AnnotationNode> anns, String side)
@@ -0,0 +1,134 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.asm.transformers;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.launchwrapper.IClassTransformer;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * A transformer that changes the parsed {@link ClassNode} of a class. Registered on its own it parses and writes the class
+ * like any other transformer, while the passes of a {@link TreeTransformerChain} share one parse and one write.
+ */
+public abstract class TreeTransformer implements IClassTransformer
+{
+    /**
+     * Whether this may change the class. Called with the untransformed bytes before they are parsed, and the class is not parsed
+     * for this when false, so it has to be cheap. In a chain these are the bytes the chain was given, so it must not depend
+     * on the changes of earlier passes.
+     */
+    public boolean accepts(String name, String transformedName, byte[] bytes)
+    {
+        return true;
+    }
+
+    /**
+     * Changes the class in place, and returns whether anything was changed.
+     */
+    public abstract boolean transformClass(String name, String transformedName, ClassNode classNode);
+
+    /**
+     * The {@link ClassWriter} flags the changes of this need.
+     */
+    public int getWriterFlags()
+    {
+        return ClassWriter.COMPUTE_MAXS;
+    }
+
+    @Override
+    @Nullable
+    public byte[] transform(String name, String transformedName, @Nullable byte[] bytes)
+    {
+        return transform(name, transformedName, bytes, Collections.singletonList(this));
+    }
+
+    /**
+     * Runs the passes that accept the class over one parse of it, and writes it once if any of them changed it.
+     */
+    @Nullable
+    static byte[] transform(String name, String transformedName, @Nullable byte[] bytes, List<TreeTransformer> passes)
+    {
+        if (bytes == null)
+        {
+            return null;
+        }
+        ClassNode classNode = null;
+        boolean changed = false;
+        int flags = 0;
+        for (TreeTransformer pass : passes)
+        {
+            if (!pass.accepts(name, transformedName, bytes))
+            {
+                continue;
+            }
+            if (classNode == null)
+            {
+                classNode = new ClassNode();
+                new ClassReader(bytes).accept(classNode, 0);
+            }
+            if (pass.transformClass(name, transformedName, classNode))
+            {
+                changed = true;
+                flags |= pass.getWriterFlags();
+            }
+        }
+        if (!changed)
+        {
+            return bytes;
+        }
+        ClassWriter writer = new ClassWriter(flags);
+        classNode.accept(writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Whether the constant pool of the class holds the ASCII string, like the descriptor of an annotation it uses.
+     * Searches the bytes for the encoded constant, which may rarely find it inside another one, but never misses it.
+     */
+    protected static boolean hasConstant(byte[] bytes, byte[] constant)
+    {
+        byte high = (byte)(constant.length >> 8);
+        byte low = (byte)constant.length;
+        search:
+        for (int i = 3; i <= bytes.length - constant.length; i++)
+        {
+            if (bytes[i - 1] != low || bytes[i - 2] != high || bytes[i - 3] != 1) // CONSTANT_Utf8 tag and length
+            {
+                continue;
+            }
+            for (int j = 0; j < constant.length; j++)
+            {
+                if (bytes[i + j] != constant[j])
+                {
+                    continue search;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
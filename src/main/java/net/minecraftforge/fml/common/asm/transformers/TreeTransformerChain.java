@@ -0,0 +1,57 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.asm.transformers;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.launchwrapper.IClassTransformer;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs {@link TreeTransformer}s that are next to each other in the transformer chain over one parse of each class,
+ * and writes the class once, or not at all when no pass changed it. Classes none of the passes accept are not parsed.
+ */
+public class TreeTransformerChain implements IClassTransformer
+{
+    private final List<TreeTransformer> passes;
+
+    public TreeTransformerChain(TreeTransformer... passes)
+    {
+        this.passes = ImmutableList.copyOf(passes);
+    }
+
+    /**
+     * The passes this runs, in order.
+     */
+    public List<TreeTransformer> getPasses()
+    {
+        return passes;
+    }
+
+    @Override
+    @Nullable
+    public byte[] transform(String name, String transformedName, @Nullable byte[] bytes)
+    {
+        return TreeTransformer.transform(name, transformedName, bytes, passes);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.fml.common.FMLLog;
+import net.minecraftforge.fml.common.discovery.asm.ASMModParser;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Keeps what {@link JarDiscoverer} found in each mod file between launches, so unchanged files are not parsed again.
+ *
+ * Every mod file has its own index in the cache directory, named after the path of the file. It holds the mcmod.info
+ * and the parsed form of every class that has annotations or interfaces, and is only used while the size of the file
+ * is the same, and either its modification time or its SHA-1 hash is too. Indexes that can not be read are parsed again,
+ * and indexes of files that were not examined in a launch are deleted. Disabled by -Dfml.asmDataCache=false.
+ */
+public class ASMDataCache
+{
+    private static final int MAGIC = 0x464D4C41; // FMLA
+    private static final int VERSION = 1;
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("fml.asmDataCache", "true"));
+
+    @Nullable
+    private static File dir;
+    private static final Set<String> used = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+
+    public static void setDirectory(@Nullable File dir)
+    {
+        ASMDataCache.dir = ENABLED ? dir : null;
+    }
+
+    /**
+     * The cached contents of the mod file, or null if it has to be parsed.
+     */
+    @Nullable
+    static Entry load(File file)
+    {
+        File index = getIndex(file);
+        if (index == null)
+        {
+            return null;
+        }
+        used.add(index.getName());
+        Entry entry = null;
+        boolean touched = false;
+        if (index.isFile())
+        {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(index)))))
+            {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION)
+                {
+                    long size = in.readLong();
+                    long modified = in.readLong();
+                    byte[] hash = new byte[20];
+                    in.readFully(hash);
+                    if (size == file.length() && (modified == file.lastModified() || Arrays.equals(hash, hash(file))))
+                    {
+                        entry = Entry.read(in);
+                        touched = modified != file.lastModified();
+                    }
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                FMLLog.log.debug("Unable to read the cached ASM data of {}, it will be parsed", file.getName(), e);
+                entry = null;
+            }
+        }
+        if (entry == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        if (touched)
+        {
+            save(file, entry); // Only the time changed, skip hashing it next time
+        }
+        return entry;
+    }
+
+    static void save(File file, Entry entry)
+    {
+        File index = getIndex(file);
+        if (index == null)
+        {
+            return;
+        }
+        File tmp = new File(index.getPath() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try
+        {
+            index.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(tmp), deflater))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(file.length());
+                out.writeLong(file.lastModified());
+                out.write(hash(file));
+                entry.write(out);
+            }
+            java.nio.file.Files.move(tmp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            FMLLog.log.debug("Unable to cache the ASM data of {}", file.getName(), e);
+            tmp.delete();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Called when all mod files were examined. Logs how many were cached, and deletes the indexes of files that are gone.
+     */
+    static void finish()
+    {
+        if (dir == null)
+        {
+            return;
+        }
+        FMLLog.log.info("Read the ASM data of {} mod files from the cache, parsed {}", hits.getAndSet(0), misses.getAndSet(0));
+        File[] indexes = dir.listFiles((d, name) -> name.endsWith(".bin") && !used.contains(name));
+        if (indexes != null)
+        {
+            for (File index : indexes)
+            {
+                index.delete();
+            }
+        }
+        used.clear();
+    }
+
+    @Nullable
+    private static File getIndex(File file)
+    {
+        if (dir == null)
+        {
+            return null;
+        }
+        return new File(dir, Hashing.sha1().hashString(file.getAbsolutePath(), StandardCharsets.UTF_8) + ".bin");
+    }
+
+    private static byte[] hash(File file) throws IOException
+    {
+        return Files.asByteSource(file).hash(Hashing.sha1()).asBytes();
+    }
+
+    static class Entry
+    {
+        @Nullable
+        final byte[] modInfo;
+        final List<ClassEntry> classes;
+
+        Entry(@Nullable byte[] modInfo, List<ClassEntry> classes)
+        {
+            this.modInfo = modInfo;
+            this.classes = classes;
+        }
+
+        private static Entry read(DataInputStream in) throws IOException
+        {
+            byte[] modInfo = null;
+            int length = in.readInt();
+            if (length >= 0)
+            {
+                modInfo = new byte[length];
+                in.readFully(modInfo);
+            }
+            int count = in.readInt();
+            List<ClassEntry> classes = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++)
+            {
+                String name = in.readUTF();
+                classes.add(new ClassEntry(name, in.readBoolean() ? new ASMModParser(in) : null));
+            }
+            return new Entry(modInfo, classes);
+        }
+
+        private void write(DataOutputStream out) throws IOException
+        {
+            out.writeInt(modInfo == null ? -1 : modInfo.length);
+            if (modInfo != null)
+            {
+                out.write(modInfo);
+            }
+            out.writeInt(classes.size());
+            for (ClassEntry entry : classes)
+            {
+                out.writeUTF(entry.name);
+                out.writeBoolean(entry.parser != null);
+                if (entry.parser != null)
+                {
+                    entry.parser.write(out);
+                }
+            }
+        }
+    }
+
+    static class ClassEntry
+    {
+        final String name;
+        /** Null if the class adds nothing to the table */
+        @Nullable
+        final ASMModParser parser;
+
+        ClassEntry(String name, @Nullable ASMModParser parser)
+        {
+            this.name = name;
+            this.parser = parser;
+        }
+    }
+}
@@ -144,6 +144,17 @@ public class ASMDataTable
         this.packageMap.put(pkg,modCandidate);
     }
 
+    /**
+     * Adds everything found in a single candidate, see {@link ModDiscoverer#identifyMods()}.
+     */
+    void addAll(ASMDataTable other)
+    {
+        this.globalAnnotationData.putAll(other.globalAnnotationData);
+        this.containers.addAll(other.containers);
+        this.packageMap.putAll(other.packageMap);
+        this.containerAnnotationData = null;
+    }
+
     public Set<ModCandidate> getCandidatesFor(String pkg)
     {
         return this.packageMap.get(pkg);
@@ -28,22 +28,25 @@ public enum ContainerType
     JAR(JarDiscoverer.class),
     DIR(DirectoryDiscoverer.class);
 
-    private ITypeDiscoverer discoverer;
+    private Class<? extends ITypeDiscoverer> discovererClass;
 
     private ContainerType(Class<? extends ITypeDiscoverer> discovererClass)
     {
+        this.discovererClass = discovererClass;
+    }
+
+    public List<ModContainer> findMods(ModCandidate candidate, ASMDataTable table)
+    {
+        // A new discoverer for every candidate, as they may hold state while exploring, and candidates are explored in parallel
+        ITypeDiscoverer discoverer;
         try
         {
-            this.discoverer = discovererClass.newInstance();
+            discoverer = discovererClass.newInstance();
         }
         catch (ReflectiveOperationException e)
         {
             throw new RuntimeException(e);
         }
-    }
-
-    public List<ModContainer> findMods(ModCandidate candidate, ASMDataTable table)
-    {
         return discoverer.discover(candidate, table);
     }
 }
@@ -19,6 +19,7 @@
 
 package net.minecraftforge.fml.common.discovery;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
@@ -43,6 +44,9 @@ import org.objectweb.asm.Type;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nullable;
 
 public class JarDiscoverer implements ITypeDiscoverer
 {
@@ -53,28 +57,47 @@ public class JarDiscoverer implements ITypeDiscoverer
     {
         List<ModContainer> foundMods = Lists.newArrayList();
         FMLLog.log.debug("Examining file {} for potential mods", candidate.getModContainer().getName());
+        try
+        {
+            ASMDataCache.Entry cached = ENABLE_JSON_TEST ? null : ASMDataCache.load(candidate.getModContainer());
+            if (cached != null)
+            {
+                FMLLog.log.trace("Using the cached ASM data of file {}", candidate.getModContainer().getName());
+                MetadataCollection mc = getMetadata(candidate, cached.modInfo);
+                for (ASMDataCache.ClassEntry entry : cached.classes)
+                {
+                    addClass(candidate, table, foundMods, mc, entry.name, entry.parser);
+                }
+                return foundMods;
+            }
+        }
+        catch (Exception e)
+        {
+            FMLLog.log.warn("Zip file {} failed to read properly, it will be ignored", candidate.getModContainer().getName(), e);
+            return foundMods;
+        }
         try (JarFile jar = new JarFile(candidate.getModContainer()))
         {
             ZipEntry modInfo = jar.getEntry("mcmod.info");
-            MetadataCollection mc = null;
+            byte[] modInfoData = null;
             if (modInfo != null)
             {
-                FMLLog.log.trace("Located mcmod.info file in file {}", candidate.getModContainer().getName());
                 try (InputStream inputStream = jar.getInputStream(modInfo))
                 {
-                    mc = MetadataCollection.from(inputStream, candidate.getModContainer().getName());
+                    modInfoData = ByteStreams.toByteArray(inputStream);
                 }
             }
-            else
-            {
-                FMLLog.log.debug("The mod container {} appears to be missing an mcmod.info file", candidate.getModContainer().getName());
-                mc = MetadataCollection.from(null, "");
-            }
+            MetadataCollection mc = getMetadata(candidate, modInfoData);
 
             if (ENABLE_JSON_TEST && jar.getEntry(JsonAnnotationLoader.ANNOTATION_JSON) != null)
                 findClassesJSON(candidate, table, jar, foundMods, mc);
             else
-                findClassesASM(candidate, table, jar, foundMods, mc);
+            {
+                List<ASMDataCache.ClassEntry> classes = Lists.newArrayList();
+                findClassesASM(candidate, table, jar, foundMods, mc, classes);
+                if (!ENABLE_JSON_TEST)
+                    ASMDataCache.save(candidate.getModContainer(), new ASMDataCache.Entry(modInfoData, classes));
+            }
         }
         catch (Exception e)
         {
@@ -83,7 +106,21 @@ public class JarDiscoverer implements ITypeDiscoverer
         return foundMods;
     }
 
-    private void findClassesASM(ModCandidate candidate, ASMDataTable table, JarFile jar, List<ModContainer> foundMods, MetadataCollection mc) throws IOException
+    private MetadataCollection getMetadata(ModCandidate candidate, @Nullable byte[] modInfo)
+    {
+        if (modInfo != null)
+        {
+            FMLLog.log.trace("Located mcmod.info file in file {}", candidate.getModContainer().getName());
+            return MetadataCollection.from(new ByteArrayInputStream(modInfo), candidate.getModContainer().getName());
+        }
+        else
+        {
+            FMLLog.log.debug("The mod container {} appears to be missing an mcmod.info file", candidate.getModContainer().getName());
+            return MetadataCollection.from(null, "");
+        }
+    }
+
+    private void findClassesASM(ModCandidate candidate, ASMDataTable table, JarFile jar, List<ModContainer> foundMods, MetadataCollection mc, List<ASMDataCache.ClassEntry> classes) throws IOException
     {
         for (ZipEntry ze : Collections.list(jar.entries()))
         {
@@ -101,7 +138,6 @@ public class JarDiscoverer implements ITypeDiscoverer
                     {
                         modParser = new ASMModParser(inputStream);
                     }
-                    candidate.addClassEntry(ze.getName());
                 }
                 catch (LoaderException e)
                 {
@@ -109,20 +145,31 @@ public class JarDiscoverer implements ITypeDiscoverer
                     jar.close();
                     throw e;
                 }
-                modParser.validate();
-                modParser.sendToTable(table, candidate);
-                ModContainer container = ModContainerFactory.instance().build(modParser, candidate.getModContainer(), candidate);
-                if (container!=null)
-                {
-                    table.addContainer(container);
-                    foundMods.add(container);
-                    container.bindMetadata(mc);
-                    container.setClassVersion(modParser.getClassVersion());
-                }
+                classes.add(new ASMDataCache.ClassEntry(ze.getName(), modParser.isEmpty() ? null : modParser));
+                addClass(candidate, table, foundMods, mc, ze.getName(), modParser);
             }
         }
     }
 
+    private void addClass(ModCandidate candidate, ASMDataTable table, List<ModContainer> foundMods, MetadataCollection mc, String name, @Nullable ASMModParser modParser)
+    {
+        candidate.addClassEntry(name);
+        if (modParser == null)
+        {
+            return; // Cached class without annotations or interfaces
+        }
+        modParser.validate();
+        modParser.sendToTable(table, candidate);
+        ModContainer container = ModContainerFactory.instance().build(modParser, candidate.getModContainer(), candidate);
+        if (container!=null)
+        {
+            table.addContainer(container);
+            foundMods.add(container);
+            container.bindMetadata(mc);
+            container.setClassVersion(modParser.getClassVersion());
+        }
+    }
+
     private void findClassesJSON(ModCandidate candidate, ASMDataTable table, JarFile jar, List<ModContainer> foundMods, MetadataCollection mc) throws IOException
     {
         FMLLog.log.info("Loading jar {} annotation data from json", candidate.getModContainer().getPath());
@@ -21,6 +21,10 @@ package net.minecraftforge.fml.common.discovery;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,9 +39,12 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.ObjectArrays;
 
+import javax.annotation.Nullable;
+
 public class ModDiscoverer
 {
     private static Pattern zipJar = Pattern.compile("(.+).(zip|jar)$");
+    private static final int THREADS = Integer.getInteger("fml.discoveryThreads", Runtime.getRuntime().availableProcessors());
 
     private List<ModCandidate> candidates = Lists.newArrayList();
 
@@ -128,33 +135,83 @@ public class ModDiscoverer
         }
     }
 
+    /**
+     * Explores the candidates in parallel, each into its own table. The results are merged in the order of the candidates,
+     * so the mod list and the data table are the same as when exploring them one after another.
+     */
     public List<ModContainer> identifyMods()
     {
         List<ModContainer> modList = Lists.newArrayList();
 
+        List<Exploration> explorations = Lists.newArrayList();
         for (ModCandidate candidate : candidates)
         {
-            try
+            explorations.add(new Exploration(candidate));
+        }
+        long start = System.nanoTime();
+        exploreAll(explorations);
+        FMLLog.log.debug("Explored {} mod candidates in {} ms", candidates.size(), (System.nanoTime() - start) / 1000000);
+        ASMDataCache.finish();
+
+        for (Exploration exploration : explorations)
+        {
+            ModCandidate candidate = exploration.candidate;
+            dataTable.addAll(exploration.table);
+            if (exploration.error != null)
             {
-                List<ModContainer> mods = candidate.explore(dataTable);
-                if (mods.isEmpty() && !candidate.isClasspath())
-                {
-                    nonModLibs.add(candidate.getModContainer());
-                }
-                else
-                {
-                    modList.addAll(mods);
-                }
+                FMLLog.log.warn("Identified a problem with the mod candidate {}, ignoring this source", candidate.getModContainer(), exploration.error);
+                continue;
             }
-            catch (LoaderException le)
+            List<ModContainer> mods = exploration.mods;
+            if (mods.isEmpty() && !candidate.isClasspath())
             {
-                FMLLog.log.warn("Identified a problem with the mod candidate {}, ignoring this source", candidate.getModContainer(), le);
+                nonModLibs.add(candidate.getModContainer());
+            }
+            else
+            {
+                modList.addAll(mods);
             }
         }
 
         return modList;
     }
 
+    private static void exploreAll(List<Exploration> explorations)
+    {
+        int threads = Math.min(THREADS, explorations.size());
+        if (threads <= 1)
+        {
+            explorations.forEach(Exploration::run);
+            return;
+        }
+        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger count = new AtomicInteger(1);
+        ForkJoinPool pool = new ForkJoinPool(threads, p ->
+        {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("FML Mod Discovery Thread-" + count.getAndIncrement());
+            thread.setContextClassLoader(contextLoader);
+            return thread;
+        }, null, false);
+        try
+        {
+            List<ForkJoinTask<?>> tasks = Lists.newArrayList();
+            for (Exploration exploration : explorations)
+            {
+                tasks.add(pool.submit(exploration));
+            }
+            // In candidate order, so an unexpected exception is the one exploring them one after another would have thrown
+            for (ForkJoinTask<?> task : tasks)
+            {
+                task.join();
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
     public ASMDataTable getASMTable()
     {
         return dataTable;
@@ -177,4 +234,31 @@ public class ModDiscoverer
         }
         candidates.add(candidate);
     }
+
+    private static class Exploration implements Runnable
+    {
+        private final ModCandidate candidate;
+        private final ASMDataTable table = new ASMDataTable();
+        private List<ModContainer> mods;
+        @Nullable
+        private LoaderException error;
+
+        private Exploration(ModCandidate candidate)
+        {
+            this.candidate = candidate;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                mods = candidate.explore(table);
+            }
+            catch (LoaderException le)
+            {
+                error = le;
+            }
+        }
+    }
 }
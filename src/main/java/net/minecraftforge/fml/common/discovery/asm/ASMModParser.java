@@ -19,6 +19,8 @@
 
 package net.minecraftforge.fml.common.discovery.asm;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.LinkedList;
@@ -64,6 +66,43 @@ public class ASMModParser
         }
     }
 
+    /**
+     * Reads a class written by {@link #write(DataOutput)}, for the ASM data cache.
+     */
+    public ASMModParser(DataInput in) throws IOException
+    {
+        this.asmType = Type.getObjectType(in.readUTF());
+        this.classVersion = in.readInt();
+        this.asmSuperType = in.readBoolean() ? Type.getObjectType(in.readUTF()) : null;
+        for (int i = in.readInt(); i > 0; i--)
+            this.interfaces.add(in.readUTF());
+        for (int i = in.readInt(); i > 0; i--)
+            this.annotations.add(ModAnnotation.read(in));
+    }
+
+    public void write(DataOutput out) throws IOException
+    {
+        out.writeUTF(asmType.getInternalName());
+        out.writeInt(classVersion);
+        out.writeBoolean(asmSuperType != null);
+        if (asmSuperType != null)
+            out.writeUTF(asmSuperType.getInternalName());
+        out.writeInt(interfaces.size());
+        for (String intf : interfaces)
+            out.writeUTF(intf);
+        out.writeInt(annotations.size());
+        for (ModAnnotation ann : annotations)
+            ann.write(out);
+    }
+
+    /**
+     * Whether the class has no annotations and implements no interfaces, so it adds nothing to the ASMDataTable.
+     */
+    public boolean isEmpty()
+    {
+        return annotations.isEmpty() && interfaces.isEmpty();
+    }
+
     public void beginNewTypeName(String typeQName, int classVersion, String superClassQName, String[] interfaces)
     {
         this.asmType = Type.getObjectType(typeQName);
@@ -19,7 +19,11 @@
 
 package net.minecraftforge.fml.common.discovery.asm;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import net.minecraftforge.fml.common.discovery.asm.ASMModParser.AnnotationType;
@@ -130,4 +134,190 @@ public class ModAnnotation
         addProperty(name, child.getValues());
         return child;
     }
+
+    static ModAnnotation read(DataInput in) throws IOException
+    {
+        ModAnnotation ann = new ModAnnotation(AnnotationType.values()[in.readByte()], Type.getType(in.readUTF()), in.readBoolean() ? in.readUTF() : null);
+        for (int i = in.readInt(); i > 0; i--)
+        {
+            String key = in.readUTF();
+            ann.values.put(key, readValue(in));
+        }
+        return ann;
+    }
+
+    void write(DataOutput out) throws IOException
+    {
+        out.writeByte(type.ordinal());
+        out.writeUTF(asmType.getDescriptor());
+        out.writeBoolean(member != null);
+        if (member != null)
+            out.writeUTF(member);
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet())
+        {
+            out.writeUTF(entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Writes any value the annotation visitors store, and fails for anything else so the class is not cached.
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeValue(DataOutput out, Object value) throws IOException
+    {
+        if (value instanceof String)
+        {
+            out.writeByte(0);
+            out.writeUTF((String)value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(1);
+            out.writeInt((Integer)value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(2);
+            out.writeLong((Long)value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte(3);
+            out.writeFloat((Float)value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(4);
+            out.writeDouble((Double)value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(5);
+            out.writeBoolean((Boolean)value);
+        }
+        else if (value instanceof Byte)
+        {
+            out.writeByte(6);
+            out.writeByte((Byte)value);
+        }
+        else if (value instanceof Character)
+        {
+            out.writeByte(7);
+            out.writeChar((Character)value);
+        }
+        else if (value instanceof Short)
+        {
+            out.writeByte(8);
+            out.writeShort((Short)value);
+        }
+        else if (value instanceof Type)
+        {
+            out.writeByte(9);
+            out.writeUTF(((Type)value).getDescriptor());
+        }
+        else if (value instanceof EnumHolder)
+        {
+            out.writeByte(10);
+            out.writeUTF(((EnumHolder)value).getDesc());
+            out.writeUTF(((EnumHolder)value).getValue());
+        }
+        else if (value instanceof List)
+        {
+            List<Object> list = (List<Object>)value;
+            out.writeByte(11);
+            out.writeInt(list.size());
+            for (Object element : list)
+                writeValue(out, element);
+        }
+        else if (value instanceof Map)
+        {
+            Map<String, Object> map = (Map<String, Object>)value;
+            out.writeByte(12);
+            out.writeInt(map.size());
+            for (Map.Entry<String, Object> entry : map.entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+        else if (value != null && value.getClass().isArray() && value.getClass().getComponentType().isPrimitive())
+        {
+            // Arrays of primitives are passed to visit as a whole
+            int length = java.lang.reflect.Array.getLength(value);
+            out.writeByte(13);
+            out.writeUTF(Type.getDescriptor(value.getClass()));
+            out.writeInt(length);
+            for (int i = 0; i < length; i++)
+                writeValue(out, java.lang.reflect.Array.get(value, i));
+        }
+        else
+        {
+            throw new IOException("Unsupported annotation value " + value);
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException
+    {
+        byte tag = in.readByte();
+        switch (tag)
+        {
+            case 0: return in.readUTF();
+            case 1: return in.readInt();
+            case 2: return in.readLong();
+            case 3: return in.readFloat();
+            case 4: return in.readDouble();
+            case 5: return in.readBoolean();
+            case 6: return in.readByte();
+            case 7: return in.readChar();
+            case 8: return in.readShort();
+            case 9: return Type.getType(in.readUTF());
+            case 10: return new EnumHolder(in.readUTF(), in.readUTF());
+            case 11:
+            {
+                int size = in.readInt();
+                ArrayList<Object> list = Lists.newArrayListWithCapacity(size);
+                for (int i = 0; i < size; i++)
+                    list.add(readValue(in));
+                return list;
+            }
+            case 12:
+            {
+                Map<String, Object> map = Maps.newHashMap();
+                for (int i = in.readInt(); i > 0; i--)
+                {
+                    String key = in.readUTF();
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case 13:
+            {
+                Class<?> component = getPrimitiveClass(Type.getType(in.readUTF()).getElementType());
+                int length = in.readInt();
+                Object array = java.lang.reflect.Array.newInstance(component, length);
+                for (int i = 0; i < length; i++)
+                    java.lang.reflect.Array.set(array, i, readValue(in));
+                return array;
+            }
+            default: throw new IOException("Unknown annotation value tag " + tag);
+        }
+    }
+
+    private static Class<?> getPrimitiveClass(Type type) throws IOException
+    {
+        switch (type.getSort())
+        {
+            case Type.BOOLEAN: return boolean.class;
+            case Type.CHAR: return char.class;
+            case Type.BYTE: return byte.class;
+            case Type.SHORT: return short.class;
+            case Type.INT: return int.class;
+            case Type.FLOAT: return float.class;
+            case Type.LONG: return long.class;
+            case Type.DOUBLE: return double.class;
+            default: throw new IOException("Not a primitive type " + type);
+        }
+    }
 }
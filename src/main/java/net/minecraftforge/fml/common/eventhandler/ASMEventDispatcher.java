@@ -0,0 +1,294 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.eventhandler;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.fml.common.FMLLog;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Compiles a listener array into a single {@link EventDispatcher} class.
+ *
+ * The generated dispatch method calls {@link ASMEventHandler} subscribers directly instead of going
+ * through their wrappers, reads {@link Event#isCancelable()} and the generic type of the event once per post,
+ * and emits the priority phase changes inline. Listeners it can not call directly (context setters, custom
+ * {@link IEventListener}s, non public subscribers) are invoked through their interface like before.
+ *
+ * Dispatchers are only compiled for lists that have been posted {@link #HOT_THRESHOLD} times, on a background
+ * thread, so events fired once during loading never pay for class generation. Lists that have one get a new
+ * one whenever their listeners change, see {@link ListenerList}.
+ * Set -Dfml.disableEventDispatchers=true (or enable fml.LogContext) to always use the plain listener loop.
+ */
+class ASMEventDispatcher
+{
+    static final boolean ENABLED = !Boolean.parseBoolean(System.getProperty("fml.disableEventDispatchers", "false")) && !ASMEventHandler.GETCONTEXT;
+    static final int HOT_THRESHOLD = Integer.parseInt(System.getProperty("fml.eventDispatcherThreshold", "100"));
+
+    private static final AtomicInteger IDs = new AtomicInteger();
+    private static final String SUPER_NAME = Type.getInternalName(EventDispatcher.class);
+    private static final String EXCEPTION_NAME = Type.getInternalName(EventDispatcher.ListenerException.class);
+    private static final String EVENT_NAME = Type.getInternalName(Event.class);
+    private static final String EVENT_DESC = Type.getDescriptor(Event.class);
+    private static final String LISTENER_NAME = Type.getInternalName(IEventListener.class);
+    private static final String LISTENER_DESC = Type.getDescriptor(IEventListener.class);
+    private static final String PRIORITY_NAME = Type.getInternalName(EventPriority.class);
+    private static final String PRIORITY_DESC = Type.getDescriptor(EventPriority.class);
+    private static final String GENERIC_NAME = Type.getInternalName(IGenericEvent.class);
+    private static final String TYPE_DESC = Type.getDescriptor(java.lang.reflect.Type.class);
+
+    private static final int VAR_EVENT = 1;
+    private static final int VAR_INDEX = 2;
+    private static final int VAR_CANCELABLE = 3;
+    private static final int VAR_GENERIC = 4;
+    private static final int VAR_THROWABLE = 5;
+
+    /**
+     * Generates a dispatcher for the listeners.
+     *
+     * @return The dispatcher, or null if the plain loop in {@link EventBus#post(Event)} should be used instead.
+     */
+    @Nullable
+    static EventDispatcher create(IEventListener[] listeners)
+    {
+        if (!ENABLED || listeners.length == 0)
+            return null;
+
+        try
+        {
+            DispatcherClassLoader loader = new DispatcherClassLoader();
+            List<Object> args = new ArrayList<Object>();
+            String name = ASMEventDispatcher.class.getName() + "_" + IDs.getAndIncrement();
+            Class<?> cls = loader.define(name, generate(name.replace('.', '/'), listeners, loader, args));
+            return (EventDispatcher)cls.getConstructor(IEventListener[].class, Object[].class).newInstance(listeners, args.toArray());
+        }
+        catch (Exception e)
+        {
+            FMLLog.log.error("Failed to generate event dispatcher, falling back to the listener loop", e);
+            return null;
+        }
+    }
+
+    private static byte[] generate(String desc, IEventListener[] listeners, ClassLoader loader, List<Object> args)
+    {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, desc, null, SUPER_NAME, null);
+        cw.visitSource(".dynamic", null);
+
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "([" + LISTENER_DESC + "[Ljava/lang/Object;)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>", "([" + LISTENER_DESC + ")V", false);
+
+        boolean[] direct = new boolean[listeners.length];
+        boolean needsCancel = false;
+        boolean needsGeneric = false;
+        for (int x = 0; x < listeners.length; x++)
+        {
+            direct[x] = isDirect(listeners[x], loader);
+            if (direct[x])
+            {
+                ASMEventHandler handler = (ASMEventHandler)listeners[x];
+                needsCancel |= !handler.receiveCanceled();
+                needsGeneric |= handler.getFilter() != null;
+            }
+        }
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "dispatch", "(" + EVENT_DESC + ")V", null, null);
+        mv.visitCode();
+        Label start = new Label();
+        Label end = new Label();
+        Label catcher = new Label();
+        mv.visitTryCatchBlock(start, end, catcher, "java/lang/Throwable");
+
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, VAR_INDEX);
+        if (needsCancel)
+        {
+            mv.visitVarInsn(ALOAD, VAR_EVENT);
+            mv.visitMethodInsn(INVOKEVIRTUAL, EVENT_NAME, "isCancelable", "()Z", false);
+            mv.visitVarInsn(ISTORE, VAR_CANCELABLE);
+        }
+        if (needsGeneric)
+        {
+            mv.visitVarInsn(ALOAD, VAR_EVENT);
+            mv.visitTypeInsn(CHECKCAST, GENERIC_NAME);
+            mv.visitMethodInsn(INVOKEINTERFACE, GENERIC_NAME, "getGenericType", "()" + TYPE_DESC, true);
+            mv.visitVarInsn(ASTORE, VAR_GENERIC);
+        }
+
+        mv.visitLabel(start);
+        for (int x = 0; x < listeners.length; x++)
+        {
+            IEventListener listener = listeners[x];
+            mv.visitLdcInsn(x);
+            mv.visitVarInsn(ISTORE, VAR_INDEX);
+
+            if (listener instanceof EventPriority)
+            {
+                mv.visitVarInsn(ALOAD, VAR_EVENT);
+                mv.visitFieldInsn(GETSTATIC, PRIORITY_NAME, ((EventPriority)listener).name(), PRIORITY_DESC);
+                mv.visitMethodInsn(INVOKEVIRTUAL, EVENT_NAME, "setPhase", "(" + PRIORITY_DESC + ")V", false);
+            }
+            else if (direct[x])
+            {
+                ASMEventHandler handler = (ASMEventHandler)listener;
+                Method method = handler.getMethod();
+                String owner = Type.getInternalName(method.getDeclaringClass());
+                Label skip = new Label();
+
+                if (!handler.receiveCanceled())
+                {
+                    Label run = new Label();
+                    mv.visitVarInsn(ILOAD, VAR_CANCELABLE);
+                    mv.visitJumpInsn(IFEQ, run);
+                    mv.visitVarInsn(ALOAD, VAR_EVENT);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, EVENT_NAME, "isCanceled", "()Z", false);
+                    mv.visitJumpInsn(IFNE, skip);
+                    mv.visitLabel(run);
+                }
+                if (handler.getFilter() != null)
+                {
+                    mv.visitVarInsn(ALOAD, VAR_GENERIC);
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitFieldInsn(GETFIELD, desc, "filter" + x, TYPE_DESC);
+                    mv.visitJumpInsn(IF_ACMPNE, skip);
+                    addField(cw, init, desc, "filter" + x, TYPE_DESC, "java/lang/reflect/Type", args, handler.getFilter());
+                }
+
+                boolean isStatic = handler.getInstance() == null;
+                if (!isStatic)
+                {
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitFieldInsn(GETFIELD, desc, "target" + x, "L" + owner + ";");
+                    addField(cw, init, desc, "target" + x, "L" + owner + ";", owner, args, handler.getInstance());
+                }
+                mv.visitVarInsn(ALOAD, VAR_EVENT);
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(method.getParameterTypes()[0]));
+                mv.visitMethodInsn(isStatic ? INVOKESTATIC : INVOKEVIRTUAL, owner, method.getName(), Type.getMethodDescriptor(method), false);
+                int size = Type.getReturnType(method).getSize();
+                if (size == 2)
+                    mv.visitInsn(POP2);
+                else if (size == 1)
+                    mv.visitInsn(POP);
+                mv.visitLabel(skip);
+            }
+            else
+            {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, desc, "listener" + x, LISTENER_DESC);
+                mv.visitVarInsn(ALOAD, VAR_EVENT);
+                mv.visitMethodInsn(INVOKEINTERFACE, LISTENER_NAME, "invoke", "(" + EVENT_DESC + ")V", true);
+                addField(cw, init, desc, "listener" + x, LISTENER_DESC, LISTENER_NAME, args, listener);
+            }
+        }
+        mv.visitLabel(end);
+        mv.visitInsn(RETURN);
+
+        mv.visitLabel(catcher);
+        mv.visitVarInsn(ASTORE, VAR_THROWABLE);
+        mv.visitTypeInsn(NEW, EXCEPTION_NAME);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ILOAD, VAR_INDEX);
+        mv.visitVarInsn(ALOAD, VAR_THROWABLE);
+        mv.visitMethodInsn(INVOKESPECIAL, EXCEPTION_NAME, "<init>", "(ILjava/lang/Throwable;)V", false);
+        mv.visitInsn(ATHROW);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Declares a field holding one of the constructor arguments, and assigns it in the constructor.
+     */
+    private static void addField(ClassWriter cw, MethodVisitor init, String desc, String name, String fieldDesc, String castType, List<Object> args, Object value)
+    {
+        cw.visitField(ACC_PRIVATE, name, fieldDesc, null, null).visitEnd();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 2);
+        init.visitLdcInsn(args.size());
+        init.visitInsn(AALOAD);
+        init.visitTypeInsn(CHECKCAST, castType);
+        init.visitFieldInsn(PUTFIELD, desc, name, fieldDesc);
+        args.add(value);
+    }
+
+    /**
+     * Whether generated code can call the subscriber method of the listener itself,
+     * which needs both the method and the classes it mentions to be public and visible from our loader.
+     */
+    private static boolean isDirect(IEventListener listener, ClassLoader loader)
+    {
+        if (!(listener instanceof ASMEventHandler))
+            return false;
+        Method method = ((ASMEventHandler)listener).getMethod();
+        Class<?> owner = method.getDeclaringClass();
+        Class<?> eventType = method.getParameterTypes()[0];
+        return Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(owner.getModifiers()) && !owner.isInterface() &&
+                Modifier.isPublic(eventType.getModifiers()) && isVisible(owner, loader) && isVisible(eventType, loader);
+    }
+
+    private static boolean isVisible(Class<?> cls, ClassLoader loader)
+    {
+        try
+        {
+            return Class.forName(cls.getName(), false, loader) == cls;
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Each dispatcher gets its own loader so that replaced dispatchers can be unloaded.
+     */
+    private static class DispatcherClassLoader extends ClassLoader
+    {
+        private DispatcherClassLoader()
+        {
+            super(DispatcherClassLoader.class.getClassLoader());
+        }
+
+        public Class<?> define(String name, byte[] data)
+        {
+            return defineClass(name, data, 0, data.length);
+        }
+    }
+}
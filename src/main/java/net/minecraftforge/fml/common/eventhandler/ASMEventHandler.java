@@ -21,11 +21,21 @@ package net.minecraftforge.fml.common.eventhandler;
 
 import static org.objectweb.asm.Opcodes.*;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
+import net.minecraftforge.fml.common.FMLLog;
 import net.minecraftforge.fml.common.ModContainer;
 
 import org.apache.logging.log4j.ThreadContext;
@@ -33,18 +43,29 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 
-import com.google.common.collect.Maps;
-
 public class ASMEventHandler implements IEventListener
 {
     private static int IDs = 0;
     private static final String HANDLER_DESC = Type.getInternalName(IEventListener.class);
     private static final String HANDLER_FUNC_DESC = Type.getMethodDescriptor(IEventListener.class.getDeclaredMethods()[0]);
     private static final ASMClassLoader LOADER = new ASMClassLoader();
-    private static final HashMap<Method, Class<?>> cache = Maps.newHashMap();
-    private static final boolean GETCONTEXT = Boolean.parseBoolean(System.getProperty("fml.LogContext", "false"));
+    private static final ConcurrentMap<Method, Class<?>> cache = new ConcurrentHashMap<Method, Class<?>>();
+    /**
+     * Lambda factories, shared by every instance subscribing the same method. Null values are stored
+     * as {@link #NO_FACTORY}, for methods the metafactory refused, which use a generated class instead.
+     */
+    private static final ConcurrentMap<Method, MethodHandle> factories = new ConcurrentHashMap<Method, MethodHandle>();
+    private static final MethodHandle NO_FACTORY = MethodHandles.constant(IEventListener.class, null);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(void.class, Event.class);
+    private static final boolean USE_LAMBDAS = !Boolean.parseBoolean(System.getProperty("fml.asmEventHandlers", "false"));
+    static final AtomicInteger wrapperClasses = new AtomicInteger();
+    static final AtomicInteger lambdaFactories = new AtomicInteger();
+    static final boolean GETCONTEXT = Boolean.parseBoolean(System.getProperty("fml.LogContext", "false"));
 
     private final IEventListener handler;
+    private final Object instance;
+    private final Method method;
     private final SubscribeEvent subInfo;
     private ModContainer owner;
     private String readable;
@@ -59,7 +80,12 @@ public class ASMEventHandler implements IEventListener
     public ASMEventHandler(Object target, Method method, ModContainer owner, boolean isGeneric) throws Exception
     {
         this.owner = owner;
-        if (Modifier.isStatic(method.getModifiers()))
+        this.method = method;
+        this.instance = Modifier.isStatic(method.getModifiers()) ? null : target;
+        IEventListener lambda = USE_LAMBDAS ? createLambda(target, method) : null;
+        if (lambda != null)
+            handler = lambda;
+        else if (Modifier.isStatic(method.getModifiers()))
             handler = (IEventListener)createWrapper(method).newInstance();
         else
             handler = (IEventListener)createWrapper(method).getConstructor(Object.class).newInstance(target);
@@ -75,36 +101,150 @@ public class ASMEventHandler implements IEventListener
         }
     }
 
-    @SuppressWarnings("rawtypes")
     @Override
     public void invoke(Event event)
     {
         if (GETCONTEXT)
             ThreadContext.put("mod", owner == null ? "" : owner.getName());
-        if (handler != null)
+        if (handler != null && accepts(event))
         {
-            if (!event.isCancelable() || !event.isCanceled() || subInfo.receiveCanceled())
-            {
-                if (filter == null || filter == ((IGenericEvent)event).getGenericType())
-                {
-                    handler.invoke(event);
-                }
-            }
+            handler.invoke(event);
         }
         if (GETCONTEXT)
             ThreadContext.remove("mod");
     }
 
+    /**
+     * Whether the handler wants the event in its current state, based on its cancellation and generic filters.
+     */
+    @SuppressWarnings("rawtypes")
+    boolean accepts(Event event)
+    {
+        if (!event.isCancelable() || !event.isCanceled() || subInfo.receiveCanceled())
+        {
+            return filter == null || filter == ((IGenericEvent)event).getGenericType();
+        }
+        return false;
+    }
+
+    /**
+     * Invokes the handler without checking {@link #accepts(Event)}, for callers that already did.
+     */
+    void invokeAccepted(Event event)
+    {
+        if (GETCONTEXT)
+            ThreadContext.put("mod", owner == null ? "" : owner.getName());
+        try
+        {
+            if (handler != null)
+                handler.invoke(event);
+        }
+        finally
+        {
+            if (GETCONTEXT)
+                ThreadContext.remove("mod");
+        }
+    }
+
     public EventPriority getPriority()
     {
         return subInfo.priority();
     }
 
+    /**
+     * The object the subscribed method is invoked on, or null for static subscribers.
+     */
+    @Nullable
+    Object getInstance()
+    {
+        return instance;
+    }
+
+    @Nullable
+    ModContainer getOwner()
+    {
+        return owner;
+    }
+
+    Method getMethod()
+    {
+        return method;
+    }
+
+    boolean receiveCanceled()
+    {
+        return subInfo.receiveCanceled();
+    }
+
+    boolean isAsync()
+    {
+        return subInfo.async();
+    }
+
+    /**
+     * The generic type this handler is restricted to, or null if it accepts every generic type.
+     */
+    @Nullable
+    java.lang.reflect.Type getFilter()
+    {
+        return filter;
+    }
+
+    /**
+     * Builds the handler through {@link LambdaMetafactory}, so that every instance subscribing the same method
+     * shares one VM anonymous class instead of each method defining a named class in our own class loader.
+     *
+     * @return The handler, or null if the method has to be wrapped by {@link #createWrapper(Method)}
+     */
+    @Nullable
+    private static IEventListener createLambda(Object target, Method callback)
+    {
+        MethodHandle factory = factories.get(callback);
+        if (factory == null)
+        {
+            factory = createFactory(callback);
+            MethodHandle existing = factories.putIfAbsent(callback, factory);
+            if (existing != null)
+                factory = existing;
+            else if (factory != NO_FACTORY)
+                lambdaFactories.incrementAndGet();
+        }
+        if (factory == NO_FACTORY)
+            return null;
+        try
+        {
+            return Modifier.isStatic(callback.getModifiers()) ? (IEventListener)factory.invoke() : (IEventListener)factory.invoke(target);
+        }
+        catch (Throwable e)
+        {
+            FMLLog.log.debug("Unable to create a lambda event handler for {}, using a generated class instead", callback, e);
+            return null;
+        }
+    }
+
+    private static MethodHandle createFactory(Method callback)
+    {
+        try
+        {
+            boolean isStatic = Modifier.isStatic(callback.getModifiers());
+            MethodType factoryType = isStatic ? MethodType.methodType(IEventListener.class) : MethodType.methodType(IEventListener.class, callback.getDeclaringClass());
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "invoke", factoryType, INVOKE_TYPE, LOOKUP.unreflect(callback),
+                    MethodType.methodType(void.class, callback.getParameterTypes()[0]));
+            return site.getTarget();
+        }
+        catch (Throwable e)
+        {
+            FMLLog.log.debug("Unable to create a lambda event handler for {}, using a generated class instead", callback, e);
+            return NO_FACTORY;
+        }
+    }
+
     public Class<?> createWrapper(Method callback)
     {
-        if (cache.containsKey(callback))
+        Class<?> cached = cache.get(callback);
+        if (cached != null)
         {
-            return cache.get(callback);
+            return cached;
         }
 
         ClassWriter cw = new ClassWriter(0);
@@ -165,6 +305,7 @@ public class ASMEventHandler implements IEventListener
         cw.visitEnd();
         Class<?> ret = LOADER.define(name, cw.toByteArray());
         cache.put(callback, ret);
+        wrapperClasses.incrementAndGet();
         return ret;
     }
 
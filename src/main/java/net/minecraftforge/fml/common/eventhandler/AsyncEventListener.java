@@ -0,0 +1,204 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.eventhandler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.minecraftforge.fml.common.FMLLog;
+
+/**
+ * Listener for handlers subscribed with {@link SubscribeEvent#async()}.
+ *
+ * The cancellation and generic filters are still checked on the posting thread, at the handler's priority.
+ * Accepted events are then queued, and handed to the handler on a shared pool of background threads.
+ * Every handler has one lane per thread, each with its own queue. Events that implement {@link IOrderedEvent} pick
+ * their lane by key, so a handler sees the events of one key in the order they were posted, while events of other keys
+ * and other handlers run in parallel. All other events share one lane, so they are handled in the order they were posted.
+ *
+ * The queues of a handler hold at most fml.asyncEventQueueSize events. When a handler falls that far behind,
+ * further events are dropped and counted, so the posting thread is never blocked and never runs the handler itself.
+ * Exceptions are passed to the bus' {@link IEventExceptionHandler}, but can not be rethrown to the poster.
+ *
+ * The handler gets the event object itself, possibly while the rest of the bus is still handling it,
+ * so it must only read state that does not change after its priority has been reached.
+ */
+public class AsyncEventListener implements IEventListener
+{
+    private static final int THREADS = Integer.parseInt(System.getProperty("fml.asyncEventThreads", String.valueOf(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)))));
+    private static final int QUEUE_SIZE = Integer.parseInt(System.getProperty("fml.asyncEventQueueSize", "1024"));
+    private static final int BATCH_SIZE = 64;
+    private static final ThreadGroup THREAD_GROUP = new ThreadGroup("FML Async Events");
+    private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory()
+        {
+            private AtomicInteger count = new AtomicInteger(1);
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(THREAD_GROUP, r, "FML Async Event Thread-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }
+    );
+    private static final AtomicInteger totalQueued = new AtomicInteger();
+    private static final AtomicLong totalDropped = new AtomicLong();
+
+    private final EventBus bus;
+    private final ASMEventHandler handler;
+    private final Lane[] lanes = new Lane[THREADS];
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger(); // Since the handler last caught up
+
+    AsyncEventListener(EventBus bus, ASMEventHandler handler)
+    {
+        this.bus = bus;
+        this.handler = handler;
+        for (int i = 0; i < lanes.length; i++)
+        {
+            lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * The events waiting for async handlers.
+     */
+    public static int getQueued()
+    {
+        return totalQueued.get();
+    }
+
+    /**
+     * The events async handlers missed, because they fell too far behind.
+     */
+    public static long getDropped()
+    {
+        return totalDropped.get();
+    }
+
+    @Override
+    public void invoke(Event event)
+    {
+        if (!handler.accepts(event))
+        {
+            return;
+        }
+        if (queued.incrementAndGet() > QUEUE_SIZE)
+        {
+            queued.decrementAndGet();
+            totalDropped.incrementAndGet();
+            if (dropped.getAndIncrement() == 0)
+            {
+                FMLLog.log.warn("Async event handler {} can not keep up, dropping events until it caught up", handler);
+            }
+            return;
+        }
+        totalQueued.incrementAndGet();
+        Lane lane = lanes[0];
+        if (event instanceof IOrderedEvent)
+        {
+            int hash = ((IOrderedEvent)event).getOrderKey().hashCode();
+            lane = lanes[((hash ^ hash >>> 16) & Integer.MAX_VALUE) % lanes.length];
+        }
+        lane.queue.offer(event);
+        lane.schedule();
+    }
+
+    private void deliver(Event event)
+    {
+        try
+        {
+            handler.invokeAccepted(event);
+        }
+        catch (Throwable throwable)
+        {
+            bus.handleAsyncException(this, event, throwable);
+        }
+    }
+
+    ASMEventHandler getHandler()
+    {
+        return handler;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Async " + handler;
+    }
+
+    /**
+     * Events that are handled one at a time, in order.
+     */
+    private class Lane implements Runnable
+    {
+        private final Queue<Event> queue = new ConcurrentLinkedQueue<Event>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void schedule()
+        {
+            if (scheduled.compareAndSet(false, true))
+            {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                Event event;
+                for (int x = 0; x < BATCH_SIZE && (event = queue.poll()) != null; x++)
+                {
+                    queued.decrementAndGet();
+                    totalQueued.decrementAndGet();
+                    deliver(event);
+                }
+            }
+            finally
+            {
+                scheduled.set(false);
+            }
+            // Reschedule instead of looping, so one busy handler can not starve the others.
+            if (!queue.isEmpty())
+            {
+                schedule();
+            }
+            else if (queued.get() == 0)
+            {
+                int missed = dropped.getAndSet(0);
+                if (missed > 0)
+                {
+                    FMLLog.log.warn("Async event handler {} caught up, it missed {} events", handler, missed);
+                }
+            }
+        }
+    }
+}
@@ -23,9 +23,13 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 
@@ -42,6 +46,9 @@ import com.google.common.reflect.TypeToken;
 public class EventBus implements IEventExceptionHandler
 {
     private static int maxID = 0;
+    private static final ConcurrentHashMap<Class<?>, ListenerList> listenerLists = new ConcurrentHashMap<Class<?>, ListenerList>();
+    private static final AtomicLong registrationTime = new AtomicLong();
+    private static final AtomicInteger registrationCount = new AtomicInteger();
 
     private ConcurrentHashMap<Object, ArrayList<IEventListener>> listeners = new ConcurrentHashMap<Object, ArrayList<IEventListener>>();
     private Map<Object,ModContainer> listenerOwners = new MapMaker().weakKeys().weakValues().makeMap();
@@ -68,6 +75,8 @@ public class EventBus implements IEventExceptionHandler
             return;
         }
 
+        long start = System.nanoTime();
+
         ModContainer activeModContainer = Loader.instance().activeModContainer();
         if (activeModContainer == null)
         {
@@ -118,38 +127,35 @@ public class EventBus implements IEventExceptionHandler
                 }
             }
         }
+        registrationTime.addAndGet(System.nanoTime() - start);
     }
 
     private void register(Class<?> eventType, Object target, Method method, final ModContainer owner)
     {
         try
         {
-            Constructor<?> ctr = eventType.getConstructor();
-            ctr.setAccessible(true);
-            Event event = (Event)ctr.newInstance();
+            ListenerList listenerList = getListenerList(eventType);
             final ASMEventHandler asm = new ASMEventHandler(target, method, owner, IGenericEvent.class.isAssignableFrom(eventType));
 
             IEventListener listener = asm;
-            if (IContextSetter.class.isAssignableFrom(eventType))
+            if (asm.isAsync() && IContextSetter.class.isAssignableFrom(eventType))
             {
-                listener = new IEventListener()
-                {
-                    @Override
-                    public void invoke(Event event)
-                    {
-                        ModContainer old = Loader.instance().activeModContainer();
-                        Loader.instance().setActiveModContainer(owner);
-                        ((IContextSetter)event).setModContainer(owner);
-                        asm.invoke(event);
-                        Loader.instance().setActiveModContainer(old);
-                    }
-                };
+                FMLLog.log.warn("Event handler {} for {} can not be async, as the event sets the active mod. It will run on the posting thread.", method, eventType);
+            }
+            else if (asm.isAsync())
+            {
+                listener = new AsyncEventListener(this, asm);
+            }
+            if (listener == asm && IContextSetter.class.isAssignableFrom(eventType))
+            {
+                listener = new ContextSetterListener(asm, owner);
             }
 
-            event.getListenerList().register(busID, asm.getPriority(), listener);
+            listenerList.register(busID, asm.getPriority(), listener);
 
             ArrayList<IEventListener> others = listeners.computeIfAbsent(target, k -> new ArrayList<>());
             others.add(listener);
+            registrationCount.incrementAndGet();
         }
         catch (Exception e)
         {
@@ -157,6 +163,33 @@ public class EventBus implements IEventExceptionHandler
         }
     }
 
+    /**
+     * The listener list of an event type is static, so it only has to be fetched from an instance once.
+     */
+    private static ListenerList getListenerList(Class<?> eventType) throws ReflectiveOperationException
+    {
+        ListenerList list = listenerLists.get(eventType);
+        if (list == null)
+        {
+            Constructor<?> ctr = eventType.getConstructor();
+            ctr.setAccessible(true);
+            list = ((Event)ctr.newInstance()).getListenerList();
+            listenerLists.put(eventType, list);
+        }
+        return list;
+    }
+
+    /**
+     * Logs how many event handlers have been registered across all buses, how long that took,
+     * and how many handler classes had to be generated for them.
+     */
+    public static void logRegistrationStats()
+    {
+        FMLLog.log.info("Registered {} event handlers in {} ms using {} lambda factories and {} generated handler classes",
+                registrationCount.get(), TimeUnit.NANOSECONDS.toMillis(registrationTime.get()),
+                ASMEventHandler.lambdaFactories.get(), ASMEventHandler.wrapperClasses.get());
+    }
+
     public void unregister(Object object)
     {
         ArrayList<IEventListener> list = listeners.remove(object);
@@ -168,9 +201,40 @@ public class EventBus implements IEventExceptionHandler
         }
     }
 
+    /**
+     * Whether posting this event to this bus would reach any listener, including ones registered for its super classes.
+     */
+    public boolean hasListeners(Event event)
+    {
+        return event.getListenerList().getListeners(busID).length > 0;
+    }
+
     public boolean post(Event event)
     {
-        IEventListener[] listeners = event.getListenerList().getListeners(busID);
+        if (EventProfiler.enabled && EventProfiler.sample())
+        {
+            return postProfiled(event);
+        }
+
+        ListenerList listenerList = event.getListenerList();
+        EventDispatcher dispatcher = listenerList.getDispatcher(busID);
+        if (dispatcher != null)
+        {
+            try
+            {
+                dispatcher.dispatch(event);
+            }
+            catch (EventDispatcher.ListenerException e)
+            {
+                Throwable throwable = e.getCause();
+                exceptionHandler.handleException(this, event, dispatcher.getListeners(), e.getIndex(), throwable);
+                Throwables.throwIfUnchecked(throwable);
+                throw new RuntimeException(throwable);
+            }
+            return (event.isCancelable() ? event.isCanceled() : false);
+        }
+
+        IEventListener[] listeners = listenerList.getListeners(busID);
         int index = 0;
         try
         {
@@ -188,6 +252,61 @@ public class EventBus implements IEventExceptionHandler
         return (event.isCancelable() ? event.isCanceled() : false);
     }
 
+    /**
+     * Same as the plain listener loop in {@link #post(Event)}, but records the time taken by every listener.
+     */
+    private boolean postProfiled(Event event)
+    {
+        IEventListener[] listeners = event.getListenerList().getListeners(busID);
+        int index = 0;
+        try
+        {
+            for (; index < listeners.length; index++)
+            {
+                IEventListener listener = listeners[index];
+                if (listener instanceof EventPriority)
+                {
+                    listener.invoke(event);
+                    continue;
+                }
+                long bytes = EventProfiler.allocatedBytes();
+                long start = System.nanoTime();
+                try
+                {
+                    listener.invoke(event);
+                }
+                finally
+                {
+                    long time = System.nanoTime() - start;
+                    EventProfiler.record(event, listener, time, EventProfiler.allocatedBytes() - bytes);
+                }
+            }
+        }
+        catch (Throwable throwable)
+        {
+            exceptionHandler.handleException(this, event, listeners, index, throwable);
+            Throwables.throwIfUnchecked(throwable);
+            throw new RuntimeException(throwable);
+        }
+        return (event.isCancelable() ? event.isCanceled() : false);
+    }
+
+    /**
+     * Reports an exception thrown by an async handler the same way {@link #post(Event)} would,
+     * although it can not be rethrown to whoever posted the event.
+     */
+    void handleAsyncException(IEventListener listener, Event event, Throwable throwable)
+    {
+        IEventListener[] listeners = event.getListenerList().getListeners(busID);
+        int index = Arrays.asList(listeners).indexOf(listener);
+        if (index < 0)
+        {
+            listeners = new IEventListener[] { listener }; // Unregistered while the event was queued
+            index = 0;
+        }
+        exceptionHandler.handleException(this, event, listeners, index, throwable);
+    }
+
     @Override
     public void handleException(EventBus bus, Event event, IEventListener[] listeners, int index, Throwable throwable)
     {
@@ -198,4 +317,40 @@ public class EventBus implements IEventExceptionHandler
             FMLLog.log.error("{}: {}", x, listeners[x]);
         }
     }
+
+    /**
+     * Makes the owner of the handler the active mod while it handles an {@link IContextSetter} event.
+     */
+    static class ContextSetterListener implements IEventListener
+    {
+        private final ASMEventHandler handler;
+        private final ModContainer owner;
+
+        private ContextSetterListener(ASMEventHandler handler, ModContainer owner)
+        {
+            this.handler = handler;
+            this.owner = owner;
+        }
+
+        @Override
+        public void invoke(Event event)
+        {
+            ModContainer old = Loader.instance().activeModContainer();
+            Loader.instance().setActiveModContainer(owner);
+            ((IContextSetter)event).setModContainer(owner);
+            handler.invoke(event);
+            Loader.instance().setActiveModContainer(old);
+        }
+
+        ASMEventHandler getHandler()
+        {
+            return handler;
+        }
+
+        @Override
+        public String toString()
+        {
+            return handler.toString();
+        }
+    }
 }
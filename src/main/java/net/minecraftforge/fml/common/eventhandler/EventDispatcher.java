@@ -0,0 +1,69 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.eventhandler;
+
+/**
+ * A dispatcher specialized for one listener array of one event type on one bus.
+ * Implementations are generated by {@link ASMEventDispatcher}, and fire the exact
+ * same sequence of listeners as walking {@link #getListeners()} would.
+ *
+ * This class is only public so that generated subclasses can extend it.
+ */
+public abstract class EventDispatcher
+{
+    private final IEventListener[] listeners;
+
+    protected EventDispatcher(IEventListener[] listeners)
+    {
+        this.listeners = listeners;
+    }
+
+    /**
+     * The listener array this dispatcher was compiled from, in firing order.
+     */
+    public IEventListener[] getListeners()
+    {
+        return listeners;
+    }
+
+    /**
+     * Fires every listener for the event.
+     *
+     * @throws ListenerException wrapping whatever a listener threw, along with the index of that listener in {@link #getListeners()}
+     */
+    public abstract void dispatch(Event event);
+
+    public static class ListenerException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        private final int index;
+
+        public ListenerException(int index, Throwable cause)
+        {
+            super("Exception in event listener " + index, cause, false, false);
+            this.index = index;
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+    }
+}
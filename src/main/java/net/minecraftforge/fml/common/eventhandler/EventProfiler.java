@@ -0,0 +1,282 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.eventhandler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.fml.common.ModContainer;
+
+/**
+ * Records how long every listener takes to handle each event type, while enabled.
+ *
+ * When disabled, the only cost to {@link EventBus#post(Event)} is checking {@link #enabled}.
+ * When enabled, one in every {@link #getSampling()} posts, picked at random, skips the generated dispatchers
+ * and times every listener, along with an estimate of the bytes it allocated when the JVM can report
+ * per thread allocations. Asking the JVM allocates on some versions, so the bytes one such call takes are
+ * measured once and subtracted. The other posts run as usual, and the recorded counts, times and bytes are
+ * scaled up by the sampling rate to estimate the totals.
+ *
+ * Listeners are recorded by name, so profiling does not keep unregistered listeners or their owners alive.
+ */
+public class EventProfiler
+{
+    public static final int DEFAULT_SAMPLING = 8;
+
+    static volatile boolean enabled = false;
+    private static volatile long stopTime;
+    private static volatile int sampling = DEFAULT_SAMPLING;
+    private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Entry>> entries = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Entry>>();
+    @Nullable
+    private static final com.sun.management.ThreadMXBean allocations = getAllocationBean();
+    private static final long allocationOverhead = getAllocationOverhead();
+
+    /**
+     * Starts recording for the given duration.
+     *
+     * @param sampling how many posts there are for every one that is timed, 1 to time all of them
+     */
+    public static void start(int seconds, int sampling)
+    {
+        EventProfiler.sampling = Math.max(1, sampling);
+        stopTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        enabled = true;
+    }
+
+    public static int getSampling()
+    {
+        return sampling;
+    }
+
+    public static void stop()
+    {
+        enabled = false;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void reset()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Returns the recorded entries, slowest in total first.
+     */
+    public static List<Entry> getResults()
+    {
+        List<Entry> ret = new ArrayList<Entry>();
+        for (Map<String, Entry> map : entries.values())
+        {
+            for (Entry entry : map.values())
+            {
+                synchronized (entry)
+                {
+                    ret.add(entry.copy());
+                }
+            }
+        }
+        ret.sort(Comparator.comparingLong(Entry::getTotalNanos).reversed());
+        return ret;
+    }
+
+    public static void writeCsv(Writer writer) throws IOException
+    {
+        writer.write("event,listener,mod,count,total_ns,max_ns,mean_ns,allocated_bytes\n");
+        for (Entry entry : getResults())
+        {
+            writer.write(String.format("%s,%s,%s,%d,%d,%d,%d,%d%n", csv(entry.getEventType().getName()), csv(entry.getListener()), csv(entry.getModId()),
+                    entry.getCount(), entry.getTotalNanos(), entry.getMaxNanos(), entry.getTotalNanos() / Math.max(1, entry.getCount()), entry.getAllocatedBytes()));
+        }
+    }
+
+    private static String csv(String value)
+    {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Whether to time this post.
+     */
+    static boolean sample()
+    {
+        int sampling = EventProfiler.sampling;
+        return sampling <= 1 || ThreadLocalRandom.current().nextInt(sampling) == 0;
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or 0 if the JVM can not tell.
+     */
+    static long allocatedBytes()
+    {
+        return allocations == null ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * The bytes one call to {@link #allocatedBytes()} allocates itself.
+     */
+    private static long getAllocationOverhead()
+    {
+        if (allocations == null)
+        {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (int x = 0; x < 16; x++)
+        {
+            long before = allocatedBytes();
+            min = Math.min(min, allocatedBytes() - before);
+        }
+        return Math.max(0, min);
+    }
+
+    static void record(Event event, IEventListener listener, long nanos, long bytes)
+    {
+        if (System.nanoTime() > stopTime)
+        {
+            enabled = false;
+        }
+        Map<String, Entry> map = entries.computeIfAbsent(event.getClass(), k -> new ConcurrentHashMap<String, Entry>());
+        String name = listener.toString();
+        Entry entry = map.get(name);
+        if (entry == null)
+        {
+            entry = map.computeIfAbsent(name, k -> new Entry(event.getClass(), k, getModId(listener)));
+        }
+        int sampling = EventProfiler.sampling;
+        synchronized (entry)
+        {
+            entry.count += sampling;
+            entry.totalNanos += nanos * sampling;
+            entry.maxNanos = Math.max(entry.maxNanos, nanos);
+            entry.allocatedBytes += Math.max(0, bytes - allocationOverhead) * sampling;
+        }
+    }
+
+    private static String getModId(IEventListener listener)
+    {
+        if (listener instanceof AsyncEventListener)
+        {
+            listener = ((AsyncEventListener)listener).getHandler();
+        }
+        else if (listener instanceof EventBus.ContextSetterListener)
+        {
+            listener = ((EventBus.ContextSetterListener)listener).getHandler();
+        }
+        ModContainer owner = listener instanceof ASMEventHandler ? ((ASMEventHandler)listener).getOwner() : null;
+        return owner == null ? "unknown" : owner.getModId();
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean getAllocationBean()
+    {
+        try
+        {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+            {
+                ((com.sun.management.ThreadMXBean)bean).setThreadAllocatedMemoryEnabled(true);
+                return (com.sun.management.ThreadMXBean)bean;
+            }
+        }
+        catch (LinkageError | UnsupportedOperationException e)
+        {
+            // Not a HotSpot JVM, allocations just will not be reported
+        }
+        return null;
+    }
+
+    public static class Entry
+    {
+        private final Class<?> eventType;
+        private final String listener;
+        private final String modId;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long allocatedBytes;
+
+        private Entry(Class<?> eventType, String listener, String modId)
+        {
+            this.eventType = eventType;
+            this.listener = listener;
+            this.modId = modId;
+        }
+
+        private Entry copy()
+        {
+            Entry ret = new Entry(eventType, listener, modId);
+            ret.count = count;
+            ret.totalNanos = totalNanos;
+            ret.maxNanos = maxNanos;
+            ret.allocatedBytes = allocatedBytes;
+            return ret;
+        }
+
+        public Class<?> getEventType()
+        {
+            return eventType;
+        }
+
+        public String getListener()
+        {
+            return listener;
+        }
+
+        public String getModId()
+        {
+            return modId;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public long getTotalNanos()
+        {
+            return totalNanos;
+        }
+
+        public long getMaxNanos()
+        {
+            return maxNanos;
+        }
+
+        public long getAllocatedBytes()
+        {
+            return allocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.eventhandler;
+
+/**
+ * An event that {@link SubscribeEvent#async()} handlers receive in order for each key, for example the entity or chunk
+ * it is about. Events with different keys may be handled in parallel, see {@link AsyncEventListener}.
+ */
+public interface IOrderedEvent
+{
+    /**
+     * Compared with {@link Object#equals(Object)}, and must not change.
+     */
+    Object getOrderKey();
+}
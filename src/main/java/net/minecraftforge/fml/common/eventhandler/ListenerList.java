@@ -20,20 +20,34 @@
 package net.minecraftforge.fml.common.eventhandler;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import javax.annotation.Nullable;
 
-
+/**
+ * Holds the listeners of one event type for every bus.
+ *
+ * Registration changes are made under a single lock, which rebuilds the immutable listener array
+ * of the changed list and all of its children, and publishes it right away. Posting only reads the
+ * published array, without locking or allocating. Once a list has been posted often enough, its
+ * dispatcher is compiled on a background thread and published the same way. Lists that had one are
+ * compiled again by the registration that changes them, so they never fall back to the slow path.
+ */
 public class ListenerList
 {
-    private static ImmutableList<ListenerList> allLists = ImmutableList.of();
+    private static final Object LOCK = new Object();
+    private static final ExecutorService compiler = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("FML Event Dispatcher Compiler").setDaemon(true).build());
+    private static volatile ImmutableList<ListenerList> allLists = ImmutableList.of();
     private static int maxSize = 0;
 
     @Nullable
     private ListenerList parent;
-    private ListenerListInst[] lists = new ListenerListInst[0];
+    private volatile ListenerListInst[] lists = new ListenerListInst[0];
 
     public ListenerList()
     {
@@ -44,11 +58,14 @@ public class ListenerList
     {
         // parent needs to be set before resize !
         this.parent = parent;
-        extendMasterList(this);
-        resizeLists(maxSize);
+        synchronized (LOCK)
+        {
+            extendMasterList(this);
+            resizeLists(maxSize);
+        }
     }
 
-    private synchronized static void extendMasterList(ListenerList inst)
+    private static void extendMasterList(ListenerList inst)
     {
         ImmutableList.Builder<ListenerList> builder = ImmutableList.builder();
         builder.addAll(allLists);
@@ -58,54 +75,58 @@ public class ListenerList
 
     public static void resize(int max)
     {
-        if (max <= maxSize)
-        {
-            return;
-        }
-        for (ListenerList list : allLists)
+        synchronized (LOCK)
         {
-            list.resizeLists(max);
+            if (max <= maxSize)
+            {
+                return;
+            }
+            for (ListenerList list : allLists)
+            {
+                list.resizeLists(max);
+            }
+            maxSize = max;
         }
-        maxSize = max;
     }
 
     public void resizeLists(int max)
     {
-        if (parent != null)
-        {
-            parent.resizeLists(max);
-        }
-
-        if (lists.length >= max)
-        {
-            return;
-        }
-
-        ListenerListInst[] newList = new ListenerListInst[max];
-        int x = 0;
-        for (; x < lists.length; x++)
-        {
-            newList[x] = lists[x];
-        }
-        for(; x < max; x++)
+        synchronized (LOCK)
         {
             if (parent != null)
             {
-                newList[x] = new ListenerListInst(parent.getInstance(x));
+                parent.resizeLists(max);
             }
-            else
+
+            if (lists.length >= max)
             {
-                newList[x] = new ListenerListInst();
+                return;
             }
+
+            ListenerListInst[] newList = Arrays.copyOf(lists, max);
+            for (int x = lists.length; x < max; x++)
+            {
+                if (parent != null)
+                {
+                    newList[x] = new ListenerListInst(parent.getInstance(x));
+                }
+                else
+                {
+                    newList[x] = new ListenerListInst();
+                }
+            }
+            lists = newList;
         }
-        lists = newList;
     }
 
     public static void clearBusID(int id)
     {
-        for (ListenerList list : allLists)
+        synchronized (LOCK)
         {
-            list.lists[id].dispose();
+            for (ListenerList list : allLists)
+            {
+                list.lists[id].dispose();
+            }
         }
     }
 
@@ -119,28 +140,71 @@ public class ListenerList
         return lists[id].getListeners();
     }
 
+    /**
+     * Returns the specialized dispatcher for the current listeners on the bus,
+     * or null if the listeners should simply be invoked in order.
+     */
+    @Nullable
+    public EventDispatcher getDispatcher(int id)
+    {
+        return lists[id].getDispatcher();
+    }
+
     public void register(int id, EventPriority priority, IEventListener listener)
     {
-        lists[id].register(priority, listener);
+        synchronized (LOCK)
+        {
+            lists[id].register(priority, listener);
+        }
     }
 
     public void unregister(int id, IEventListener listener)
     {
-        lists[id].unregister(listener);
+        synchronized (LOCK)
+        {
+            lists[id].unregister(listener);
+        }
     }
 
     public static void unregisterAll(int id, IEventListener listener)
     {
-        for (ListenerList list : allLists)
+        synchronized (LOCK)
+        {
+            for (ListenerList list : allLists)
+            {
+                list.unregister(id, listener);
+            }
+        }
+    }
+
+    /**
+     * An immutable listener array, and the dispatcher compiled from it once it got hot.
+     */
+    private static class Snapshot
+    {
+        private final IEventListener[] listeners;
+        @Nullable
+        private final EventDispatcher dispatcher;
+        // Only a hint for when to compile the dispatcher, so racy updates are fine.
+        private int posts;
+
+        private Snapshot(IEventListener[] listeners, @Nullable EventDispatcher dispatcher, int posts)
         {
-            list.unregister(id, listener);
+            this.listeners = listeners;
+            this.dispatcher = dispatcher;
+            this.posts = dispatcher == null && ASMEventDispatcher.ENABLED ? posts : -1;
         }
     }
 
+    /**
+     * All mutable state is only touched while holding {@link ListenerList#LOCK},
+     * except for {@link #snapshot} which is what readers see.
+     */
     private class ListenerListInst
     {
-        private boolean rebuild = true;
-        private IEventListener[] listeners;
+        private volatile Snapshot snapshot = new Snapshot(new IEventListener[0], null, 0);
+        // Set once a dispatcher was compiled, so rebuilds compile the next one right away.
+        private boolean hot;
         private ArrayList<ArrayList<IEventListener>> priorities;
         private ListenerListInst parent;
         private List<ListenerListInst> children;
@@ -165,7 +229,7 @@ public class ListenerList
             }
             priorities.clear();
             parent = null;
-            listeners = null;
+            snapshot = new Snapshot(new IEventListener[0], null, -1);
             if (children != null)
                 children.clear();
         }
@@ -175,6 +239,7 @@ public class ListenerList
             this();
             this.parent = parent;
             this.parent.addChild(this);
+            this.snapshot = rebuild();
         }
 
         /**
@@ -202,28 +267,44 @@ public class ListenerList
          *
          * List is returned in proper priority order.
          *
-         * Automatically rebuilds the internal Array cache if its information is out of date.
-         *
          * @return Array containing listeners
          */
         public IEventListener[] getListeners()
         {
-            if (shouldRebuild()) buildCache();
-            return listeners;
+            return snapshot.listeners;
         }
 
-        protected boolean shouldRebuild()
+        /**
+         * Returns the dispatcher compiled from the current listener array. Once the array has been
+         * requested often enough to be worth it, one is compiled in the background.
+         *
+         * @return The dispatcher, or null if there is none (yet).
+         */
+        @Nullable
+        public EventDispatcher getDispatcher()
         {
-            return rebuild;// || (parent != null && parent.shouldRebuild());
+            Snapshot current = snapshot;
+            if (current.posts >= 0 && ++current.posts >= ASMEventDispatcher.HOT_THRESHOLD)
+            {
+                current.posts = -1;
+                compiler.execute(() -> compile(current));
+            }
+            return current.dispatcher;
         }
 
-        protected void forceRebuild()
+        /**
+         * Publishes a dispatcher for the snapshot, unless a registration replaced it meanwhile.
+         */
+        private void compile(Snapshot current)
         {
-            this.rebuild = true;
-            if (this.children != null)
+            EventDispatcher dispatcher = ASMEventDispatcher.create(current.listeners);
+            synchronized (LOCK)
             {
-                for (ListenerListInst child : this.children)
-                    child.forceRebuild();
+                if (dispatcher != null && snapshot == current)
+                {
+                    snapshot = new Snapshot(current.listeners, dispatcher, -1);
+                    hot = true;
+                }
             }
         }
 
@@ -235,15 +316,25 @@ public class ListenerList
         }
 
         /**
-         * Rebuild the local Array of listeners, returns early if there is no work to do.
+         * Rebuilds and publishes the listener arrays of this list and all of its children.
          */
-        private void buildCache()
+        private void forceRebuild()
         {
-            if(parent != null && parent.shouldRebuild())
+            snapshot = rebuild();
+            if (this.children != null)
             {
-                parent.buildCache();
+                for (ListenerListInst child : this.children)
+                    child.forceRebuild();
             }
+        }
 
+        /**
+         * Builds the listener array of this list. Lists that were already specialized compile
+         * their new dispatcher here, on the registering thread, so that posting does not go back
+         * to the slow path after a runtime registration.
+         */
+        private Snapshot rebuild()
+        {
             ArrayList<IEventListener> ret = new ArrayList<IEventListener>();
             for (EventPriority value : EventPriority.values())
             {
@@ -254,8 +345,9 @@ public class ListenerList
                     ret.addAll(listeners);
                 }
             }
-            listeners = ret.toArray(new IEventListener[ret.size()]);
-            rebuild = false;
+            IEventListener[] listeners = ret.toArray(new IEventListener[ret.size()]);
+            EventDispatcher dispatcher = hot ? ASMEventDispatcher.create(listeners) : null;
+            return new Snapshot(listeners, dispatcher, 0);
         }
 
         public void register(EventPriority priority, IEventListener listener)
@@ -266,12 +358,14 @@ public class ListenerList
 
         public void unregister(IEventListener listener)
         {
+            boolean changed = false;
             for(ArrayList<IEventListener> list : priorities)
             {
-                if (list.remove(listener))
-                {
-                    this.forceRebuild();
-                }
+                changed |= list.remove(listener);
+            }
+            if (changed)
+            {
+                this.forceRebuild();
             }
         }
     }
@@ -31,4 +31,10 @@ public @interface SubscribeEvent
 {
     EventPriority priority() default EventPriority.NORMAL;
     boolean receiveCanceled() default false;
+
+    /**
+     * Runs the handler on a background thread instead of the posting thread, see {@link AsyncEventListener}.
+     * Only meant for handlers that read the event without changing it or the world, like logging.
+     */
+    boolean async() default false;
 }
@@ -45,10 +45,8 @@ public class FMLDeobfTweaker implements ITweaker {
         {
             classLoader.registerTransformer(transformer);
         }
-        classLoader.registerTransformer("net.minecraftforge.fml.common.asm.transformers.ModAccessTransformer");
-        classLoader.registerTransformer("net.minecraftforge.fml.common.asm.transformers.ItemStackTransformer");
-        classLoader.registerTransformer("net.minecraftforge.fml.common.asm.transformers.ItemBlockTransformer");
-        classLoader.registerTransformer("net.minecraftforge.fml.common.asm.transformers.ItemBlockSpecialTransformer");
+        // The mod access transformer and the ItemStack, ItemBlock and ItemBlockSpecial transformers, sharing one parse
+        classLoader.registerTransformer("net.minecraftforge.fml.common.asm.transformers.FMLDeobfTransformer");
         try
         {
             FMLLog.log.debug("Validating minecraft");
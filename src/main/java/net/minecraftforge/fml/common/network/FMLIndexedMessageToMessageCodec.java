@@ -46,6 +46,12 @@ public abstract class FMLIndexedMessageToMessageCodec<A> extends MessageToMessag
 
     public static final AttributeKey<ThreadLocal<WeakReference<FMLProxyPacket>>> INBOUNDPACKETTRACKER = AttributeKey.valueOf("fml:inboundpacket");
 
+    /**
+     * Marks a packet holding several messages, each prefixed with its length as a var int. Only used
+     * when no message type was registered with this discriminator.
+     */
+    public static final byte BATCH_DISCRIMINATOR = (byte)255;
+
     @Override
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception
     {
@@ -60,15 +66,28 @@ public abstract class FMLIndexedMessageToMessageCodec<A> extends MessageToMessag
         return this;
     }
 
+    public boolean hasDiscriminator(int discriminator)
+    {
+        return discriminators.containsKey((byte)discriminator);
+    }
+
     public abstract void encodeInto(ChannelHandlerContext ctx, A msg, ByteBuf target) throws Exception;
 
+    /**
+     * Writes the discriminator and contents of the message, as they are sent in a packet of its own.
+     */
+    public void encodeMessage(ChannelHandlerContext ctx, A msg, ByteBuf target) throws Exception
+    {
+        byte discriminator = types.get(msg.getClass());
+        target.writeByte(discriminator);
+        encodeInto(ctx, msg, target);
+    }
+
     @Override
     protected final void encode(ChannelHandlerContext ctx, A msg, List<Object> out) throws Exception
     {
         PacketBuffer buffer = new PacketBuffer(Unpooled.buffer());
-        byte discriminator = types.get(msg.getClass());
-        buffer.writeByte(discriminator);
-        encodeInto(ctx, msg, buffer);
+        encodeMessage(ctx, msg, buffer);
         FMLProxyPacket proxy = new FMLProxyPacket(buffer/*.copy()*/, ctx.channel().attr(NetworkRegistry.FML_CHANNEL).get());
         WeakReference<FMLProxyPacket> ref = ctx.channel().attr(INBOUNDPACKETTRACKER).get().get();
         FMLProxyPacket old = ref == null ? null : ref.get();
@@ -90,6 +109,25 @@ public abstract class FMLIndexedMessageToMessageCodec<A> extends MessageToMessag
         {
             FMLLog.log.error("The FMLIndexedCodec has received an empty buffer on channel {}, likely a result of a LAN server issue. Pipeline parts : {}", ctx.channel().attr(NetworkRegistry.FML_CHANNEL), ctx.pipeline().toString());
         }
+        ctx.channel().attr(INBOUNDPACKETTRACKER).get().set(new WeakReference<FMLProxyPacket>(msg));
+        if (payload.getByte(payload.readerIndex()) == BATCH_DISCRIMINATOR && !discriminators.containsKey(BATCH_DISCRIMINATOR))
+        {
+            payload.skipBytes(1);
+            while (payload.isReadable())
+            {
+                int length = ByteBufUtils.readVarInt(payload, 5);
+                out.add(decodeMessage(ctx, msg, payload.readSlice(length)));
+            }
+        }
+        else
+        {
+            out.add(decodeMessage(ctx, msg, payload));
+        }
+        payload.release();
+    }
+
+    private A decodeMessage(ChannelHandlerContext ctx, FMLProxyPacket msg, ByteBuf payload) throws Exception
+    {
         byte discriminator = payload.readByte();
         Class<? extends A> clazz = discriminators.get(discriminator);
         if(clazz == null)
@@ -97,10 +135,8 @@ public abstract class FMLIndexedMessageToMessageCodec<A> extends MessageToMessag
             throw new NullPointerException("Undefined message for discriminator " + discriminator + " in channel " + msg.channel());
         }
         A newMsg = clazz.newInstance();
-        ctx.channel().attr(INBOUNDPACKETTRACKER).get().set(new WeakReference<FMLProxyPacket>(msg));
         decodeInto(ctx, payload.slice(), newMsg);
-        out.add(newMsg);
-        payload.release();
+        return newMsg;
     }
 
     /**
@@ -150,13 +150,7 @@ public class FMLOutboundHandler extends ChannelOutboundHandlerAdapter {
             @Override
             public List<NetworkDispatcher> selectNetworks(Object args, ChannelHandlerContext context, FMLProxyPacket packet)
             {
-                ImmutableList.Builder<NetworkDispatcher> builder = ImmutableList.builder();
-                for (EntityPlayerMP player : FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList().getPlayers())
-                {
-                    NetworkDispatcher dispatcher = player.connection.netManager.channel().attr(NetworkDispatcher.FML_DISPATCHER).get();
-                    if (dispatcher != null) builder.add(dispatcher);
-                }
-                return builder.build();
+                return PlayerDispatcherIndex.getAll();
             }
         },
         /**
@@ -177,18 +171,7 @@ public class FMLOutboundHandler extends ChannelOutboundHandlerAdapter {
             @Override
             public List<NetworkDispatcher> selectNetworks(Object args, ChannelHandlerContext context, FMLProxyPacket packet)
             {
-                int dimension = (Integer)args;
-                ImmutableList.Builder<NetworkDispatcher> builder = ImmutableList.builder();
-                for (EntityPlayerMP player : FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList().getPlayers())
-                {
-                    if (dimension == player.dimension)
-                    {
-                        NetworkDispatcher dispatcher = player.connection.netManager.channel().attr(NetworkDispatcher.FML_DISPATCHER).get();
-                        // Null dispatchers may exist for fake players - skip them
-                        if (dispatcher != null) builder.add(dispatcher);
-                    }
-                }
-                return builder.build();
+                return PlayerDispatcherIndex.getDimension((Integer)args);
             }
         },
         /**
@@ -211,24 +194,7 @@ public class FMLOutboundHandler extends ChannelOutboundHandlerAdapter {
             @Override
             public List<NetworkDispatcher> selectNetworks(Object args, ChannelHandlerContext context, FMLProxyPacket packet)
             {
-                TargetPoint tp = (TargetPoint)args;
-                ImmutableList.Builder<NetworkDispatcher> builder = ImmutableList.builder();
-                for (EntityPlayerMP player : FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList().getPlayers())
-                {
-                    if (player.dimension == tp.dimension)
-                    {
-                        double d4 = tp.x - player.posX;
-                        double d5 = tp.y - player.posY;
-                        double d6 = tp.z - player.posZ;
-
-                        if (d4 * d4 + d5 * d5 + d6 * d6 < tp.range * tp.range)
-                        {
-                            NetworkDispatcher dispatcher = player.connection.netManager.channel().attr(NetworkDispatcher.FML_DISPATCHER).get();
-                            if (dispatcher != null) builder.add(dispatcher);
-                        }
-                    }
-                }
-                return builder.build();
+                return PlayerDispatcherIndex.getAroundPoint((TargetPoint)args);
             }
         },
         /**
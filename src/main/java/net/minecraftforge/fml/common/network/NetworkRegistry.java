@@ -77,7 +77,9 @@ public enum NetworkRegistry
 
     // Version 1: ServerHello only contains this value as a byte
     // Version 2: ServerHello additionally contains a 4 byte (int) dimension for the logging in client
-    public static final byte FML_PROTOCOL = 2;
+    // Version 3: The client unpacks message batches, see SimpleNetworkWrapper#enableBatching
+    public static final byte FML_PROTOCOL = 3;
+    public static final byte FML_PROTOCOL_BATCHING = 3;
 
     private NetworkRegistry()
     {
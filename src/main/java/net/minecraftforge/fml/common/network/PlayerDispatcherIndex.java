@@ -0,0 +1,299 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.MathHelper;
+import net.minecraftforge.common.util.FakePlayer;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.network.NetworkRegistry.TargetPoint;
+import net.minecraftforge.fml.common.network.handshake.NetworkDispatcher;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The {@link NetworkDispatcher}s of all players, by dimension and by 32 block cells, for the
+ * {@link FMLOutboundHandler.OutboundTarget#ALL}, {@link FMLOutboundHandler.OutboundTarget#DIMENSION} and
+ * {@link FMLOutboundHandler.OutboundTarget#ALLAROUNDPOINT} targets.
+ *
+ * Rebuilt on the server thread at the end of every tick in which a player crossed into another cell or moved more than
+ * half of {@link #MARGIN}, and whenever a player joins, leaves, respawns or changes dimension. Each rebuild is published as an immutable snapshot,
+ * so packets can be sent from any thread, and the dispatcher lists of the first two targets are shared by all packets.
+ * Players found by cell are still checked against their current position. A player that moved more than half of
+ * {@link #MARGIN} during the last tick, for example by flying fast or sending several moves at once, may also move further
+ * than {@link #MARGIN} before the next update, so until then every player of its dimension is checked instead. That is
+ * decided once per update, so sending a packet never scans the players. A player teleported within its dimension is
+ * found at its new position from the next update on.
+ */
+public class PlayerDispatcherIndex
+{
+    private static final int CELL_SHIFT = 5;
+    private static final double MARGIN = 16; // How far players can move between two updates, without being missed
+    private static volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Called at the end of every server tick, and after players joined, respawned or changed dimension.
+     */
+    public static void update()
+    {
+        update(null);
+    }
+
+    /**
+     * Called when the given player leaves, which is before it is removed from the player list.
+     */
+    public static void remove(EntityPlayer player)
+    {
+        update(player);
+    }
+
+    public static void clear()
+    {
+        snapshot = Snapshot.EMPTY;
+    }
+
+    static List<NetworkDispatcher> getAll()
+    {
+        return snapshot.all;
+    }
+
+    static List<NetworkDispatcher> getDimension(int dimension)
+    {
+        Dimension dim = snapshot.dimensions.get(dimension);
+        return dim == null ? ImmutableList.<NetworkDispatcher>of() : dim.dispatchers;
+    }
+
+    static List<NetworkDispatcher> getAroundPoint(TargetPoint tp)
+    {
+        Dimension dim = snapshot.dimensions.get(tp.dimension);
+        if (dim == null)
+        {
+            return ImmutableList.of();
+        }
+        double reach = tp.range + MARGIN;
+        int minX = MathHelper.floor(tp.x - reach) >> CELL_SHIFT;
+        int maxX = MathHelper.floor(tp.x + reach) >> CELL_SHIFT;
+        int minZ = MathHelper.floor(tp.z - reach) >> CELL_SHIFT;
+        int maxZ = MathHelper.floor(tp.z + reach) >> CELL_SHIFT;
+
+        ImmutableList.Builder<NetworkDispatcher> builder = null;
+        if ((long)(maxX - minX + 1) * (maxZ - minZ + 1) > dim.cells.size() || dim.moving)
+        {
+            // Covers more cells than there are players in the dimension, or a player may have left its cell, check every player
+            builder = addInRange(builder, dim.entries, tp);
+        }
+        else
+        {
+            for (int cx = minX; cx <= maxX; cx++)
+            {
+                for (int cz = minZ; cz <= maxZ; cz++)
+                {
+                    List<Entry> cell = dim.cells.get(getKey(cx, cz));
+                    if (cell != null)
+                    {
+                        builder = addInRange(builder, cell, tp);
+                    }
+                }
+            }
+        }
+        return builder == null ? ImmutableList.<NetworkDispatcher>of() : builder.build();
+    }
+
+    /**
+     * The dimensions of the players that moved more than the given distance since the entries were made.
+     */
+    private static IntSet getMoved(List<Entry> entries, double distance)
+    {
+        IntSet moved = new IntOpenHashSet();
+        for (Entry entry : entries)
+        {
+            if (Math.abs(entry.player.posX - entry.x) > distance || Math.abs(entry.player.posZ - entry.z) > distance)
+            {
+                moved.add(entry.dimension);
+            }
+        }
+        return moved;
+    }
+
+    @Nullable
+    private static ImmutableList.Builder<NetworkDispatcher> addInRange(@Nullable ImmutableList.Builder<NetworkDispatcher> builder, List<Entry> entries, TargetPoint tp)
+    {
+        for (Entry entry : entries)
+        {
+            EntityPlayerMP player = entry.player;
+            if (player.dimension == tp.dimension)
+            {
+                double d4 = tp.x - player.posX;
+                double d5 = tp.y - player.posY;
+                double d6 = tp.z - player.posZ;
+
+                if (d4 * d4 + d5 * d5 + d6 * d6 < tp.range * tp.range)
+                {
+                    if (builder == null)
+                    {
+                        builder = ImmutableList.builder();
+                    }
+                    builder.add(entry.dispatcher);
+                }
+            }
+        }
+        return builder;
+    }
+
+    private static synchronized void update(@Nullable EntityPlayer leaving)
+    {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        if (server == null || server.getPlayerList() == null)
+        {
+            snapshot = Snapshot.EMPTY;
+            return;
+        }
+        List<EntityPlayerMP> players = server.getPlayerList().getPlayers();
+        List<Entry> entries = new ArrayList<Entry>(players.size());
+        for (EntityPlayerMP player : players)
+        {
+            if (player == leaving || player instanceof FakePlayer || player.connection == null)
+            {
+                continue;
+            }
+            NetworkDispatcher dispatcher = player.connection.netManager.channel().attr(NetworkDispatcher.FML_DISPATCHER).get();
+            // Null dispatchers may exist for fake players - skip them
+            if (dispatcher != null)
+            {
+                entries.add(new Entry(player, dispatcher));
+            }
+        }
+
+        Snapshot current = snapshot;
+        IntSet moving = getMoved(current.entries, MARGIN / 2);
+        if (!current.entries.equals(entries) || !moving.isEmpty() || current.moving)
+        {
+            snapshot = new Snapshot(entries, moving);
+        }
+    }
+
+    private static long getKey(int cx, int cz)
+    {
+        return (long)cx << 32 | (cz & 0xFFFFFFFFL);
+    }
+
+    private static class Entry
+    {
+        private final EntityPlayerMP player;
+        private final NetworkDispatcher dispatcher;
+        private final int dimension;
+        private final double x;
+        private final double z;
+        private final int cellX;
+        private final int cellZ;
+
+        private Entry(EntityPlayerMP player, NetworkDispatcher dispatcher)
+        {
+            this.player = player;
+            this.dispatcher = dispatcher;
+            this.dimension = player.dimension;
+            this.x = player.posX;
+            this.z = player.posZ;
+            this.cellX = MathHelper.floor(x) >> CELL_SHIFT;
+            this.cellZ = MathHelper.floor(z) >> CELL_SHIFT;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Entry))
+            {
+                return false;
+            }
+            Entry other = (Entry)obj;
+            return player == other.player && dispatcher == other.dispatcher && dimension == other.dimension && cellX == other.cellX && cellZ == other.cellZ;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(player);
+        }
+    }
+
+    private static class Dimension
+    {
+        private final List<Entry> entries = new ArrayList<Entry>();
+        private final Long2ObjectMap<List<Entry>> cells = new Long2ObjectOpenHashMap<List<Entry>>();
+        private ImmutableList<NetworkDispatcher> dispatchers;
+        private boolean moving;
+    }
+
+    private static class Snapshot
+    {
+        private static final Snapshot EMPTY = new Snapshot(Collections.<Entry>emptyList(), new IntOpenHashSet());
+
+        private final List<Entry> entries;
+        private final ImmutableList<NetworkDispatcher> all;
+        private final Map<Integer, Dimension> dimensions = new HashMap<Integer, Dimension>();
+        private final boolean moving;
+
+        private Snapshot(List<Entry> entries, IntSet moving)
+        {
+            this.entries = entries;
+            this.moving = !moving.isEmpty();
+            ImmutableList.Builder<NetworkDispatcher> all = ImmutableList.builder();
+            for (Entry entry : entries)
+            {
+                all.add(entry.dispatcher);
+                Dimension dim = dimensions.computeIfAbsent(entry.dimension, k -> new Dimension());
+                dim.entries.add(entry);
+                dim.cells.computeIfAbsent(getKey(entry.cellX, entry.cellZ), k -> new ArrayList<Entry>()).add(entry);
+            }
+            for (Dimension dim : dimensions.values())
+            {
+                ImmutableList.Builder<NetworkDispatcher> dispatchers = ImmutableList.builder();
+                for (Entry entry : dim.entries)
+                {
+                    dispatchers.add(entry.dispatcher);
+                }
+                dim.dispatchers = dispatchers.build();
+            }
+            for (int dimension : moving)
+            {
+                Dimension dim = dimensions.get(dimension);
+                if (dim != null)
+                {
+                    dim.moving = true;
+                }
+            }
+            this.all = all.build();
+        }
+    }
+}
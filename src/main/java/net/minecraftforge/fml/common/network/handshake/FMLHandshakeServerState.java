@@ -60,6 +60,7 @@ enum FMLHandshakeServerState implements IHandshakeState<FMLHandshakeServerState>
             if (msg instanceof FMLHandshakeMessage.ClientHello)
             {
                 FMLLog.log.info("Client protocol version {}", Integer.toHexString(((FMLHandshakeMessage.ClientHello)msg).protocolVersion()));
+                ctx.channel().attr(NetworkDispatcher.FML_DISPATCHER).get().setRemoteProtocolVersion(((FMLHandshakeMessage.ClientHello)msg).protocolVersion());
                 return;
             }
 
@@ -112,6 +112,7 @@ public class NetworkDispatcher extends SimpleChannelInboundHandler<Packet<?>> im
     private INetHandler netHandler;
     private Map<String,String> modList = Collections.emptyMap();
     private int overrideLoginDim;
+    private byte remoteProtocolVersion;
 
     public NetworkDispatcher(NetworkManager manager)
     {
@@ -167,6 +168,19 @@ public class NetworkDispatcher extends SimpleChannelInboundHandler<Packet<?>> im
         this.modList = modList;
     }
 
+    protected void setRemoteProtocolVersion(byte version)
+    {
+        this.remoteProtocolVersion = version;
+    }
+
+    /**
+     * The FML protocol version the client sent in its hello, or 0 on the client side and before the hello arrived.
+     */
+    public byte getRemoteProtocolVersion()
+    {
+        return remoteProtocolVersion;
+    }
+
     private void insertIntoChannel()
     {
         this.manager.channel().config().setAutoRead(false);
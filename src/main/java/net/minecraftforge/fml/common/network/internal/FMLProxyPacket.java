@@ -25,6 +25,7 @@ import io.netty.channel.embedded.EmbeddedChannel;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import net.minecraft.network.INetHandler;
 import net.minecraft.network.NetworkManager;
@@ -41,7 +42,7 @@ import net.minecraftforge.fml.common.network.handshake.NetworkDispatcher;
 import net.minecraftforge.fml.relauncher.Side;
 
 import com.google.common.collect.ConcurrentHashMultiset;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Multiset.Entry;
 import com.google.common.collect.Multisets;
@@ -56,6 +57,10 @@ public class FMLProxyPacket implements Packet<INetHandler> {
     private NetworkDispatcher dispatcher;
     private static Multiset<String> badPackets = ConcurrentHashMultiset.create();
     private static int packetCountWarning = Integer.parseInt(System.getProperty("fml.badPacketCounter", "100"));
+    private static final LongAdder encodes = new LongAdder();
+    private static final LongAdder encodedBytes = new LongAdder();
+    private static final LongAdder sentParts = new LongAdder();
+    private volatile EncodedParts encoded;
 
     public FMLProxyPacket(SPacketCustomPayload original)
     {
@@ -145,40 +150,49 @@ public class FMLProxyPacket implements Packet<INetHandler> {
     static final int PART_SIZE = 0x100000 - 0x50; // Make it a constant so that it gets inlined below.
     // FIXME int overflow
     public static final int MAX_LENGTH = PART_SIZE * 255;
+    /**
+     * Splits the payload into packets of at most {@link #PART_SIZE} bytes. The payload is only split and copied the first time,
+     * when this packet is sent to several players the later calls return views of the same parts.
+     */
     public List<Packet<INetHandlerPlayClient>> toS3FPackets() throws IOException
     {
-        List<Packet<INetHandlerPlayClient>> ret = Lists.newArrayList();
-        byte[] data = payload.array();
-
-        if (data.length < PART_SIZE)
-        {
-            ret.add(new SPacketCustomPayload(channel, new PacketBuffer(payload.duplicate())));
-        }
-        else
+        EncodedParts parts = encoded;
+        if (parts == null)
         {
-            int parts = (int)Math.ceil(data.length / (double)(PART_SIZE - 1)); //We add a byte header so -1
-            if (parts > 255)
-            {
-                throw new IllegalArgumentException("Payload may not be larger than " + MAX_LENGTH + " bytes");
-            }
-            PacketBuffer preamble = new PacketBuffer(Unpooled.buffer());
-            preamble.writeString(channel);
-            preamble.writeByte(parts);
-            preamble.writeInt(data.length);
-            ret.add(new SPacketCustomPayload("FML|MP", preamble));
-
-            int offset = 0;
-            for (int x = 0; x < parts; x++)
+            synchronized (this)
             {
-                int length = Math.min(PART_SIZE, data.length - offset + 1);
-                byte[] tmp = new byte[length];
-                tmp[0] = (byte)(x & 0xFF);
-                System.arraycopy(data, offset, tmp, 1, tmp.length - 1);
-                offset += tmp.length - 1;
-                ret.add(new SPacketCustomPayload("FML|MP", new PacketBuffer(Unpooled.wrappedBuffer(tmp))));
+                parts = encoded;
+                if (parts == null)
+                {
+                    encoded = parts = new EncodedParts(channel, payload);
+                }
             }
         }
-        return ret;
+        return parts.toPackets();
+    }
+
+    /**
+     * The number of times a payload was split into parts by {@link #toS3FPackets()}, which is at most once per packet.
+     */
+    public static long getEncodeCount()
+    {
+        return encodes.sum();
+    }
+
+    /**
+     * The number of payload bytes copied while splitting large payloads, payloads below {@link #PART_SIZE} are never copied.
+     */
+    public static long getEncodedBytes()
+    {
+        return encodedBytes.sum();
+    }
+
+    /**
+     * The number of parts handed out by {@link #toS3FPackets()}, which is once per part and recipient.
+     */
+    public static long getSentParts()
+    {
+        return sentParts.sum();
     }
 
     public void setTarget(Side target)
@@ -213,6 +227,74 @@ public class FMLProxyPacket implements Packet<INetHandler> {
         pkt.dispatcher = dispatcher;
         pkt.netHandler = netHandler;
         pkt.target = target;
+        pkt.encoded = encoded;
         return pkt;
     }
+
+    /**
+     * The payload split into the buffers of its custom payload packets. Every recipient gets its own duplicates of
+     * these buffers, because writing a packet moves the reader index of its buffer.
+     */
+    private static class EncodedParts
+    {
+        private final String[] channels;
+        private final ByteBuf[] buffers;
+
+        private EncodedParts(String channel, ByteBuf payload)
+        {
+            int length = payload.readableBytes();
+            if (length < PART_SIZE)
+            {
+                channels = new String[] { channel };
+                buffers = new ByteBuf[] { payload.slice() };
+                encodes.increment();
+                return;
+            }
+
+            int parts = (int)Math.ceil(length / (double)(PART_SIZE - 1)); //We add a byte header so -1
+            if (parts > 255)
+            {
+                throw new IllegalArgumentException("Payload may not be larger than " + MAX_LENGTH + " bytes");
+            }
+            channels = new String[parts + 1];
+            buffers = new ByteBuf[parts + 1];
+            PacketBuffer preamble = new PacketBuffer(Unpooled.buffer());
+            preamble.writeString(channel);
+            preamble.writeByte(parts);
+            preamble.writeInt(length);
+            channels[0] = "FML|MP";
+            buffers[0] = preamble;
+
+            // All parts share one array, each prefixed with its index
+            ByteBuf data = Unpooled.buffer(length + parts);
+            int offset = 0;
+            for (int x = 0; x < parts; x++)
+            {
+                int partLength = Math.min(PART_SIZE, length - offset + 1);
+                int start = data.writerIndex();
+                data.writeByte(x & 0xFF);
+                data.writeBytes(payload, payload.readerIndex() + offset, partLength - 1);
+                offset += partLength - 1;
+                channels[x + 1] = "FML|MP";
+                buffers[x + 1] = data.slice(start, partLength);
+            }
+            encodes.increment();
+            encodedBytes.add(length);
+        }
+
+        private List<Packet<INetHandlerPlayClient>> toPackets()
+        {
+            sentParts.add(buffers.length);
+            if (buffers.length == 1)
+            {
+                return ImmutableList.<Packet<INetHandlerPlayClient>>of(new SPacketCustomPayload(channels[0], new PacketBuffer(buffers[0].duplicate())));
+            }
+            ImmutableList.Builder<Packet<INetHandlerPlayClient>> ret = ImmutableList.builder();
+            for (int i = 0; i < buffers.length; i++)
+            {
+                ret.add(new SPacketCustomPayload(channels[i], new PacketBuffer(buffers[i].duplicate())));
+            }
+            return ret.build();
+        }
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.network.simpleimpl;
+
+/**
+ * Where an {@link IMessageHandler} registered with {@link SimpleNetworkWrapper} is called.
+ */
+public enum HandlerThread
+{
+    /**
+     * On the network thread that received the message, as soon as it is decoded. This is the default.
+     */
+    NETWORK,
+    /**
+     * On a thread of a pool shared by all channels, for handlers that only decode or validate and must not touch the world.
+     */
+    WORKER,
+    /**
+     * On the main thread of the receiving side, at the start of its next tick. Messages of all channels are handled
+     * in the order they arrived, for at most {@code fml.messageQueueBudget} milliseconds (10 by default) per tick.
+     * Messages left over are handled in the following ticks. See {@link MessageHandlerQueue}.
+     */
+    MAIN
+}
@@ -0,0 +1,194 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.network.simpleimpl;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.EncoderException;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.common.network.FMLEmbeddedChannel;
+import net.minecraftforge.fml.common.network.FMLIndexedMessageToMessageCodec;
+import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.network.handshake.NetworkDispatcher;
+import net.minecraftforge.fml.common.network.internal.FMLProxyPacket;
+
+/**
+ * Collects the messages a {@link SimpleNetworkWrapper} sends to each player, and sends them as one packet
+ * at the end of the server tick. See {@link SimpleNetworkWrapper#enableBatching()}.
+ *
+ * Messages are encoded once into a pooled buffer, and appended to the pooled buffer of every recipient.
+ * Only the packet sent at the end of the tick is copied to the heap, because it may be queued by the connection.
+ * Clients whose FML protocol predates {@link NetworkRegistry#FML_PROTOCOL_BATCHING} can not unpack batches,
+ * they are sent every message right away instead.
+ */
+public class MessageBatcher
+{
+    private static final int MAX_LENGTH = 0xF0000; // Stay below the size that FMLProxyPacket splits into several parts
+    private static final Set<MessageBatcher> active = ConcurrentHashMap.newKeySet();
+
+    private final FMLEmbeddedChannel channel;
+    private final SimpleIndexedCodec codec;
+    private final String channelName;
+    private final Map<NetworkDispatcher, Batch> batches = new ConcurrentHashMap<NetworkDispatcher, Batch>();
+
+    MessageBatcher(FMLEmbeddedChannel channel, SimpleIndexedCodec codec)
+    {
+        this.channel = channel;
+        this.codec = codec;
+        this.channelName = channel.attr(NetworkRegistry.FML_CHANNEL).get();
+        active.add(this);
+    }
+
+    /**
+     * Sends the messages collected during this tick, called at the end of every server tick.
+     */
+    public static void flushAll()
+    {
+        for (MessageBatcher batcher : active)
+        {
+            batcher.flush();
+        }
+    }
+
+    void add(IMessage message, List<NetworkDispatcher> dispatchers)
+    {
+        if (dispatchers.isEmpty())
+        {
+            return;
+        }
+        ByteBuf encoded = PooledByteBufAllocator.DEFAULT.buffer();
+        try
+        {
+            codec.encodeMessage(channel.pipeline().context(codec), message, encoded);
+            for (NetworkDispatcher dispatcher : dispatchers)
+            {
+                if (dispatcher.getRemoteProtocolVersion() >= NetworkRegistry.FML_PROTOCOL_BATCHING)
+                {
+                    batches.computeIfAbsent(dispatcher, Batch::new).add(encoded);
+                }
+                else
+                {
+                    dispatcher.sendProxy(new FMLProxyPacket(new PacketBuffer(Unpooled.copiedBuffer(encoded)), channelName));
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            throw new EncoderException(e);
+        }
+        finally
+        {
+            encoded.release();
+        }
+    }
+
+    private void flush()
+    {
+        for (Iterator<Batch> itr = batches.values().iterator(); itr.hasNext();)
+        {
+            Batch batch = itr.next();
+            if (batch.dispatcher.manager.isChannelOpen())
+            {
+                batch.flush();
+            }
+            else
+            {
+                itr.remove();
+                batch.close();
+            }
+        }
+    }
+
+    private class Batch
+    {
+        private final NetworkDispatcher dispatcher;
+        private ByteBuf buffer;
+        private int count;
+        private boolean closed = false;
+
+        private Batch(NetworkDispatcher dispatcher)
+        {
+            this.dispatcher = dispatcher;
+        }
+
+        private synchronized void add(ByteBuf message)
+        {
+            if (closed)
+            {
+                return;
+            }
+            int length = message.readableBytes();
+            if (buffer != null && buffer.readableBytes() + length + 5 > MAX_LENGTH)
+            {
+                flush();
+            }
+            if (buffer == null)
+            {
+                buffer = PooledByteBufAllocator.DEFAULT.buffer();
+                buffer.writeByte(FMLIndexedMessageToMessageCodec.BATCH_DISCRIMINATOR);
+            }
+            ByteBufUtils.writeVarInt(buffer, length, 5);
+            buffer.writeBytes(message, message.readerIndex(), length);
+            count++;
+        }
+
+        private synchronized void flush()
+        {
+            if (buffer == null)
+            {
+                return;
+            }
+            if (count == 1)
+            {
+                // Nothing to batch, send it like any other message
+                buffer.skipBytes(1);
+                ByteBufUtils.readVarInt(buffer, 5);
+            }
+            PacketBuffer payload = new PacketBuffer(Unpooled.buffer(buffer.readableBytes()));
+            payload.writeBytes(buffer);
+            discard();
+            dispatcher.sendProxy(new FMLProxyPacket(payload, channelName));
+        }
+
+        private synchronized void close()
+        {
+            closed = true;
+            discard();
+        }
+
+        private synchronized void discard()
+        {
+            if (buffer != null)
+            {
+                buffer.release();
+                buffer = null;
+                count = 0;
+            }
+        }
+    }
+}
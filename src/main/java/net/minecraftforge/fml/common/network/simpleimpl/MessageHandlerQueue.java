@@ -0,0 +1,237 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.common.network.simpleimpl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.minecraftforge.fml.common.FMLLog;
+import net.minecraftforge.fml.relauncher.Side;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the {@link IMessageHandler}s registered with {@link HandlerThread#WORKER} or {@link HandlerThread#MAIN},
+ * and keeps track of their queues per channel.
+ *
+ * Main thread messages wait in one queue per side, which {@link #drain(Side)} works through at the start of every
+ * server or client tick. Unlike {@link net.minecraft.util.IThreadListener#addScheduledTask(Runnable)}, that
+ * allocates no future per message, and a flood of messages is spread over several ticks instead of stalling one.
+ * A handler can not be interrupted, so when the last one run in a tick overruns the budget, the next tick's budget
+ * is shortened by as much. At least one message is handled every tick.
+ */
+public class MessageHandlerQueue
+{
+    private static final long BUDGET = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(System.getProperty("fml.messageQueueBudget", "10")));
+    private static final Map<Side, Queue<Task>> queues = new EnumMap<Side, Queue<Task>>(Side.class);
+    private static final Map<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+    private static final long[] overrun = new long[Side.values().length]; // Only touched by the thread draining that side
+    private static ExecutorService workers;
+
+    static
+    {
+        for (Side side : Side.values())
+        {
+            queues.put(side, new ConcurrentLinkedQueue<Task>());
+        }
+    }
+
+    /**
+     * The statistics of every channel that handled a message off the network thread.
+     */
+    public static Collection<Stats> getStats()
+    {
+        return Collections.unmodifiableCollection(stats.values());
+    }
+
+    static Stats getStats(String channel, Side side)
+    {
+        return stats.computeIfAbsent(side + ":" + channel, k -> new Stats(channel, side));
+    }
+
+    static void submit(Stats stats, HandlerThread thread, Runnable runnable)
+    {
+        Task task = new Task(stats, runnable);
+        stats.peakDepth.accumulateAndGet(stats.depth.incrementAndGet(), Math::max);
+        if (thread == HandlerThread.WORKER)
+        {
+            getWorkers().execute(task);
+        }
+        else
+        {
+            queues.get(stats.side).add(task);
+        }
+    }
+
+    /**
+     * Handles the main thread messages received for the given side, called at the start of every tick.
+     */
+    public static void drain(Side side)
+    {
+        Queue<Task> queue = queues.get(side);
+        if (queue.isEmpty())
+        {
+            overrun[side.ordinal()] = 0;
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + Math.max(0, BUDGET - overrun[side.ordinal()]);
+        long now = start;
+        boolean first = true;
+        Task task;
+        while ((first || now < deadline) && (task = queue.poll()) != null)
+        {
+            first = false;
+            task.run();
+            long end = System.nanoTime();
+            task.stats.tickNanos += end - now;
+            if (end - now > BUDGET && !task.stats.warned)
+            {
+                task.stats.warned = true;
+                FMLLog.log.warn("Handling a message on channel {} took {} ms, longer than the whole budget of a tick", task.stats.channel, TimeUnit.NANOSECONDS.toMillis(end - now));
+            }
+            now = end;
+        }
+        overrun[side.ordinal()] = Math.max(0, now - deadline);
+        for (Stats channel : stats.values())
+        {
+            if (channel.side == side)
+            {
+                channel.lastTickNanos = channel.tickNanos;
+                channel.tickNanos = 0;
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getWorkers()
+    {
+        if (workers == null)
+        {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            workers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Message Handler Thread-%d").setDaemon(true).build());
+        }
+        return workers;
+    }
+
+    public static class Stats
+    {
+        private final String channel;
+        private final Side side;
+        private final AtomicInteger depth = new AtomicInteger();
+        private final LongAdder handled = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicInteger peakDepth = new AtomicInteger();
+        private volatile long lastTickNanos;
+        private long tickNanos;
+        private boolean warned = false;
+
+        private Stats(String channel, Side side)
+        {
+            this.channel = channel;
+            this.side = side;
+        }
+
+        public String getChannel()
+        {
+            return channel;
+        }
+
+        public Side getSide()
+        {
+            return side;
+        }
+
+        /**
+         * The messages waiting to be handled.
+         */
+        public int getDepth()
+        {
+            return depth.get();
+        }
+
+        public int getPeakDepth()
+        {
+            return peakDepth.get();
+        }
+
+        public long getHandled()
+        {
+            return handled.sum();
+        }
+
+        /**
+         * The time spent in the handlers of this channel, on any thread.
+         */
+        public long getNanos()
+        {
+            return nanos.sum();
+        }
+
+        /**
+         * The time the main thread spent in the handlers of this channel during its last tick.
+         */
+        public long getLastTickNanos()
+        {
+            return lastTickNanos;
+        }
+    }
+
+    private static class Task implements Runnable
+    {
+        private final Stats stats;
+        private final Runnable runnable;
+
+        private Task(Stats stats, Runnable runnable)
+        {
+            this.stats = stats;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run()
+        {
+            long start = System.nanoTime();
+            try
+            {
+                runnable.run();
+            }
+            catch (Throwable t)
+            {
+                FMLLog.log.error("There was an exception handling a message on channel {}", stats.channel, t);
+            }
+            finally
+            {
+                stats.depth.decrementAndGet();
+                stats.handled.increment();
+                stats.nanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+}
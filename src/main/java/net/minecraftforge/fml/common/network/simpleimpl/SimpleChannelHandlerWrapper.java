@@ -19,23 +19,33 @@
 
 package net.minecraftforge.fml.common.network.simpleimpl;
 
+import java.lang.ref.WeakReference;
+
 import org.apache.logging.log4j.Level;
 
 import net.minecraft.network.INetHandler;
+import net.minecraft.network.PacketBuffer;
 import net.minecraftforge.fml.common.FMLLog;
+import net.minecraftforge.fml.common.network.FMLIndexedMessageToMessageCodec;
 import net.minecraftforge.fml.common.network.FMLOutboundHandler;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.network.handshake.NetworkDispatcher;
+import net.minecraftforge.fml.common.network.internal.FMLProxyPacket;
 import net.minecraftforge.fml.relauncher.Side;
 
 import com.google.common.base.Preconditions;
 
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.EncoderException;
 
 public class SimpleChannelHandlerWrapper<REQ extends IMessage, REPLY extends IMessage> extends SimpleChannelInboundHandler<REQ> {
     private final IMessageHandler<? super REQ, ? extends REPLY> messageHandler;
     private final Side side;
+    private final HandlerThread thread;
+    private MessageHandlerQueue.Stats stats;
     
     public SimpleChannelHandlerWrapper(Class<? extends IMessageHandler<? super REQ, ? extends REPLY>> handler, Side side, Class<REQ> requestType)
     {
@@ -43,22 +53,70 @@ public class SimpleChannelHandlerWrapper<REQ extends IMessage, REPLY extends IMe
     }
     
     public SimpleChannelHandlerWrapper(IMessageHandler<? super REQ, ? extends REPLY> handler, Side side, Class<REQ> requestType)
+    {
+        this(handler, side, requestType, HandlerThread.NETWORK);
+    }
+
+    public SimpleChannelHandlerWrapper(IMessageHandler<? super REQ, ? extends REPLY> handler, Side side, Class<REQ> requestType, HandlerThread thread)
     {
         super(requestType);
         messageHandler = Preconditions.checkNotNull(handler, "IMessageHandler must not be null");
         this.side = side;
+        this.thread = Preconditions.checkNotNull(thread, "HandlerThread must not be null");
     }
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, REQ msg) throws Exception
     {
         INetHandler iNetHandler = ctx.channel().attr(NetworkRegistry.NET_HANDLER).get();
         MessageContext context = new MessageContext(iNetHandler, side);
+        if (thread == HandlerThread.NETWORK)
+        {
+            handle(ctx, msg, context, null, false);
+            return;
+        }
+        if (stats == null)
+        {
+            stats = MessageHandlerQueue.getStats(ctx.channel().attr(NetworkRegistry.FML_CHANNEL).get(), side);
+        }
+        // The packet being replied to is only tracked for the network thread, so remember where it came from
+        WeakReference<FMLProxyPacket> ref = ctx.channel().attr(FMLIndexedMessageToMessageCodec.INBOUNDPACKETTRACKER).get().get();
+        FMLProxyPacket packet = ref == null ? null : ref.get();
+        NetworkDispatcher origin = packet == null ? null : packet.getDispatcher();
+        MessageHandlerQueue.submit(stats, thread, () -> handle(ctx, msg, context, origin, true));
+    }
+
+    private void handle(ChannelHandlerContext ctx, REQ msg, MessageContext context, NetworkDispatcher origin, boolean offThread)
+    {
         REPLY result = messageHandler.onMessage(msg, context);
-        if (result != null)
+        if (result == null)
+        {
+            return;
+        }
+        if (!offThread)
         {
             ctx.channel().attr(FMLOutboundHandler.FML_MESSAGETARGET).set(FMLOutboundHandler.OutboundTarget.REPLY);
             ctx.writeAndFlush(result).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            return;
+        }
+        // The channel and its target attributes are shared with every other sender, so encode the reply here
+        // and hand it straight to the connection the message came from.
+        if (origin == null)
+        {
+            FMLLog.log.warn("Dropping the reply {} to {}, as the connection it came from is unknown", result, msg);
+            return;
+        }
+        SimpleIndexedCodec codec = ctx.pipeline().get(SimpleIndexedCodec.class);
+        PacketBuffer buffer = new PacketBuffer(Unpooled.buffer());
+        try
+        {
+            codec.encodeMessage(ctx.pipeline().context(codec), result, buffer);
+        }
+        catch (Exception e)
+        {
+            buffer.release();
+            throw new EncoderException(e);
         }
+        origin.sendProxy(new FMLProxyPacket(buffer, ctx.channel().attr(NetworkRegistry.FML_CHANNEL).get()));
     }
 
     @Override
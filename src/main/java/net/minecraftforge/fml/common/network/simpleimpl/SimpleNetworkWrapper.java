@@ -23,6 +23,7 @@ import io.netty.channel.ChannelFutureListener;
 
 import java.lang.reflect.Method;
 import java.util.EnumMap;
+import java.util.List;
 
 import net.minecraft.util.IThreadListener;
 
@@ -35,9 +36,11 @@ import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.network.FMLEmbeddedChannel;
+import net.minecraftforge.fml.common.network.FMLIndexedMessageToMessageCodec;
 import net.minecraftforge.fml.common.network.FMLOutboundHandler;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.common.network.NetworkRegistry.TargetPoint;
+import net.minecraftforge.fml.common.network.handshake.NetworkDispatcher;
 import net.minecraftforge.fml.relauncher.Side;
 
 /**
@@ -105,6 +108,7 @@ import net.minecraftforge.fml.relauncher.Side;
  * That means that your {@link IMessageHandler} can not interact with most game objects directly.
  * Minecraft provides a convenient way to make your code execute on the main thread instead using {@link IThreadListener#addScheduledTask(Runnable)}.
  * The way to obtain an {@link IThreadListener} is using either the {@link net.minecraft.client.Minecraft} instance (client side) or a {@link net.minecraft.world.WorldServer} instance (server side).
+ * Alternatively, register the message with {@link HandlerThread#MAIN} to have the handler called on the main thread directly.
  *
  * @author cpw
  *
@@ -112,6 +116,7 @@ import net.minecraftforge.fml.relauncher.Side;
 public class SimpleNetworkWrapper {
     private EnumMap<Side, FMLEmbeddedChannel> channels;
     private SimpleIndexedCodec packetCodec;
+    private MessageBatcher batcher;
     private static Class<?> defaultChannelPipeline;
     private static Method generateName;
     {
@@ -157,6 +162,20 @@ public class SimpleNetworkWrapper {
     {
         registerMessage(instantiate(messageHandler), requestMessageType, discriminator, side);
     }
+
+    /**
+     * Register a message and it's associated handler, which is called on the given thread.
+     *
+     * @param messageHandler the message handler type
+     * @param requestMessageType the message type
+     * @param discriminator a discriminator byte
+     * @param side the side for the handler
+     * @param thread the thread the handler is called on
+     */
+    public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(Class<? extends IMessageHandler<REQ, REPLY>> messageHandler, Class<REQ> requestMessageType, int discriminator, Side side, HandlerThread thread)
+    {
+        registerMessage(instantiate(messageHandler), requestMessageType, discriminator, side, thread);
+    }
     
     static <REQ extends IMessage, REPLY extends IMessage> IMessageHandler<? super REQ, ? extends REPLY> instantiate(Class<? extends IMessageHandler<? super REQ, ? extends REPLY>> handler)
     {
@@ -181,34 +200,87 @@ public class SimpleNetworkWrapper {
      */
     public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestMessageType, int discriminator, Side side)
     {
+        registerMessage(messageHandler, requestMessageType, discriminator, side, HandlerThread.NETWORK);
+    }
+
+    /**
+     * Register a message and it's associated handler, which is called on the given thread.
+     *
+     * @param messageHandler the message handler instance
+     * @param requestMessageType the message type
+     * @param discriminator a discriminator byte
+     * @param side the side for the handler
+     * @param thread the thread the handler is called on
+     */
+    public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestMessageType, int discriminator, Side side, HandlerThread thread)
+    {
+        if (batcher != null && (byte)discriminator == FMLIndexedMessageToMessageCodec.BATCH_DISCRIMINATOR)
+        {
+            throw new IllegalArgumentException("The discriminator 255 is used for batches when batching is enabled");
+        }
         packetCodec.addDiscriminator(discriminator, requestMessageType);
         FMLEmbeddedChannel channel = channels.get(side);
         String type = channel.findChannelHandlerNameForType(SimpleIndexedCodec.class);
         if (side == Side.SERVER)
         {
-            addServerHandlerAfter(channel, type, messageHandler, requestMessageType);
+            addServerHandlerAfter(channel, type, messageHandler, requestMessageType, thread);
         }
         else
         {
-            addClientHandlerAfter(channel, type, messageHandler, requestMessageType);
+            addClientHandlerAfter(channel, type, messageHandler, requestMessageType, thread);
         }
     }
 
-    private <REQ extends IMessage, REPLY extends IMessage, NH extends INetHandler> void addServerHandlerAfter(FMLEmbeddedChannel channel, String type, IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestType)
+    private <REQ extends IMessage, REPLY extends IMessage, NH extends INetHandler> void addServerHandlerAfter(FMLEmbeddedChannel channel, String type, IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestType, HandlerThread thread)
     {
-        SimpleChannelHandlerWrapper<REQ, REPLY> handler = getHandlerWrapper(messageHandler, Side.SERVER, requestType);
+        SimpleChannelHandlerWrapper<REQ, REPLY> handler = getHandlerWrapper(messageHandler, Side.SERVER, requestType, thread);
         channel.pipeline().addAfter(type, generateName(channel.pipeline(), handler), handler);
     }
 
-    private <REQ extends IMessage, REPLY extends IMessage, NH extends INetHandler> void addClientHandlerAfter(FMLEmbeddedChannel channel, String type, IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestType)
+    private <REQ extends IMessage, REPLY extends IMessage, NH extends INetHandler> void addClientHandlerAfter(FMLEmbeddedChannel channel, String type, IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestType, HandlerThread thread)
     {
-        SimpleChannelHandlerWrapper<REQ, REPLY> handler = getHandlerWrapper(messageHandler, Side.CLIENT, requestType);
+        SimpleChannelHandlerWrapper<REQ, REPLY> handler = getHandlerWrapper(messageHandler, Side.CLIENT, requestType, thread);
         channel.pipeline().addAfter(type, generateName(channel.pipeline(), handler), handler);
     }
 
-    private <REPLY extends IMessage, REQ extends IMessage> SimpleChannelHandlerWrapper<REQ, REPLY> getHandlerWrapper(IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Side side, Class<REQ> requestType)
+    private <REPLY extends IMessage, REQ extends IMessage> SimpleChannelHandlerWrapper<REQ, REPLY> getHandlerWrapper(IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Side side, Class<REQ> requestType, HandlerThread thread)
     {
-        return new SimpleChannelHandlerWrapper<REQ, REPLY>(messageHandler, side, requestType);
+        return new SimpleChannelHandlerWrapper<REQ, REPLY>(messageHandler, side, requestType, thread);
+    }
+
+    /**
+     * Collect the messages sent to each player by this wrapper during a server tick, and send them as one packet
+     * at the end of the tick, instead of a packet per message. Messages to a player keep their order, but are
+     * delivered after the vanilla packets sent during the same tick. Messages to the server are not batched.
+     *
+     * The receiving side unpacks the batches itself, as long as no message uses the discriminator 255.
+     * Clients running an older FML, which can not unpack them, are sent each message right away instead.
+     */
+    public void enableBatching()
+    {
+        if (packetCodec.hasDiscriminator(FMLIndexedMessageToMessageCodec.BATCH_DISCRIMINATOR))
+        {
+            throw new IllegalStateException("The discriminator 255 is used for batches, it can not be used by a message when batching is enabled");
+        }
+        if (batcher == null)
+        {
+            batcher = new MessageBatcher(channels.get(Side.SERVER), packetCodec);
+        }
+    }
+
+    private boolean batch(IMessage message, FMLOutboundHandler.OutboundTarget target, Object args)
+    {
+        if (batcher == null)
+        {
+            return false;
+        }
+        target.validateArgs(args);
+        List<NetworkDispatcher> dispatchers = target.selectNetworks(args, null, null);
+        if (dispatchers != null)
+        {
+            batcher.add(message, dispatchers);
+        }
+        return true;
     }
 
     /**
@@ -231,6 +303,10 @@ public class SimpleNetworkWrapper {
      */
     public void sendToAll(IMessage message)
     {
+        if (batch(message, FMLOutboundHandler.OutboundTarget.ALL, null))
+        {
+            return;
+        }
         channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGET).set(FMLOutboundHandler.OutboundTarget.ALL);
         channels.get(Side.SERVER).writeAndFlush(message).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
     }
@@ -244,6 +320,10 @@ public class SimpleNetworkWrapper {
      */
     public void sendTo(IMessage message, EntityPlayerMP player)
     {
+        if (batch(message, FMLOutboundHandler.OutboundTarget.PLAYER, player))
+        {
+            return;
+        }
         channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGET).set(FMLOutboundHandler.OutboundTarget.PLAYER);
         channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).set(player);
         channels.get(Side.SERVER).writeAndFlush(message).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
@@ -258,6 +338,10 @@ public class SimpleNetworkWrapper {
      */
     public void sendToAllAround(IMessage message, NetworkRegistry.TargetPoint point)
     {
+        if (batch(message, FMLOutboundHandler.OutboundTarget.ALLAROUNDPOINT, point))
+        {
+            return;
+        }
         channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGET).set(FMLOutboundHandler.OutboundTarget.ALLAROUNDPOINT);
         channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).set(point);
         channels.get(Side.SERVER).writeAndFlush(message).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
@@ -272,6 +356,10 @@ public class SimpleNetworkWrapper {
      */
     public void sendToDimension(IMessage message, int dimensionId)
     {
+        if (batch(message, FMLOutboundHandler.OutboundTarget.DIMENSION, dimensionId))
+        {
+            return;
+        }
         channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGET).set(FMLOutboundHandler.OutboundTarget.DIMENSION);
         channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).set(dimensionId);
         channels.get(Side.SERVER).writeAndFlush(message).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
@@ -21,9 +21,17 @@ package net.minecraftforge.fml.common.patcher;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,6 +44,7 @@ import java.util.regex.Pattern;
 import net.minecraft.launchwrapper.Launch;
 import net.minecraft.launchwrapper.LaunchClassLoader;
 import net.minecraftforge.fml.common.FMLLog;
+import net.minecraftforge.fml.common.asm.ClassCacheFile;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.repackage.com.nothome.delta.GDiffPatcher;
 import LZMA.LzmaInputStream;
@@ -43,21 +52,36 @@ import LZMA.LzmaInputStream;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.hash.Hashing;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 
+/**
+ * Applies the binary patches of the side to the vanilla classes.
+ *
+ * The patches ship as an LZMA compressed pack200 jar. The first launch with a set of patches unpacks it into an index file
+ * in fmlcache/binpatches, which later launches map into memory and read the patches of a class from when it is loaded.
+ * Patched classes are kept in a second file there, and used again while the input class matches the checksum of its patch.
+ * Both are named after the side and the hash of the compressed patches, and files of other patches are deleted.
+ * Disabled by -Dfml.binpatchCache=false.
+ */
 public class ClassPatchManager {
     //Must be ABOVE INSTANCE so they get set in time for the constructor.
     public static final boolean dumpPatched = Boolean.parseBoolean(System.getProperty("fml.dumpPatchedClasses", "false"));
     public static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("fml.debugClassPatchManager", "false"));
+    private static final boolean CACHE = Boolean.parseBoolean(System.getProperty("fml.binpatchCache", "true"));
+    private static final int MAGIC = 0x464D4C50; // FMLP
+    private static final int VERSION = 1;
 
     public static final ClassPatchManager INSTANCE = new ClassPatchManager();
 
     private GDiffPatcher patcher = new GDiffPatcher();
-    private ListMultimap<String, ClassPatch> patches;
+    private Map<String, int[]> patches; // Offset and length of each patch of a class in the patch data
+    private ByteBuffer patchData;
+    private ClassCacheFile patchedStore;
 
     private Map<String,byte[]> patchedClasses = Maps.newHashMap();
     private File tempDir;
@@ -85,11 +109,21 @@ public class ClassPatchManager {
         {
             return patchedClasses.get(name);
         }
-        List<ClassPatch> list = patches.get(name);
+        List<ClassPatch> list = getPatches(name);
         if (list.isEmpty())
         {
             return inputData;
         }
+        if (patchedStore != null && isExpectedInput(list.get(0), inputData))
+        {
+            byte[] stored = patchedStore.get(name);
+            if (stored != null)
+            {
+                dump(mappedName, stored);
+                patchedClasses.put(name, stored);
+                return stored;
+            }
+        }
         boolean ignoredError = false;
         if (DEBUG)
             FMLLog.log.debug("Runtime patching class {} (input size {}), found {} patch{}", mappedName, (inputData == null ? 0 : inputData.length), list.size(), list.size()!=1 ? "es" : "");
@@ -140,6 +174,7 @@ public class ClassPatchManager {
                 catch (IOException e)
                 {
                     FMLLog.log.error("Encountered problem runtime patching class {}", name, e);
+                    ignoredError = true;
                     continue;
                 }
             }
@@ -148,28 +183,67 @@ public class ClassPatchManager {
         {
             FMLLog.log.debug("Successfully applied runtime patches for {} (new size {})", mappedName, inputData.length);
         }
+        if (!ignoredError && patchedStore != null && !patchedStore.contains(name))
+        {
+            patchedStore.put(name, inputData);
+        }
+        dump(mappedName, inputData);
+        patchedClasses.put(name,inputData);
+        return inputData;
+    }
+
+    private void dump(String mappedName, byte[] data)
+    {
         if (dumpPatched)
         {
             try
             {
-                Files.write(inputData, new File(tempDir,mappedName));
+                Files.write(data, new File(tempDir,mappedName));
             }
             catch (IOException e)
             {
                 FMLLog.log.error(FMLLog.log.getMessageFactory().newMessage("Failed to write {} to {}", mappedName, tempDir.getAbsolutePath()), e);
             }
         }
-        patchedClasses.put(name,inputData);
-        return inputData;
+    }
+
+    /**
+     * Whether the input is what the patch was made for, so the patched class from an earlier launch can be used.
+     */
+    private static boolean isExpectedInput(ClassPatch patch, byte[] inputData)
+    {
+        if (!patch.existsAtTarget)
+        {
+            return inputData == null || inputData.length == 0;
+        }
+        return inputData != null && inputData.length > 0 && Hashing.adler32().hashBytes(inputData).asInt() == patch.inputChecksum;
+    }
+
+    private List<ClassPatch> getPatches(String name)
+    {
+        int[] locations = patches.get(name);
+        if (locations == null)
+        {
+            return Collections.emptyList();
+        }
+        List<ClassPatch> list = Lists.newArrayListWithCapacity(locations.length / 2);
+        for (int i = 0; i < locations.length; i += 2)
+        {
+            byte[] data = new byte[locations[i + 1]];
+            ByteBuffer buffer = patchData.duplicate();
+            buffer.position(locations[i]);
+            buffer.get(data);
+            list.add(readPatch(ByteStreams.newDataInput(data)));
+        }
+        return list;
     }
 
     public void setup(Side side)
     {
         Pattern binpatchMatcher = Pattern.compile(String.format("binpatch/%s/.*.binpatch", side.toString().toLowerCase(Locale.ENGLISH)));
-        JarInputStream jis;
-        try
+        byte[] binpatches;
+        try (InputStream binpatchesCompressed = getClass().getResourceAsStream("/binpatches.pack.lzma"))
         {
-            InputStream binpatchesCompressed = getClass().getResourceAsStream("/binpatches.pack.lzma");
             if (binpatchesCompressed==null)
             {
                 if (!((Boolean) Launch.blackboard.get("fml.deobfuscatedEnvironment")))
@@ -178,7 +252,78 @@ public class ClassPatchManager {
                 }
                 return;
             }
-            LzmaInputStream binpatchesDecompressed = new LzmaInputStream(binpatchesCompressed);
+            binpatches = ByteStreams.toByteArray(binpatchesCompressed);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error occurred reading binary patches. Expect severe problems!", e);
+        }
+
+        String key = side.toString().toLowerCase(Locale.ENGLISH) + "-" + Hashing.sha1().hashBytes(binpatches);
+        File dir = CACHE && Launch.minecraftHome != null ? new File(Launch.minecraftHome, "fmlcache/binpatches") : null;
+        patches = null;
+        patchedStore = null;
+        if (dir != null)
+        {
+            dir.mkdirs();
+            File[] stale = dir.listFiles((d, n) -> !n.startsWith(key + "."));
+            if (stale != null)
+            {
+                for (File file : stale)
+                {
+                    file.delete();
+                }
+            }
+            loadIndex(new File(dir, key + ".bin"));
+        }
+        if (patches == null)
+        {
+            byte[] index = buildIndex(binpatches, binpatchMatcher);
+            try
+            {
+                readIndex(ByteBuffer.wrap(index));
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Error occurred reading binary patches. Expect severe problems!", e);
+            }
+            if (dir != null)
+            {
+                saveIndex(new File(dir, key + ".bin"), index);
+            }
+        }
+        if (dir != null)
+        {
+            try
+            {
+                patchedStore = new ClassCacheFile(new File(dir, key + ".patched"), "patched class cache");
+                FMLLog.log.debug("Using {} patched classes from earlier launches", patchedStore.size());
+            }
+            catch (IOException e)
+            {
+                FMLLog.log.debug("Unable to open the patched class cache, classes will be patched on every launch", e);
+            }
+        }
+        int count = 0;
+        for (int[] locations : patches.values())
+        {
+            count += locations.length / 2;
+        }
+        FMLLog.log.debug("Read {} binary patches", count);
+        if (DEBUG)
+            FMLLog.log.debug("Patch list :\n\t{}", Joiner.on("\t\n").join(patches.keySet()));
+        patchedClasses.clear();
+    }
+
+    /**
+     * Unpacks the binary patches of the side into an index file.
+     */
+    private byte[] buildIndex(byte[] binpatches, Pattern binpatchMatcher)
+    {
+        JarInputStream jis;
+        try
+        {
+            LzmaInputStream binpatchesDecompressed = new LzmaInputStream(new ByteArrayInputStream(binpatches));
             ByteArrayOutputStream jarBytes = new ByteArrayOutputStream();
             JarOutputStream jos = new JarOutputStream(jarBytes);
             Pack200.newUnpacker().unpack(binpatchesDecompressed, jos);
@@ -189,7 +334,7 @@ public class ClassPatchManager {
             throw new RuntimeException("Error occurred reading binary patches. Expect severe problems!", e);
         }
 
-        patches = ArrayListMultimap.create();
+        ListMultimap<String, byte[]> found = ArrayListMultimap.create();
 
         do
         {
@@ -202,41 +347,137 @@ public class ClassPatchManager {
                 }
                 if (binpatchMatcher.matcher(entry.getName()).matches())
                 {
-                    ClassPatch cp = readPatch(entry, jis);
-                    if (cp != null)
-                    {
-                        patches.put(cp.sourceClassName, cp);
-                    }
+                    if (DEBUG)
+                        FMLLog.log.trace("Reading patch data from {}", entry.getName());
+                    byte[] data = ByteStreams.toByteArray(jis);
+                    ClassPatch cp = readPatch(ByteStreams.newDataInput(data));
+                    found.put(cp.sourceClassName, data);
                 }
                 else
                 {
                     jis.closeEntry();
                 }
             }
-            catch (IOException e)
+            catch (IOException | RuntimeException e)
             {
+                FMLLog.log.warn("Unable to read a binpatch file - ignoring", e);
             }
         } while (true);
-        FMLLog.log.debug("Read {} binary patches", patches.size());
-        if (DEBUG)
-            FMLLog.log.debug("Patch list :\n\t{}", Joiner.on("\t\n").join(patches.asMap().entrySet()));
-        patchedClasses.clear();
+
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(found.keySet().size());
+            int offset = 0;
+            for (Map.Entry<String, Collection<byte[]>> entry : found.asMap().entrySet())
+            {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeInt(entry.getValue().size());
+                for (byte[] patch : entry.getValue())
+                {
+                    out.writeInt(offset);
+                    out.writeInt(patch.length);
+                    offset += patch.length;
+                }
+            }
+            for (Collection<byte[]> list : found.asMap().values())
+            {
+                for (byte[] patch : list)
+                {
+                    out.write(patch);
+                }
+            }
+            out.close();
+            return bytes.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e); // Not thrown by a byte array
+        }
     }
 
-    private ClassPatch readPatch(JarEntry patchEntry, JarInputStream jis)
+    /**
+     * Maps the index file written by an earlier launch. Leaves the patches unset if it is missing or can not be read.
+     */
+    private void loadIndex(File file)
     {
-        if (DEBUG)
-            FMLLog.log.trace("Reading patch data from {}", patchEntry.getName());
-        ByteArrayDataInput input;
+        if (!file.isFile())
+        {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            readIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            FMLLog.log.debug("Unable to read the binary patch index {}, the patches will be unpacked", file.getName(), e);
+            patches = null;
+            patchData = null;
+        }
+    }
+
+    private static void saveIndex(File file, byte[] index)
+    {
+        File tmp = new File(file.getPath() + ".tmp");
         try
         {
-            input = ByteStreams.newDataInput(ByteStreams.toByteArray(jis));
+            Files.write(index, tmp);
+            java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
         catch (IOException e)
         {
-            FMLLog.log.warn(FMLLog.log.getMessageFactory().newMessage("Unable to read binpatch file {} - ignoring", patchEntry.getName()), e);
-            return null;
+            FMLLog.log.debug("Unable to save the binary patch index {}", file.getName(), e);
+            tmp.delete();
         }
+    }
+
+    /**
+     * Reads the list of patches of each class from the start of an index. The patches are read when their class is loaded.
+     */
+    private void readIndex(ByteBuffer data) throws IOException
+    {
+        ByteBuffer in = data.duplicate();
+        if (in.getInt() != MAGIC || in.getInt() != VERSION)
+        {
+            throw new IOException("Not a binary patch index");
+        }
+        int count = in.getInt();
+        Map<String, int[]> index = Maps.newHashMapWithExpectedSize(count);
+        for (int i = 0; i < count; i++)
+        {
+            byte[] name = new byte[in.getInt()];
+            in.get(name);
+            int[] locations = new int[in.getInt() * 2];
+            for (int j = 0; j < locations.length; j++)
+            {
+                locations[j] = in.getInt();
+            }
+            index.put(new String(name, StandardCharsets.UTF_8), locations);
+        }
+        int start = in.position();
+        for (int[] locations : index.values())
+        {
+            for (int j = 0; j < locations.length; j += 2)
+            {
+                locations[j] += start;
+                if (locations[j] < start || locations[j + 1] < 0 || locations[j] + locations[j + 1] > data.limit())
+                {
+                    throw new IOException("Truncated binary patch index");
+                }
+            }
+        }
+        patches = index;
+        patchData = data;
+    }
+
+    private ClassPatch readPatch(ByteArrayDataInput input)
+    {
         String name = input.readUTF();
         String sourceClassName = input.readUTF();
         String targetClassName = input.readUTF();
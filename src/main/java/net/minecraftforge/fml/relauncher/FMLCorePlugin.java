@@ -28,9 +28,7 @@ public class FMLCorePlugin implements IFMLLoadingPlugin
     {
         return new String[] {
                              "net.minecraftforge.fml.common.asm.transformers.BlamingTransformer",
-                             "net.minecraftforge.fml.common.asm.transformers.SideTransformer",
-                             "net.minecraftforge.fml.common.asm.transformers.EventSubscriptionTransformer",
-                             "net.minecraftforge.fml.common.asm.transformers.EventSubscriberTransformer",
+                             "net.minecraftforge.fml.common.asm.transformers.FMLCoreTransformer", // Side, EventSubscription and EventSubscriber transformers
                             };
     }
 
@@ -20,6 +20,8 @@
 package net.minecraftforge.oredict;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,6 +30,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.minecraft.block.BlockPrismarine;
 import net.minecraft.util.NonNullList;
 import net.minecraft.util.ResourceLocation;
@@ -45,10 +50,10 @@ import net.minecraft.item.crafting.Ingredient;
 import net.minecraft.item.crafting.ShapedRecipes;
 import net.minecraft.item.crafting.ShapelessRecipes;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.common.crafting.RecipeIndex;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 import net.minecraftforge.fml.common.FMLLog;
 import net.minecraftforge.fml.common.Loader;
@@ -66,7 +71,9 @@ public class OreDictionary
     private static Map<String, Integer>  nameToId = new HashMap<String, Integer>(128);
     private static List<NonNullList<ItemStack>> idToStack = Lists.newArrayList();
     private static List<NonNullList<ItemStack>> idToStackUn = Lists.newArrayList();
-    private static Map<Integer, List<Integer>> stackToId = Maps.newHashMapWithExpectedSize((int)(128 * 0.75));
+    private static Int2ObjectOpenHashMap<IntArrayList> stackToId = new Int2ObjectOpenHashMap<IntArrayList>(128);
+    private static volatile Baked baked;
+    private static final int[] NO_IDS = new int[0];
     public static final NonNullList<ItemStack> EMPTY_LIST = NonNullList.create();
 
     /**
@@ -473,39 +480,87 @@ public class OreDictionary
      * Gets all the integer ID for the ores that the specified item stack is registered to.
      * If the item stack is not linked to any ore, this will return an empty array and no new entry will be created.
      *
+     * The array is shared by all stacks of the same item and metadata, and must not be modified.
+     *
      * @param stack The item stack of the ore.
-     * @return An array of ids that this ore is registered as.
+     * @return An array of ids that this ore is registered as, in ascending order.
      */
     public static int[] getOreIDs(@Nonnull ItemStack stack)
     {
         if (stack.isEmpty()) throw new IllegalArgumentException("Stack can not be invalid!");
 
-        Set<Integer> set = new HashSet<Integer>();
+        int id = getItemID(stack);
+        if (id == Integer.MIN_VALUE)
+        {
+            return NO_IDS;
+        }
+        Baked index = getBaked();
+        int[] ids = index.stackToIds.get(id | ((stack.getItemDamage() + 1) << 16));
+        if (ids == null)
+        {
+            ids = index.stackToIds.get(id);
+        }
+        return ids == null ? NO_IDS : ids;
+    }
+
+    /**
+     * Whether the item stack is registered to the ore, the same as searching {@link #getOreIDs(ItemStack)}.
+     *
+     * @param stack The item stack of the ore.
+     * @param oreID The ore ID, see getOreID
+     */
+    public static boolean hasOreID(@Nonnull ItemStack stack, int oreID)
+    {
+        if (stack.isEmpty()) throw new IllegalArgumentException("Stack can not be invalid!");
 
+        int id = getItemID(stack);
+        if (id == Integer.MIN_VALUE || !getBaked().hasItem(oreID, id))
+        {
+            return false;
+        }
+        return Arrays.binarySearch(getOreIDs(stack), oreID) >= 0;
+    }
+
+    /**
+     * False if no stack registered to the ore has the item of the input, so {@link #itemMatches} fails for all of them.
+     */
+    static boolean mayMatch(int oreID, @Nonnull ItemStack input)
+    {
+        Baked index = getBaked();
+        if (index.unregistered.get(oreID))
+        {
+            return true; // Entries of unknown items can only be found by scanning the ore's stacks
+        }
+        int id = getItemID(input);
+        return id != Integer.MIN_VALUE && index.hasItem(oreID, id);
+    }
+
+    /**
+     * The registry ID of the stack's item, or Integer.MIN_VALUE if it is not registered.
+     */
+    private static int getItemID(@Nonnull ItemStack stack)
+    {
         // HACK: use the registry name's ID. It is unique and it knows about substitutions. Fallback to a -1 value (what Item.getIDForItem would have returned) in the case where the registry is not aware of the item yet
         // IT should be noted that -1 will fail the gate further down, if an entry already exists with value -1 for this name. This is what is broken and being warned about.
         // APPARENTLY it's quite common to do this. OreDictionary should be considered alongside Recipes - you can't make them properly until you've registered with the game.
         ResourceLocation registryName = stack.getItem().delegate.name();
-        int id;
         if (registryName == null)
         {
             FMLLog.log.debug("Attempted to find the oreIDs for an unregistered object ({}). This won't work very well.", stack);
-            return new int[0];
+            return Integer.MIN_VALUE;
         }
-        else
+        return Item.REGISTRY.getIDForObject(stack.getItem().delegate.get());
+    }
+
+    private static Baked getBaked()
+    {
+        Baked index = baked;
+        if (index == null)
         {
-            id = Item.REGISTRY.getIDForObject(stack.getItem().delegate.get());
+            index = new Baked(stackToId, idToStack.size());
+            baked = index;
         }
-        List<Integer> ids = stackToId.get(id);
-        if (ids != null) set.addAll(ids);
-        ids = stackToId.get(id | ((stack.getItemDamage() + 1) << 16));
-        if (ids != null) set.addAll(ids);
-
-        Integer[] tmp = set.toArray(new Integer[set.size()]);
-        int[] ret = new int[tmp.length];
-        for (int x = 0; x < tmp.length; x++)
-            ret[x] = tmp[x];
-        return ret;
+        return index;
     }
 
     /**
@@ -668,18 +723,20 @@ public class OreDictionary
         }
 
         //Add things to the baked version, and prevent duplicates
-        List<Integer> ids = stackToId.get(hash);
+        IntArrayList ids = stackToId.get(hash);
         if (ids != null && ids.contains(oreID)) return;
         if (ids == null)
         {
-            ids = Lists.newArrayList();
+            ids = new IntArrayList();
             stackToId.put(hash, ids);
         }
         ids.add(oreID);
+        baked = null;
 
         //Add to the unbaked version
         ore = ore.copy();
         idToStack.get(oreID).add(ore);
+        RecipeIndex.invalidate();
         MinecraftForge.EVENT_BUS.post(new OreRegisterEvent(name, ore));
     }
 
@@ -710,6 +767,7 @@ public class OreDictionary
     {
         //System.out.println("Baking OreDictionary:");
         stackToId.clear();
+        baked = null;
         for (int id = 0; id < idToStack.size(); id++)
         {
             NonNullList<ItemStack> ores = idToStack.get(id);
@@ -732,10 +790,75 @@ public class OreDictionary
                 {
                     hash |= ((ore.getItemDamage() + 1) << 16); // +1 so meta 0 is significant
                 }
-                List<Integer> ids = stackToId.computeIfAbsent(hash, k -> Lists.newArrayList());
+                IntArrayList ids = stackToId.computeIfAbsent(hash, k -> new IntArrayList());
                 ids.add(id);
                 //System.out.println(id + " " + getOreName(id) + " " + Integer.toHexString(hash) + " " + ore);
             }
         }
+        baked = new Baked(stackToId, idToStack.size());
+    }
+
+    /**
+     * An immutable view of stackToId for lookups, replaced whenever it changes.
+     */
+    private static class Baked
+    {
+        /** The sorted ore IDs of each item and metadata, including those of the item's wildcard entry */
+        private final Int2ObjectOpenHashMap<int[]> stackToIds = new Int2ObjectOpenHashMap<int[]>();
+        /** The registry IDs of the items in each ore, for any metadata */
+        private final BitSet[] items;
+        /** The ores with entries of items the registry did not know when they were added */
+        private final BitSet unregistered = new BitSet();
+
+        private Baked(Int2ObjectMap<IntArrayList> stackToId, int ores)
+        {
+            items = new BitSet[ores];
+            for (Int2ObjectMap.Entry<IntArrayList> entry : stackToId.int2ObjectEntrySet())
+            {
+                int hash = entry.getIntKey();
+                IntArrayList ids = new IntArrayList(entry.getValue());
+                if (hash != -1 && (hash >>> 16) != 0)
+                {
+                    IntArrayList wildcard = stackToId.get(hash & 0xFFFF);
+                    if (wildcard != null)
+                    {
+                        ids.addAll(wildcard);
+                    }
+                }
+                int[] sorted = ids.toIntArray();
+                Arrays.sort(sorted);
+                int length = 0;
+                for (int i = 0; i < sorted.length; i++)
+                {
+                    if (length == 0 || sorted[length - 1] != sorted[i])
+                    {
+                        sorted[length++] = sorted[i];
+                    }
+                }
+                stackToIds.put(hash, length == sorted.length ? sorted : Arrays.copyOf(sorted, length));
+
+                for (int i = 0; i < entry.getValue().size(); i++)
+                {
+                    int ore = entry.getValue().getInt(i);
+                    if (hash == -1)
+                    {
+                        unregistered.set(ore);
+                    }
+                    else if (ore < ores)
+                    {
+                        if (items[ore] == null)
+                        {
+                            items[ore] = new BitSet();
+                        }
+                        items[ore].set(hash & 0xFFFF);
+                    }
+                }
+            }
+        }
+
+        private boolean hasItem(int ore, int item)
+        {
+            return ore >= 0 && ore < items.length && items[ore] != null && item >= 0 && items[ore].get(item);
+        }
     }
 }
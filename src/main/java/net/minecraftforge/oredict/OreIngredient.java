@@ -33,6 +33,7 @@ import net.minecraft.util.NonNullList;
 public class OreIngredient extends Ingredient
 {
     private NonNullList<ItemStack> ores;
+    private final int oreID;
     private IntList itemIds = null;
     private ItemStack[] array = null;
     private int lastSizeA = -1, lastSizeL = -1;
@@ -40,9 +41,19 @@ public class OreIngredient extends Ingredient
     public OreIngredient(String ore)
     {
         super(0);
+        oreID = OreDictionary.getOreID(ore);
         ores = OreDictionary.getOres(ore);
     }
 
+    /**
+     * The live ore dictionary entries, with wildcard metadata, unlike {@link #getMatchingStacks()}.
+     */
+    @Nonnull
+    public NonNullList<ItemStack> getOres()
+    {
+        return this.ores;
+    }
+
     @Override
     @Nonnull
     public ItemStack[] getMatchingStacks()
@@ -98,7 +109,7 @@ public class OreIngredient extends Ingredient
     @Override
     public boolean apply(@Nullable ItemStack input)
     {
-        if (input == null)
+        if (input == null || !input.isEmpty() && !OreDictionary.mayMatch(oreID, input))
             return false;
 
         for (ItemStack target : this.ores)
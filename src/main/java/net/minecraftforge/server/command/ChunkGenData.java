@@ -0,0 +1,124 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.minecraftforge.server.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.WorldWorkerManager;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * The progress of running {@link ChunkGenWorker}s, saved with the world.
+ */
+public class ChunkGenData extends WorldSavedData
+{
+    public static final String ID = "forge_chunkgen";
+
+    private final List<ChunkGenWorker> workers = new ArrayList<ChunkGenWorker>();
+    private NBTTagList pending = new NBTTagList();
+
+    public ChunkGenData(String name)
+    {
+        super(name);
+    }
+
+    static ChunkGenData get()
+    {
+        MapStorage storage = DimensionManager.getWorld(0).getMapStorage();
+        ChunkGenData data = (ChunkGenData)storage.getOrLoadData(ChunkGenData.class, ID);
+        if (data == null)
+        {
+            data = new ChunkGenData(ID);
+            storage.setData(ID, data);
+        }
+        return data;
+    }
+
+    /**
+     * Continues the tasks that were still running when the world was last saved.
+     */
+    public static void resume(MinecraftServer server)
+    {
+        WorldServer overworld = DimensionManager.getWorld(0);
+        if (overworld == null)
+        {
+            return;
+        }
+        ChunkGenData data = get();
+        NBTTagList pending = data.pending;
+        data.pending = new NBTTagList();
+        for (int i = 0; i < pending.tagCount(); i++)
+        {
+            ChunkGenWorker worker = new ChunkGenWorker(server, pending.getCompoundTagAt(i));
+            if (worker.hasWork())
+            {
+                server.sendMessage(worker.getResumeMessage(server));
+                data.add(worker);
+                WorldWorkerManager.addWorker(worker);
+            }
+        }
+    }
+
+    void add(ChunkGenWorker worker)
+    {
+        if (!workers.contains(worker))
+        {
+            workers.add(worker);
+            markDirty();
+        }
+    }
+
+    void remove(ChunkGenWorker worker)
+    {
+        workers.remove(worker);
+        markDirty();
+    }
+
+    @Override
+    public boolean isDirty()
+    {
+        return super.isDirty() || !workers.isEmpty(); // The workers progress with every chunk
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound nbt)
+    {
+        pending = nbt.getTagList("Tasks", Constants.NBT.TAG_COMPOUND);
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt)
+    {
+        NBTTagList tasks = pending.copy();
+        for (ChunkGenWorker worker : workers)
+        {
+            tasks.appendTag(worker.serializeNBT());
+        }
+        nbt.setTag("Tasks", tasks);
+        return nbt;
+    }
+}
@@ -22,26 +22,45 @@ import java.util.ArrayDeque;
 import java.util.Queue;
 
 import net.minecraft.command.ICommandSender;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.server.management.PlayerChunkMapEntry;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.text.TextComponentBase;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.gen.ChunkProviderServer;
 import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.ForgeChunkManager;
 import net.minecraftforge.common.WorldWorkerManager.IWorker;
 
+/**
+ * Generates the chunks in a spiral around a starting chunk, as part of {@link net.minecraftforge.common.WorldWorkerManager}'s time slice.
+ *
+ * Chunks ahead of the current one that are already saved are loaded in the background by the async chunk loader,
+ * so only generating and populating new chunks happens on the server thread. Generation can not be spread over
+ * threads, because the vanilla generators share noise buffers, biome caches and {@code IntCache} between chunks.
+ *
+ * Progress is kept in {@link ChunkGenData}, so unfinished tasks continue after a restart.
+ */
 public class ChunkGenWorker implements IWorker
 {
+    private static final int PREFETCH = 32;
+    private static final Runnable NOOP = () -> {};
+
     private final ICommandSender listener;
     protected final BlockPos start;
     protected final int total;
     private final int dim;
-    private final Queue<BlockPos> queue;
     private final int notificationFrequency;
+    private final int interval;
+    private int index = 0;
+    private int prefetched = 0;
     private int lastNotification = 0;
+    private long lastNotificationTime = System.nanoTime();
     private int genned = 0;
     private Boolean loadSpawn;
+    private ChunkGenData data;
 
     public ChunkGenWorker(ICommandSender listener, BlockPos start, int total, int dim, int interval)
     {
@@ -49,34 +68,55 @@ public class ChunkGenWorker implements IWorker
         this.start = start;
         this.total = total;
         this.dim  = dim;
-        this.queue = buildQueue();
+        this.interval = interval;
         this.notificationFrequency = interval != -1 ? interval : Math.max(total / 20, 100); //Every 5% or every 100, whichever is more.
     }
 
+    ChunkGenWorker(ICommandSender listener, NBTTagCompound nbt)
+    {
+        this(listener, new BlockPos(nbt.getInteger("X"), 0, nbt.getInteger("Z")), nbt.getInteger("Total"), nbt.getInteger("Dim"), nbt.getInteger("Interval"));
+        this.index = nbt.getInteger("Index");
+        this.prefetched = index;
+        this.genned = nbt.getInteger("Generated");
+    }
+
+    /**
+     * No longer used, the positions are computed from their index by {@link #getPosition(int)} so progress can be saved.
+     */
+    @Deprecated // TODO remove in 1.13
     protected Queue<BlockPos> buildQueue()
     {
         Queue<BlockPos> ret = new ArrayDeque<BlockPos>();
-        ret.add(start);
+        for (int i = 0; i < total; i++)
+            ret.add(getPosition(i));
+        return ret;
+    }
 
-        //This *should* spiral outwards, starting on right side, down, left, up, right, but hey we'll see!
-        int radius = 1;
-        while (ret.size() < total)
+    /**
+     * The chunk at the given index of the spiral, which starts at {@link #start} and goes outwards starting on the right side, down, left, up, right.
+     */
+    protected BlockPos getPosition(int index)
+    {
+        if (index == 0)
+            return start;
+
+        // Ring r holds 8r chunks, and starts after the 1 + 4r(r - 1) chunks of the inner rings
+        long j = index - 1;
+        long r = (long)((1 + Math.sqrt(1 + j)) / 2);
+        while (4 * r * (r + 1) <= j)
+            r++;
+        while (4 * r * (r - 1) > j)
+            r--;
+        int radius = (int)r;
+        int k = (int)(j - 4 * r * (r - 1));
+        int q = k % (2 * radius);
+        switch (k / (2 * radius))
         {
-            for (int q = -radius + 1; q <= radius && ret.size() < total; q++)
-                ret.add(start.add(radius, 0, q));
-
-            for (int q = radius - 1; q >= -radius && ret.size() < total; q--)
-                ret.add(start.add(q, 0, radius));
-
-            for (int q = radius - 1; q >= -radius && ret.size() < total; q--)
-                ret.add(start.add(-radius, 0, q));
-
-            for (int q = -radius + 1; q <= radius && ret.size() < total; q++)
-                ret.add(start.add(q, 0, -radius));
-
-            radius++;
+            case 0:  return start.add(radius, 0, -radius + 1 + q);
+            case 1:  return start.add(radius - 1 - q, 0, radius);
+            case 2:  return start.add(-radius, 0, radius - 1 - q);
+            default: return start.add(-radius + 1 + q, 0, -radius);
         }
-        return ret;
     }
 
     @Deprecated // TODO remove in 1.13
@@ -90,18 +130,21 @@ public class ChunkGenWorker implements IWorker
         return TextComponentHelper.createComponentTranslation(sender, "commands.forge.gen.start", total, start.getX(), start.getZ(), dim);
     }
 
+    TextComponentBase getResumeMessage(ICommandSender sender)
+    {
+        return TextComponentHelper.createComponentTranslation(sender, "commands.forge.gen.resume", total, start.getX(), start.getZ(), dim, index);
+    }
+
     @Override
     public boolean hasWork()
     {
-        return queue.size() > 0;
+        return index < total;
     }
 
     @Override
     public void work()
     {
-        BlockPos next = queue.poll();
-
-        if (next != null)
+        if (index < total)
         {
             WorldServer world = DimensionManager.getWorld(dim);
             if (world == null)
@@ -111,10 +154,16 @@ public class ChunkGenWorker implements IWorker
                 if (world == null)
                 {
                     listener.sendMessage(TextComponentHelper.createComponentTranslation(listener, "commands.forge.gen.dim_fail", dim));
-                    queue.clear();
+                    index = total;
+                    finish();
                     return;
                 }
             }
+            if (data == null)
+            {
+                data = ChunkGenData.get();
+                data.add(this);
+            }
             // While we work we don't want to cause world load spam so pause unloading the world.
             if (loadSpawn == null)
             {
@@ -122,15 +171,31 @@ public class ChunkGenWorker implements IWorker
                 world.provider.getDimensionType().setLoadSpawn(true);
             }
 
+            ChunkProviderServer provider = world.getChunkProvider();
+            if (ForgeChunkManager.asyncChunkLoading)
+            {
+                // Start loading the saved chunks we will need next, the chunks that still need generating are skipped right away
+                for (int end = Math.min(index + PREFETCH, total); prefetched < end; prefetched++)
+                {
+                    BlockPos next = getPosition(prefetched);
+                    provider.loadChunk(next.getX(), next.getZ(), NOOP);
+                }
+            }
+
+            BlockPos next = getPosition(index++);
             if (++lastNotification >= notificationFrequency)
             {
-                listener.sendMessage(TextComponentHelper.createComponentTranslation(listener, "commands.forge.gen.progress", total - queue.size(), total));
+                long now = System.nanoTime();
+                String rate = String.format("%.1f", lastNotification * 1.0E9D / Math.max(1, now - lastNotificationTime));
+                listener.sendMessage(TextComponentHelper.createComponentTranslation(listener, "commands.forge.gen.progress", index, total, rate));
                 lastNotification = 0;
+                lastNotificationTime = now;
             }
 
             int x = next.getX();
             int z = next.getZ();
 
+            // If it is still being loaded in the background, this waits for it
             Chunk target = world.getChunkFromChunkCoords(x, z);
             Chunk[] chunks = { target };
 
@@ -154,12 +219,33 @@ public class ChunkGenWorker implements IWorker
                 if (watchers == null) //If there are no players watching this, this will be null, so we can unload.
                     world.getChunkProvider().queueUnload(chunk);
             }
+
+            if (index == total)
+            {
+                listener.sendMessage(TextComponentHelper.createComponentTranslation(listener, "commands.forge.gen.complete", genned, total, dim));
+                finish();
+            }
         }
+    }
 
-        if (queue.size() == 0)
-        {
-            listener.sendMessage(TextComponentHelper.createComponentTranslation(listener, "commands.forge.gen.complete", genned, total, dim));
+    NBTTagCompound serializeNBT()
+    {
+        NBTTagCompound nbt = new NBTTagCompound();
+        nbt.setInteger("X", start.getX());
+        nbt.setInteger("Z", start.getZ());
+        nbt.setInteger("Total", total);
+        nbt.setInteger("Dim", dim);
+        nbt.setInteger("Interval", interval);
+        nbt.setInteger("Index", index);
+        nbt.setInteger("Generated", genned);
+        return nbt;
+    }
+
+    private void finish()
+    {
+        if (loadSpawn != null)
             DimensionManager.getProviderType(dim).setLoadSpawn(loadSpawn);
-        }
+        if (data != null)
+            data.remove(this);
     }
 }
@@ -0,0 +1,240 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.common.FMLLog;
+import net.minecraftforge.fml.common.eventhandler.EventProfiler;
+
+class CommandEvents extends CommandTreeBase
+{
+    private static final DecimalFormat TIME_FORMAT = new DecimalFormat("#####0.00");
+
+    public CommandEvents()
+    {
+        addSubcommand(new StartCommand());
+        addSubcommand(new StopCommand());
+        addSubcommand(new ResetCommand());
+        addSubcommand(new ResultsCommand());
+        addSubcommand(new DumpCommand());
+        addSubcommand(new CommandTreeHelp(this));
+    }
+
+    @Override
+    public String getName()
+    {
+        return "events";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel()
+    {
+        return 2;
+    }
+
+    @Override
+    public String getUsage(ICommandSender sender)
+    {
+        return "commands.forge.events.usage";
+    }
+
+    private static class StartCommand extends CommandBase
+    {
+        @Override
+        public String getName()
+        {
+            return "start";
+        }
+
+        @Override
+        public String getUsage(ICommandSender sender)
+        {
+            return "commands.forge.events.start.usage";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel()
+        {
+            return 2;
+        }
+
+        @Override
+        public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+        {
+            if (args.length < 1 || args.length > 2)
+            {
+                throw new WrongUsageException(getUsage(sender));
+            }
+            int duration = parseInt(args[0], 1, 600);
+            int sampling = args.length > 1 ? parseInt(args[1], 1, 1000) : EventProfiler.DEFAULT_SAMPLING;
+            EventProfiler.reset();
+            EventProfiler.start(duration, sampling);
+            sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.events.enabled", duration, sampling));
+        }
+    }
+
+    private static class StopCommand extends CommandBase
+    {
+        @Override
+        public String getName()
+        {
+            return "stop";
+        }
+
+        @Override
+        public String getUsage(ICommandSender sender)
+        {
+            return "commands.forge.events.stop.usage";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel()
+        {
+            return 2;
+        }
+
+        @Override
+        public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+        {
+            EventProfiler.stop();
+            sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.events.disabled"));
+        }
+    }
+
+    private static class ResetCommand extends CommandBase
+    {
+        @Override
+        public String getName()
+        {
+            return "reset";
+        }
+
+        @Override
+        public String getUsage(ICommandSender sender)
+        {
+            return "commands.forge.events.reset.usage";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel()
+        {
+            return 2;
+        }
+
+        @Override
+        public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+        {
+            EventProfiler.reset();
+            sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.events.reset"));
+        }
+    }
+
+    private static class ResultsCommand extends CommandBase
+    {
+        @Override
+        public String getName()
+        {
+            return "results";
+        }
+
+        @Override
+        public String getUsage(ICommandSender sender)
+        {
+            return "commands.forge.events.results.usage";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel()
+        {
+            return 2;
+        }
+
+        @Override
+        public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+        {
+            int count = args.length > 0 ? parseInt(args[0], 1, 100) : 10;
+            List<EventProfiler.Entry> results = EventProfiler.getResults();
+            if (results.isEmpty())
+            {
+                sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.events.noData"));
+                return;
+            }
+            for (EventProfiler.Entry entry : results.subList(0, Math.min(count, results.size())))
+            {
+                double total = entry.getTotalNanos() / 1.0E6D;
+                double mean = entry.getTotalNanos() / 1000.0D / entry.getCount();
+                sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.events.entry", entry.getEventType().getSimpleName(),
+                        entry.getModId(), entry.getListener(), entry.getCount(), TIME_FORMAT.format(total), TIME_FORMAT.format(mean),
+                        TIME_FORMAT.format(entry.getMaxNanos() / 1000.0D)));
+            }
+        }
+    }
+
+    private static class DumpCommand extends CommandBase
+    {
+        @Override
+        public String getName()
+        {
+            return "dump";
+        }
+
+        @Override
+        public String getUsage(ICommandSender sender)
+        {
+            return "commands.forge.events.dump.usage";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel()
+        {
+            return 2;
+        }
+
+        @Override
+        public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+        {
+            File file = server.getFile("event-profile-" + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + ".csv");
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+            {
+                EventProfiler.writeCsv(writer);
+            }
+            catch (IOException e)
+            {
+                FMLLog.log.error("Failed to write event profile to {}", file, e);
+                throw new CommandException("commands.forge.events.dump.failed", file.getName());
+            }
+            sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.events.dump.done", file.getName()));
+        }
+    }
+}
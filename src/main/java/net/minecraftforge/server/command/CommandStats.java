@@ -0,0 +1,74 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.text.DecimalFormat;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.common.chunkio.ChunkSaveExecutor;
+import net.minecraftforge.common.chunkio.DormantChunkStore;
+import net.minecraftforge.fml.common.eventhandler.AsyncEventListener;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageHandlerQueue;
+
+class CommandStats extends CommandBase
+{
+    private static final DecimalFormat TIME_FORMAT = new DecimalFormat("#####0.00");
+
+    @Override
+    public String getName()
+    {
+        return "stats";
+    }
+
+    @Override
+    public String getUsage(ICommandSender sender)
+    {
+        return "commands.forge.stats.usage";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel()
+    {
+        return 2;
+    }
+
+    @Override
+    public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+    {
+        sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.stats.chunkSaves",
+                ChunkSaveExecutor.getQueued(), ChunkSaveExecutor.getPeakQueued(), ChunkSaveExecutor.getSubmitted(),
+                ChunkSaveExecutor.getSaturated(),
+                TIME_FORMAT.format(ChunkSaveExecutor.getServerThreadNanos() / 1.0E6D), TIME_FORMAT.format(ChunkSaveExecutor.getWorkerNanos() / 1.0E6D)));
+        sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.stats.dormantChunks",
+                DormantChunkStore.getEntries(), DormantChunkStore.getUsedBytes() >> 10, DormantChunkStore.getMappedBytes() >> 20,
+                DormantChunkStore.getHits(), DormantChunkStore.getMisses(), DormantChunkStore.getEvictions()));
+        sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.stats.asyncEvents",
+                AsyncEventListener.getQueued(), AsyncEventListener.getDropped()));
+        for (MessageHandlerQueue.Stats stats : MessageHandlerQueue.getStats())
+        {
+            sender.sendMessage(TextComponentHelper.createComponentTranslation(sender, "commands.forge.stats.messages", stats.getSide(), stats.getChannel(),
+                    stats.getDepth(), stats.getPeakDepth(), stats.getHandled(), TIME_FORMAT.format(stats.getNanos() / 1.0E6D),
+                    TIME_FORMAT.format(stats.getLastTickNanos() / 1.0E6D)));
+        }
+    }
+}
@@ -32,6 +32,8 @@ public class ForgeCommand extends CommandTreeBase
         super.addSubcommand(new CommandTrack());
         super.addSubcommand(new CommandGenerate());
         super.addSubcommand(new CommandEntity());
+        super.addSubcommand(new CommandEvents());
+        super.addSubcommand(new CommandStats());
         super.addSubcommand(new CommandTreeHelp(this));
     }
 
@@ -0,0 +1,118 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraftforge.common.ForgeChunkManager.ForcedChunkIndex;
+
+import org.junit.Test;
+
+public class ForcedChunkIndexTest
+{
+    private static final ChunkPos A = new ChunkPos(0, 0);
+    private static final ChunkPos B = new ChunkPos(-3, 7);
+    private static final ChunkPos C = new ChunkPos(100000, -100000);
+
+    @Test
+    public void testForceUnforce()
+    {
+        ForcedChunkIndex<String> index = new ForcedChunkIndex<String>();
+        assertTrue(index.isEmpty());
+
+        index.add(A, "first");
+        index.add(A, "second");
+        index.add(A, "second");
+        index.add(B, "first");
+        assertFalse(index.isEmpty());
+        assertTrue(index.contains(ChunkPos.asLong(A.x, A.z)));
+        assertTrue(index.contains(ChunkPos.asLong(B.x, B.z)));
+        assertFalse(index.contains(ChunkPos.asLong(C.x, C.z)));
+        assertEquals(ImmutableSet.of("first", "second"), index.getMultimap().get(A));
+
+        index.remove(A, "first");
+        assertTrue("A chunk stays forced while another ticket forces it", index.contains(ChunkPos.asLong(A.x, A.z)));
+        index.remove(A, "second");
+        assertFalse(index.contains(ChunkPos.asLong(A.x, A.z)));
+        index.remove(C, "first"); // Never forced
+        index.remove(B, "first");
+        assertTrue(index.isEmpty());
+        assertTrue(index.getMultimap().isEmpty());
+    }
+
+    @Test
+    public void testSnapshots()
+    {
+        ForcedChunkIndex<String> index = new ForcedChunkIndex<String>();
+        index.add(A, "first");
+        index.add(B, "first");
+        LongSet keys = index.getKeys();
+        ImmutableSetMultimap<ChunkPos, String> multimap = index.getMultimap();
+        assertEquals(2, keys.size());
+        assertEquals(ImmutableSet.of(A, B), multimap.keySet());
+
+        index.add(C, "second");
+        index.remove(A, "first");
+        assertEquals("Snapshots do not change while they are iterated", 2, keys.size());
+        assertTrue(keys.contains(ChunkPos.asLong(A.x, A.z)));
+        assertEquals(ImmutableSet.of(A, B), multimap.keySet());
+
+        assertEquals(2, index.getKeys().size());
+        assertTrue(index.getKeys().contains(ChunkPos.asLong(C.x, C.z)));
+        assertEquals(ImmutableSet.of(B, C), index.getMultimap().keySet());
+        assertEquals("Iteration keeps the order chunks were forced in", ChunkPos.asLong(B.x, B.z), index.getKeys().iterator().nextLong());
+    }
+
+    @Test
+    public void testRemoveFrom()
+    {
+        ForcedChunkIndex<String> index = new ForcedChunkIndex<String>();
+        index.add(A, "first");
+        index.add(B, "first");
+
+        Set<Long> few = new HashSet<Long>();
+        few.add(ChunkPos.asLong(A.x, A.z));
+        index.removeFrom(few);
+        assertTrue(few.isEmpty());
+
+        Set<Long> many = new HashSet<Long>();
+        for (int x = -4; x < 4; x++)
+        {
+            for (int z = 0; z < 8; z++)
+            {
+                many.add(ChunkPos.asLong(x, z));
+            }
+        }
+        index.removeFrom(many);
+        assertEquals(62, many.size());
+        assertFalse(many.contains(ChunkPos.asLong(A.x, A.z)));
+        assertFalse(many.contains(ChunkPos.asLong(B.x, B.z)));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class DormantChunkStoreTest
+{
+    // Chunks are keyed by world identity, so the tests store them without one
+    @After
+    public void clear()
+    {
+        DormantChunkStore.removeWorld(null);
+    }
+
+    @Test
+    public void testPutGet()
+    {
+        DormantChunkStore.configure(10, 1 << 20);
+        long hits = DormantChunkStore.getHits();
+        long misses = DormantChunkStore.getMisses();
+
+        NBTTagCompound root = root(1, 10000);
+        DormantChunkStore.put(null, pos(1, -1), root);
+        assertEquals(1, DormantChunkStore.getEntries());
+
+        NBTTagCompound copy = DormantChunkStore.get(null, pos(1, -1));
+        assertEquals(root, copy);
+        copy.removeTag("Level");
+        assertEquals(root, DormantChunkStore.get(null, pos(1, -1)));
+        assertEquals(1, DormantChunkStore.getEntries());
+        assertNull(DormantChunkStore.get(null, pos(-1, 1)));
+        assertEquals(hits + 2, DormantChunkStore.getHits());
+        assertEquals(misses + 1, DormantChunkStore.getMisses());
+
+        DormantChunkStore.removeWorld(null);
+        assertEquals(0, DormantChunkStore.getEntries());
+        assertEquals(0, DormantChunkStore.getUsedBytes());
+    }
+
+    @Test
+    public void testReplace()
+    {
+        DormantChunkStore.configure(10, 1 << 20);
+        DormantChunkStore.put(null, pos(0, 0), root(1, 10000));
+        DormantChunkStore.put(null, pos(0, 0), root(2, 100));
+        assertEquals(1, DormantChunkStore.getEntries());
+        assertEquals(root(2, 100), DormantChunkStore.get(null, pos(0, 0)));
+    }
+
+    @Test
+    public void testEvictOldestByCount()
+    {
+        DormantChunkStore.configure(2, 1 << 20);
+        long evictions = DormantChunkStore.getEvictions();
+
+        DormantChunkStore.put(null, pos(0, 0), root(0, 100));
+        DormantChunkStore.put(null, pos(1, 0), root(1, 100));
+        DormantChunkStore.put(null, pos(2, 0), root(2, 100));
+        assertEquals(2, DormantChunkStore.getEntries());
+        assertEquals(evictions + 1, DormantChunkStore.getEvictions());
+        assertNull(DormantChunkStore.get(null, pos(0, 0)));
+        assertEquals(root(1, 100), DormantChunkStore.get(null, pos(1, 0)));
+        assertEquals(root(2, 100), DormantChunkStore.get(null, pos(2, 0)));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed()
+    {
+        DormantChunkStore.configure(2, 1 << 20);
+        DormantChunkStore.put(null, pos(0, 0), root(0, 100));
+        DormantChunkStore.put(null, pos(1, 0), root(1, 100));
+        assertNotNull(DormantChunkStore.get(null, pos(0, 0)));
+        DormantChunkStore.put(null, pos(2, 0), root(2, 100));
+        assertEquals(root(0, 100), DormantChunkStore.get(null, pos(0, 0)));
+        assertNull(DormantChunkStore.get(null, pos(1, 0)));
+        assertEquals(root(2, 100), DormantChunkStore.get(null, pos(2, 0)));
+    }
+
+    @Test
+    public void testEvictOldestBySize()
+    {
+        // Random data does not compress, so each chunk needs 3 of the 8 blocks
+        DormantChunkStore.configure(10, 8 * 4096);
+        long evictions = DormantChunkStore.getEvictions();
+
+        for (int i = 0; i < 4; i++)
+        {
+            DormantChunkStore.put(null, pos(i, i), root(i, 10000));
+        }
+        assertEquals(2, DormantChunkStore.getEntries());
+        assertEquals(evictions + 2, DormantChunkStore.getEvictions());
+        assertNull(DormantChunkStore.get(null, pos(0, 0)));
+        assertNull(DormantChunkStore.get(null, pos(1, 1)));
+        assertNotNull(DormantChunkStore.get(null, pos(2, 2)));
+        assertEquals(root(3, 10000), DormantChunkStore.get(null, pos(3, 3)));
+    }
+
+    @Test
+    public void testTooLarge()
+    {
+        DormantChunkStore.configure(10, 2 * 4096);
+        DormantChunkStore.put(null, pos(0, 0), root(0, 10000));
+        assertEquals(0, DormantChunkStore.getEntries());
+        assertNull(DormantChunkStore.get(null, pos(0, 0)));
+    }
+
+    private static long pos(int x, int z)
+    {
+        return (long)x & 0xFFFFFFFFL | ((long)z & 0xFFFFFFFFL) << 32;
+    }
+
+    private static NBTTagCompound root(int seed, int size)
+    {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        NBTTagCompound level = new NBTTagCompound();
+        level.setInteger("xPos", seed);
+        level.setByteArray("Data", data);
+        NBTTagCompound root = new NBTTagCompound();
+        root.setInteger("DataVersion", 1343);
+        root.setTag("Level", level);
+        return root;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.eventhandler.Cancelable;
+import net.minecraftforge.fml.common.eventhandler.Event;
+import net.minecraftforge.fml.common.eventhandler.EventBus;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.ListenerList;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link EventBus#post(Event)} through the generated event dispatchers against the plain listener loop.
+ * Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EventBusBenchmark
+{
+    @Param({"1", "10", "100"})
+    public int listeners;
+
+    private EventBus bus;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole)
+    {
+        this.blackhole = blackhole;
+        Loader.instance().setActiveModContainer(Loader.instance().getMinecraftModContainer());
+        bus = new EventBus();
+        for (int x = 0; x < listeners; x++)
+        {
+            bus.register(x % 2 == 0 ? new Listener() : new HighListener());
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dfml.disableEventDispatchers=true")
+    public boolean postLoop()
+    {
+        return bus.post(new BenchmarkEvent(blackhole));
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    public boolean postDispatcher()
+    {
+        return bus.post(new BenchmarkEvent(blackhole));
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(EventBusBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class Listener
+    {
+        @SubscribeEvent
+        public void onEvent(BenchmarkEvent event)
+        {
+            event.blackhole.consume(this);
+        }
+    }
+
+    public static class HighListener
+    {
+        @SubscribeEvent(priority = EventPriority.HIGH, receiveCanceled = true)
+        public void onEvent(BenchmarkEvent event)
+        {
+            event.blackhole.consume(event);
+        }
+    }
+
+    /**
+     * Sets up its own listener list by hand, as the event transformer does not run on the test classpath.
+     */
+    @Cancelable
+    public static class BenchmarkEvent extends Event
+    {
+        private static ListenerList LISTENER_LIST;
+        private final Blackhole blackhole;
+
+        public BenchmarkEvent()
+        {
+            this(null);
+        }
+
+        public BenchmarkEvent(Blackhole blackhole)
+        {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        protected void setup()
+        {
+            super.setup();
+            if (LISTENER_LIST == null)
+            {
+                LISTENER_LIST = new ListenerList(super.getListenerList());
+            }
+        }
+
+        @Override
+        public ListenerList getListenerList()
+        {
+            return LISTENER_LIST;
+        }
+
+        @Override
+        public boolean isCancelable()
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.InventoryCrafting;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.ShapedRecipes;
+import net.minecraft.item.crafting.ShapelessRecipes;
+import net.minecraft.util.NonNullList;
+import net.minecraftforge.common.crafting.RecipeIndex;
+import net.minecraftforge.fml.common.Loader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares finding the recipe for a crafting grid by scanning every recipe, like vanilla, against the {@link RecipeIndex},
+ * over a synthetic registry of shaped and shapeless recipes. One in a hundred recipes is of a type the index does not know,
+ * and is tested on every lookup. Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeLookupBenchmark
+{
+    @Param({"scan", "index"})
+    public String lookup;
+
+    @Param({"50000"})
+    public int recipes;
+
+    private List<IRecipe> registry;
+    private RecipeIndex index;
+    private InventoryCrafting[] grids;
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        Loader.instance();
+        Bootstrap.register();
+        List<Item> items = new ArrayList<Item>();
+        for (Item item : Item.REGISTRY)
+        {
+            if (item != Items.AIR)
+            {
+                items.add(item);
+            }
+        }
+        Random random = new Random(42);
+        registry = new ArrayList<IRecipe>(recipes);
+        for (int i = 0; i < recipes; i++)
+        {
+            registry.add(createRecipe(random, items, i % 100 == 99));
+        }
+        index = new RecipeIndex(registry);
+
+        grids = new InventoryCrafting[256];
+        for (int i = 0; i < grids.length; i++)
+        {
+            grids[i] = createGrid(registry.get(random.nextInt(recipes)));
+        }
+    }
+
+    @Benchmark
+    public IRecipe findMatchingRecipe()
+    {
+        InventoryCrafting grid = grids[next++ & (grids.length - 1)];
+        for (IRecipe recipe : lookup.equals("index") ? index.getCandidates(grid) : registry)
+        {
+            if (recipe.matches(grid, null))
+            {
+                return recipe;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(RecipeLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * A shaped or shapeless recipe of one to nine random items.
+     */
+    private static IRecipe createRecipe(Random random, List<Item> items, boolean custom)
+    {
+        int width = 1 + random.nextInt(3);
+        int height = 1 + random.nextInt(3);
+        NonNullList<Ingredient> ingredients = NonNullList.withSize(width * height, Ingredient.EMPTY);
+        for (int i = 0; i < ingredients.size(); i++)
+        {
+            ingredients.set(i, Ingredient.fromItems(items.get(random.nextInt(items.size()))));
+        }
+        ItemStack result = new ItemStack(items.get(random.nextInt(items.size())));
+        if (custom)
+        {
+            return new ShapedRecipes("", width, height, ingredients, result) {};
+        }
+        return random.nextBoolean() ? new ShapedRecipes("", width, height, ingredients, result) : new ShapelessRecipes("", result, ingredients);
+    }
+
+    /**
+     * The grid the recipe was made for, with its ingredients in the top left corner.
+     */
+    private static InventoryCrafting createGrid(IRecipe recipe)
+    {
+        InventoryCrafting grid = new InventoryCrafting(new Container()
+        {
+            @Override
+            public boolean canInteractWith(EntityPlayer player)
+            {
+                return false;
+            }
+        }, 3, 3);
+        int width = recipe instanceof ShapedRecipes ? ((ShapedRecipes)recipe).getWidth() : 3;
+        NonNullList<Ingredient> ingredients = recipe.getIngredients();
+        for (int i = 0; i < ingredients.size(); i++)
+        {
+            grid.setInventorySlotContents(i / width * 3 + i % width, ingredients.get(i).getMatchingStacks()[0].copy());
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.test.benchmark;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.world.chunk.storage.RegionFileCache;
+import net.minecraftforge.common.ForgeModContainer;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares chunk reads and writes through the vanilla region files against the memory mapped ones,
+ * over a generated world of fully populated 32x32 chunk regions. Run {@link #main(String[])} from the test classpath.
+ * This only measures throughput, {@link net.minecraftforge.test.RegionFileTest} checks that both backends read the same chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegionFileBenchmark
+{
+    @Param({"vanilla", "mapped"})
+    public String backend;
+
+    /** Regions per side of the generated world. */
+    @Param({"2"})
+    public int regions;
+
+    private File worldDir;
+    private NBTTagCompound[] chunks;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        worldDir = Files.createTempDirectory("forge-region-benchmark").toFile();
+        ForgeModContainer.mappedRegionFiles = false; // Always generate with vanilla, so both backends read the same files
+        Random random = new Random(42);
+        chunks = new NBTTagCompound[16];
+        for (int i = 0; i < chunks.length; i++)
+        {
+            chunks[i] = createChunk(random);
+        }
+        for (int x = 0; x < regions * 32; x++)
+        {
+            for (int z = 0; z < regions * 32; z++)
+            {
+                write(x, z);
+            }
+        }
+        RegionFileCache.clearRegionFileReferences();
+        ForgeModContainer.mappedRegionFiles = backend.equals("mapped");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        RegionFileCache.clearRegionFileReferences();
+        FileUtils.deleteDirectory(worldDir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public NBTTagCompound readSingleThread() throws IOException
+    {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public NBTTagCompound readConcurrent() throws IOException
+    {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void writeConcurrent() throws IOException
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        write(random.nextInt(regions * 32), random.nextInt(regions * 32));
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(RegionFileBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private NBTTagCompound read() throws IOException
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (DataInputStream in = RegionFileCache.getChunkInputStream(worldDir, random.nextInt(regions * 32), random.nextInt(regions * 32)))
+        {
+            return CompressedStreamTools.read(in);
+        }
+    }
+
+    private void write(int x, int z) throws IOException
+    {
+        try (DataOutputStream out = RegionFileCache.getChunkOutputStream(worldDir, x, z))
+        {
+            CompressedStreamTools.write(chunks[(x * 31 + z) & (chunks.length - 1)], out);
+        }
+    }
+
+    /**
+     * A chunk with eight sections of mostly stone, compressing roughly like a real one.
+     */
+    private static NBTTagCompound createChunk(Random random)
+    {
+        NBTTagList sections = new NBTTagList();
+        for (int y = 0; y < 8; y++)
+        {
+            byte[] blocks = new byte[4096];
+            byte[] data = new byte[2048];
+            byte[] light = new byte[2048];
+            for (int i = 0; i < blocks.length; i++)
+            {
+                blocks[i] = (byte)(random.nextInt(10) == 0 ? random.nextInt(16) : 1);
+            }
+            for (int i = 0; i < light.length; i++)
+            {
+                light[i] = (byte)(random.nextInt(4) == 0 ? random.nextInt(256) : 0);
+            }
+            NBTTagCompound section = new NBTTagCompound();
+            section.setByte("Y", (byte)y);
+            section.setByteArray("Blocks", blocks);
+            section.setByteArray("Data", data);
+            section.setByteArray("BlockLight", light);
+            section.setByteArray("SkyLight", light.clone());
+            sections.appendTag(section);
+        }
+        NBTTagCompound level = new NBTTagCompound();
+        level.setTag("Sections", sections);
+        NBTTagCompound root = new NBTTagCompound();
+        root.setTag("Level", level);
+        return root;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraftforge.fml.common.discovery.ASMDataTable;
+import net.minecraftforge.fml.common.discovery.ContainerType;
+import net.minecraftforge.fml.common.discovery.ModCandidate;
+import net.minecraftforge.fml.common.discovery.asm.ASMModParser;
+import net.minecraftforge.fml.common.discovery.asm.ModAnnotation.EnumHolder;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ASMModParserTest
+{
+    private static final ModCandidate CANDIDATE = new ModCandidate(new File("test.jar"), new File("test.jar"), ContainerType.JAR);
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        ASMModParser parsed;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(Annotated.class.getName().replace('.', '/') + ".class"))
+        {
+            parsed = new ASMModParser(in);
+        }
+        byte[] written = write(parsed);
+        DataInput in = new DataInputStream(new ByteArrayInputStream(written));
+        ASMModParser read = new ASMModParser(in);
+
+        assertEquals(parsed.getASMType(), read.getASMType());
+        assertEquals(parsed.getASMSuperType(), read.getASMSuperType());
+        assertEquals(parsed.getClassVersion(), read.getClassVersion());
+        assertArrayEquals(written, write(read));
+
+        assertEquals(3, getData(parsed, Sample.class.getName()).size()); // The class, its field and its method
+        assertEquals(1, getData(parsed, "java/lang/Runnable").size());
+        for (String name : new String[] { Sample.class.getName(), Child.class.getName(), "java/lang/Runnable" })
+        {
+            assertEquals(name, getData(parsed, name), getData(read, name));
+        }
+    }
+
+    private static byte[] write(ASMModParser parser) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            parser.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * What the parser adds to an ASMDataTable, in a form that can be compared.
+     */
+    private static Set<List<Object>> getData(ASMModParser parser, String name)
+    {
+        ASMDataTable table = new ASMDataTable();
+        parser.sendToTable(table, CANDIDATE);
+        Set<List<Object>> data = new HashSet<List<Object>>();
+        for (ASMDataTable.ASMData entry : table.getAll(name))
+        {
+            data.add(Lists.newArrayList(entry.getAnnotationName(), entry.getClassName(), entry.getObjectName(), normalize(entry.getAnnotationInfo())));
+        }
+        return data;
+    }
+
+    /**
+     * Replaces arrays and enum values, which do not implement equals, with lists.
+     */
+    private static Object normalize(Object value)
+    {
+        if (value instanceof EnumHolder)
+        {
+            return Lists.newArrayList(((EnumHolder)value).getDesc(), ((EnumHolder)value).getValue());
+        }
+        if (value instanceof List)
+        {
+            List<Object> list = new ArrayList<Object>();
+            for (Object element : (List<?>)value)
+            {
+                list.add(normalize(element));
+            }
+            return list;
+        }
+        if (value instanceof Map)
+        {
+            Map<Object, Object> map = new HashMap<Object, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet())
+            {
+                map.put(entry.getKey(), normalize(entry.getValue()));
+            }
+            return map;
+        }
+        if (value != null && value.getClass().isArray())
+        {
+            List<Object> list = Lists.newArrayList(value.getClass());
+            for (int i = 0; i < Array.getLength(value); i++)
+            {
+                list.add(Array.get(value, i));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    @interface Sample
+    {
+        String string() default "";
+        int integer() default 0;
+        long big() default 0;
+        float decimal() default 0;
+        double precise() default 0;
+        boolean flag() default false;
+        byte tiny() default 0;
+        char letter() default ' ';
+        short small() default 0;
+        Class<?> type() default Object.class;
+        ElementType kind() default ElementType.TYPE;
+        int[] numbers() default {};
+        boolean[] flags() default {};
+        String[] strings() default {};
+        ElementType[] kinds() default {};
+        Child child() default @Child;
+        Child[] children() default {};
+    }
+
+    @interface Child
+    {
+        String value() default "";
+    }
+
+    @Sample(string = "text", integer = -1, big = Long.MAX_VALUE, decimal = 3.5F, precise = 4.25D, flag = true, tiny = 5, letter = 'x', small = 6,
+            type = String[].class, kind = ElementType.FIELD, numbers = { 7, 8 }, flags = { true, false }, strings = { "a", "b" },
+            kinds = { ElementType.METHOD, ElementType.TYPE }, child = @Child("nested"), children = { @Child("first"), @Child })
+    private static class Annotated implements Runnable
+    {
+        @Sample(numbers = {}, strings = {}, children = {})
+        private int field;
+
+        @Override
+        @Sample(string = "method", child = @Child)
+        public void run()
+        {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.registry.ForgeTestRunner;
+import net.minecraftforge.oredict.OreDictionary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ForgeTestRunner.class)
+public class OreDictionaryTest
+{
+    @BeforeClass
+    public static void setUp()
+    {
+        Loader.instance();
+        Bootstrap.register();
+
+        OreDictionary.registerOre("oreDictionaryTestWildcard", new ItemStack(Blocks.WOOL, 1, OreDictionary.WILDCARD_VALUE));
+        OreDictionary.registerOre("oreDictionaryTestMeta", new ItemStack(Blocks.WOOL, 1, 3));
+        OreDictionary.registerOre("oreDictionaryTestMeta", new ItemStack(Blocks.WOOL, 1, 5));
+        OreDictionary.registerOre("oreDictionaryTestMixed", new ItemStack(Blocks.WOOL, 1, 3));
+        OreDictionary.registerOre("oreDictionaryTestMixed", new ItemStack(Items.STICK, 1, OreDictionary.WILDCARD_VALUE));
+        OreDictionary.registerOre("oreDictionaryTestMixed", new ItemStack(Items.STICK)); // Covered by the wildcard entry
+        OreDictionary.registerOre("oreDictionaryTestMeta", new ItemStack(Blocks.WOOL, 1, 3)); // Duplicate
+        OreDictionary.getOreID("oreDictionaryTestEmpty");
+    }
+
+    @Test
+    public void testSameAsScan()
+    {
+        List<ItemStack> stacks = new ArrayList<ItemStack>();
+        for (int meta = 0; meta < 16; meta++)
+        {
+            stacks.add(new ItemStack(Blocks.WOOL, 1, meta));
+            stacks.add(new ItemStack(Blocks.PLANKS, 1, meta));
+        }
+        stacks.add(new ItemStack(Blocks.WOOL, 1, OreDictionary.WILDCARD_VALUE));
+        stacks.add(new ItemStack(Items.STICK));
+        stacks.add(new ItemStack(Items.STICK, 1, 9));
+        stacks.add(new ItemStack(Items.APPLE));
+        stacks.add(new ItemStack(Items.DYE, 1, 4));
+        stacks.add(new ItemStack(Blocks.FARMLAND));
+
+        int ores = OreDictionary.getOreNames().length;
+        for (ItemStack stack : stacks)
+        {
+            int[] expected = scan(stack);
+            assertArrayEquals(stack.toString(), expected, OreDictionary.getOreIDs(stack));
+            for (int id = -1; id <= ores; id++)
+            {
+                assertEquals(stack + " in " + OreDictionary.getOreName(id), IntArrayList.wrap(expected).contains(id), OreDictionary.hasOreID(stack, id));
+            }
+        }
+    }
+
+    @Test
+    public void testWildcard()
+    {
+        int wildcard = OreDictionary.getOreID("oreDictionaryTestWildcard");
+        int meta = OreDictionary.getOreID("oreDictionaryTestMeta");
+        int mixed = OreDictionary.getOreID("oreDictionaryTestMixed");
+        assertOres(new ItemStack(Blocks.WOOL, 1, 1), wildcard);
+        assertOres(new ItemStack(Blocks.WOOL, 1, 3), wildcard, meta, mixed);
+        assertOres(new ItemStack(Blocks.WOOL, 1, 5), wildcard, meta);
+        assertOres(new ItemStack(Blocks.WOOL, 1, OreDictionary.WILDCARD_VALUE), wildcard);
+        assertOres(new ItemStack(Items.STICK, 1, 7), mixed);
+    }
+
+    /**
+     * Checks which of the test ores the stack is registered to, vanilla ores are ignored.
+     */
+    private static void assertOres(ItemStack stack, int... expected)
+    {
+        IntArrayList actual = new IntArrayList();
+        for (int id : OreDictionary.getOreIDs(stack))
+        {
+            if (OreDictionary.getOreName(id).startsWith("oreDictionaryTest"))
+            {
+                actual.add(id);
+            }
+        }
+        assertEquals(stack.toString(), IntArrayList.wrap(expected), actual);
+    }
+
+    /**
+     * The IDs of every ore with an entry matching the stack, like getOreIDs found them before it was indexed.
+     */
+    private static int[] scan(ItemStack stack)
+    {
+        IntArrayList ids = new IntArrayList();
+        for (String name : OreDictionary.getOreNames())
+        {
+            for (ItemStack target : OreDictionary.getOres(name, false))
+            {
+                if (OreDictionary.itemMatches(target, stack, false))
+                {
+                    ids.add(OreDictionary.getOreID(name));
+                    break;
+                }
+            }
+        }
+        int[] sorted = ids.toIntArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
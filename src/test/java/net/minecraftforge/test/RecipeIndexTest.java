@@ -0,0 +1,157 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.InventoryCrafting;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.RecipeFireworks;
+import net.minecraft.item.crafting.ShapedRecipes;
+import net.minecraft.item.crafting.ShapelessRecipes;
+import net.minecraft.util.NonNullList;
+import net.minecraftforge.common.crafting.RecipeIndex;
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.registry.ForgeTestRunner;
+import net.minecraftforge.oredict.OreDictionary;
+import net.minecraftforge.oredict.OreIngredient;
+import net.minecraftforge.oredict.ShapedOreRecipe;
+import net.minecraftforge.oredict.ShapelessOreRecipe;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ForgeTestRunner.class)
+public class RecipeIndexTest
+{
+    private static Item farmland;
+    private static List<IRecipe> recipes;
+    private static List<ItemStack> stacks;
+
+    @BeforeClass
+    public static void setUp()
+    {
+        Loader.instance();
+        Bootstrap.register();
+
+        // Farmland is in no creative tab, so wildcard entries of it are missing from Ingredient.getMatchingStacks
+        farmland = Item.getItemFromBlock(Blocks.FARMLAND);
+        OreDictionary.registerOre("recipeIndexTestTabless", new ItemStack(farmland, 1, OreDictionary.WILDCARD_VALUE));
+        OreDictionary.registerOre("recipeIndexTestMixed", new ItemStack(Blocks.STONE));
+        OreDictionary.registerOre("recipeIndexTestMixed", new ItemStack(farmland, 1, OreDictionary.WILDCARD_VALUE));
+
+        ItemStack result = new ItemStack(Items.DIAMOND);
+        recipes = new ArrayList<IRecipe>();
+        recipes.add(new ShapedOreRecipe(null, result, "X", 'X', "recipeIndexTestTabless"));
+        recipes.add(new ShapelessOreRecipe(null, result, "recipeIndexTestTabless", Items.STICK));
+        recipes.add(new ShapedOreRecipe(null, result, "XY", 'X', "recipeIndexTestMixed", 'Y', Items.STICK));
+        recipes.add(new RecipeFireworks());
+        recipes.add(new ShapedRecipes("", 1, 2, NonNullList.from(Ingredient.EMPTY,
+                Ingredient.fromStacks(new ItemStack(farmland, 1, OreDictionary.WILDCARD_VALUE), new ItemStack(Items.APPLE)),
+                Ingredient.fromItem(Items.COAL)), result));
+        recipes.add(new ShapelessRecipes("", result, NonNullList.from(Ingredient.EMPTY, Ingredient.fromItem(Items.STICK), Ingredient.fromItem(Items.COAL))));
+        recipes.add(new ShapedOreRecipe(null, result, "X", 'X', new OreIngredient("recipeIndexTestMixed")));
+
+        stacks = new ArrayList<ItemStack>();
+        stacks.add(new ItemStack(farmland));
+        stacks.add(new ItemStack(farmland, 1, 7));
+        stacks.add(new ItemStack(Blocks.STONE));
+        stacks.add(new ItemStack(Blocks.STONE, 1, 1));
+        stacks.add(new ItemStack(Items.STICK));
+        stacks.add(new ItemStack(Items.APPLE));
+        stacks.add(new ItemStack(Items.COAL));
+        stacks.add(new ItemStack(Items.GUNPOWDER));
+        stacks.add(new ItemStack(Items.PAPER));
+    }
+
+    @Test
+    public void testSameMatchesAsScan()
+    {
+        RecipeIndex index = new RecipeIndex(recipes);
+        InventoryCrafting inv = new InventoryCrafting(new DummyContainer(), 3, 3);
+        int matched = 0;
+        for (ItemStack first : stacks)
+        {
+            for (ItemStack second : stacks)
+            {
+                for (int slot : new int[] { 1, 3 }) // Beside and below the first stack
+                {
+                    inv.clear();
+                    inv.setInventorySlotContents(0, first.copy());
+                    inv.setInventorySlotContents(slot, second.copy());
+                    List<IRecipe> expected = getMatches(recipes, inv);
+                    assertEquals(first + ", " + second, expected, getMatches(index.getCandidates(inv), inv));
+                    matched += expected.size();
+                }
+            }
+            inv.clear();
+            inv.setInventorySlotContents(0, first.copy());
+            List<IRecipe> expected = getMatches(recipes, inv);
+            assertEquals(first.toString(), expected, getMatches(index.getCandidates(inv), inv));
+            matched += expected.size();
+        }
+        assertTrue("No grid matched a recipe", matched > 0);
+    }
+
+    @Test
+    public void testTablessOreItem()
+    {
+        RecipeIndex index = new RecipeIndex(recipes);
+        InventoryCrafting inv = new InventoryCrafting(new DummyContainer(), 3, 3);
+        inv.setInventorySlotContents(0, new ItemStack(farmland, 1, 3));
+        assertTrue(recipes.get(0).matches(inv, null));
+        assertEquals(recipes.get(0), getMatches(index.getCandidates(inv), inv).get(0));
+    }
+
+    private static List<IRecipe> getMatches(Iterable<IRecipe> recipes, InventoryCrafting inv)
+    {
+        List<IRecipe> matches = new ArrayList<IRecipe>();
+        for (IRecipe recipe : recipes)
+        {
+            if (recipe.matches(inv, null))
+            {
+                matches.add(recipe);
+            }
+        }
+        return matches;
+    }
+
+    private static class DummyContainer extends Container
+    {
+        @Override
+        public boolean canInteractWith(EntityPlayer player)
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.chunk.storage.RegionFileCache;
+import net.minecraftforge.common.ForgeModContainer;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RegionFileTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown()
+    {
+        RegionFileCache.clearRegionFileReferences();
+        ForgeModContainer.mappedRegionFiles = false;
+    }
+
+    @Test
+    public void testMappedReadsVanilla() throws IOException
+    {
+        File dir = folder.newFolder();
+        NBTTagCompound[] chunks = writeAll(dir, false);
+        readAll(dir, true, chunks);
+    }
+
+    @Test
+    public void testVanillaReadsMapped() throws IOException
+    {
+        File dir = folder.newFolder();
+        NBTTagCompound[] chunks = writeAll(dir, true);
+        readAll(dir, false, chunks);
+    }
+
+    @Test
+    public void testMappedRewrite() throws IOException
+    {
+        File dir = folder.newFolder();
+        writeAll(dir, true);
+        NBTTagCompound[] chunks = writeAll(dir, true); // Different sizes, so chunks move to other sectors
+        readAll(dir, true, chunks);
+        readAll(dir, false, chunks);
+    }
+
+    /**
+     * Writes chunks of varying size over a region boundary, some of them spanning several sectors.
+     */
+    private static NBTTagCompound[] writeAll(File dir, boolean mapped) throws IOException
+    {
+        ForgeModContainer.mappedRegionFiles = mapped;
+        Random random = new Random(mapped ? 1 : 2);
+        NBTTagCompound[] chunks = new NBTTagCompound[40 * 40];
+        for (int x = 0; x < 40; x++)
+        {
+            for (int z = 0; z < 40; z++)
+            {
+                NBTTagCompound chunk = createChunk(random);
+                chunks[x * 40 + z] = chunk;
+                try (DataOutputStream out = RegionFileCache.getChunkOutputStream(dir, x, z))
+                {
+                    CompressedStreamTools.write(chunk, out);
+                }
+            }
+        }
+        RegionFileCache.clearRegionFileReferences();
+        return chunks;
+    }
+
+    private static void readAll(File dir, boolean mapped, NBTTagCompound[] chunks) throws IOException
+    {
+        ForgeModContainer.mappedRegionFiles = mapped;
+        for (int x = 0; x < 40; x++)
+        {
+            for (int z = 0; z < 40; z++)
+            {
+                try (DataInputStream in = RegionFileCache.getChunkInputStream(dir, x, z))
+                {
+                    assertNotNull("Chunk " + x + ", " + z + " is missing", in);
+                    assertEquals("Chunk " + x + ", " + z + " differs", chunks[x * 40 + z], CompressedStreamTools.read(in));
+                }
+            }
+        }
+        RegionFileCache.clearRegionFileReferences();
+    }
+
+    private static NBTTagCompound createChunk(Random random)
+    {
+        byte[] blocks = new byte[random.nextInt(16) * 1024];
+        random.nextBytes(blocks); // Barely compresses, so the sector count follows the length
+        NBTTagCompound level = new NBTTagCompound();
+        level.setByteArray("Blocks", blocks);
+        level.setLong("Seed", random.nextLong());
+        NBTTagCompound root = new NBTTagCompound();
+        root.setTag("Level", level);
+        return root;
+    }
+}